@@ -0,0 +1,239 @@
+package eigen;
+
+/**
+ * Number semantics shared by every engine. Eigen has two number kinds:
+ * integers (Long), written without a decimal point, and floats (Double).
+ *
+ * Integer +, - and * stay integers until they overflow, then promote to a
+ * float instead of wrapping. / yields an integer only when the division is
+ * exact, so 6 / 2 is 3 while 7 / 2 stays 3.5 as it always was. Mixing the
+ * two kinds computes in floating point. Bitwise operators and shifts take
+ * integers only; shift counts use their low six bits.
+ */
+final class Arithmetic {
+
+    private Arithmetic() {
+    }
+
+    static Object add(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return add((long) left, (long) right);
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return ((Number) left).doubleValue() + ((Number) right).doubleValue();
+        }
+        throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+    }
+
+    static Object subtract(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return subtract((long) left, (long) right);
+        }
+        return number(operator, left) - number(operator, right);
+    }
+
+    static Object multiply(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return multiply((long) left, (long) right);
+        }
+        return number(operator, left) * number(operator, right);
+    }
+
+    static Object divide(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return divide((long) left, (long) right);
+        }
+        return number(operator, left) / number(operator, right);
+    }
+
+    static Object add(long a, long b) {
+        long result = a + b;
+        if (((a ^ result) & (b ^ result)) < 0) {
+            return (double) a + (double) b;
+        }
+        return result;
+    }
+
+    static Object subtract(long a, long b) {
+        long result = a - b;
+        if (((a ^ b) & (a ^ result)) < 0) {
+            return (double) a - (double) b;
+        }
+        return result;
+    }
+
+    static Object multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long result = a * b;
+        if ((high == 0 && result >= 0) || (high == -1 && result < 0)) {
+            return result;
+        }
+        return (double) a * (double) b;
+    }
+
+    static Object divide(long a, long b) {
+        if (b != 0 && a % b == 0 && !(a == Long.MIN_VALUE && b == -1)) {
+            return a / b;
+        }
+        return (double) a / (double) b;
+    }
+
+    // An operator the Typer specialized on two integers, so neither operand
+    // needs a check.
+    static Object integers(TokenType operator, long a, long b) {
+        switch (operator) {
+        case PLUS:
+            return add(a, b);
+        case MINUS:
+            return subtract(a, b);
+        case STAR:
+            return multiply(a, b);
+        case SLASH:
+            return divide(a, b);
+        case GREATER:
+            return a > b;
+        case GREATER_EQUAL:
+            return a >= b;
+        case LESS:
+            return a < b;
+        case LESS_EQUAL:
+            return a <= b;
+        case BITWISE_OR:
+            return a | b;
+        case BITWISE_AND:
+            return a & b;
+        case BITWISE_XOR:
+            return a ^ b;
+        case LESS_LESS:
+            return a << b;
+        case GREATER_GREATER:
+            return a >> b;
+        default:
+            throw new IllegalArgumentException("Not an integer operator: " + operator);
+        }
+    }
+
+    // As integers, for two proven numbers of either kind: two integers take
+    // the integer path and anything else is computed in floating point.
+    static Object numbers(TokenType operator, Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            return integers(operator, (long) a, (long) b);
+        }
+        return floats(operator, ((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+
+    // As integers, for two floats.
+    static Object floats(TokenType operator, double a, double b) {
+        switch (operator) {
+        case PLUS:
+            return a + b;
+        case MINUS:
+            return a - b;
+        case STAR:
+            return a * b;
+        case SLASH:
+            return a / b;
+        case GREATER:
+            return a > b;
+        case GREATER_EQUAL:
+            return a >= b;
+        case LESS:
+            return a < b;
+        case LESS_EQUAL:
+            return a <= b;
+        default:
+            throw new IllegalArgumentException("Not a float operator: " + operator);
+        }
+    }
+
+    static Object negate(Token operator, Object operand) {
+        if (operand instanceof Long) {
+            long value = (long) operand;
+            if (value == Long.MIN_VALUE) {
+                return -(double) value;
+            }
+            return -value;
+        }
+        if (operand instanceof Double) {
+            return -(double) operand;
+        }
+        throw new RuntimeError(operator, "Operand must be a number");
+    }
+
+    static boolean less(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return (long) left < (long) right;
+        }
+        return number(operator, left) < number(operator, right);
+    }
+
+    static boolean lessEqual(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return (long) left <= (long) right;
+        }
+        return number(operator, left) <= number(operator, right);
+    }
+
+    static boolean greater(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return (long) left > (long) right;
+        }
+        return number(operator, left) > number(operator, right);
+    }
+
+    static boolean greaterEqual(Token operator, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return (long) left >= (long) right;
+        }
+        return number(operator, left) >= number(operator, right);
+    }
+
+    static long bitwise(Token operator, Object left, Object right) {
+        long a = integer(operator, left);
+        long b = integer(operator, right);
+        switch (operator.type) {
+        case BITWISE_OR:
+            return a | b;
+        case BITWISE_AND:
+            return a & b;
+        case BITWISE_XOR:
+            return a ^ b;
+        case LESS_LESS:
+            return a << b;
+        case GREATER_GREATER:
+            return a >> b;
+        default:
+            throw new IllegalArgumentException("Not a bitwise operator: " + operator.type);
+        }
+    }
+
+    // Numbers are equal across kinds when their values are, so 1 == 1.0, and
+    // string views equal the strings they spell.
+    static boolean isEqual(Object left, Object right) {
+        if (left instanceof StringView || right instanceof StringView) {
+            return left instanceof CharSequence && right instanceof CharSequence
+                    && StringView.contentEquals((CharSequence) left, (CharSequence) right);
+        }
+        if (left instanceof Long && right instanceof Double || left instanceof Double && right instanceof Long) {
+            return ((Number) left).doubleValue() == ((Number) right).doubleValue();
+        }
+        return left.equals(right);
+    }
+
+    private static double number(Token operator, Object operand) {
+        if (operand instanceof Double) {
+            return (double) operand;
+        }
+        if (operand instanceof Long) {
+            return (long) operand;
+        }
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+
+    private static long integer(Token operator, Object operand) {
+        if (operand instanceof Long) {
+            return (long) operand;
+        }
+        throw new RuntimeError(operator, "Operands must be integers.");
+    }
+}
@@ -0,0 +1,842 @@
+package eigen;
+
+import java.util.List;
+
+/**
+ * The closure-compiling engine, selected with -Deigen.engine=closure. Each
+ * function body is translated once into a tree of small pre-bound lambdas:
+ * operators, resolved variable depths and numeric constants are fixed at
+ * translation time, so running the tree never switches on a token type and
+ * every call site inside it sees one lambda class. Frames are passed down
+ * explicitly instead of living in Compiler.environment.
+ *
+ * Statements report a return by handing back its value instead of throwing,
+ * so returning from deep inside loops costs no stack unwinding. Class and
+ * import statements are rare and run through the visitor; the methods they
+ * create still execute here.
+ */
+class ClosureCompiler {
+
+    interface Eval {
+        Object evaluate(Compiler compiler, Environment environment);
+    }
+
+    // A proven number, computed without boxing it; see floating().
+    interface DoubleEval {
+        double evaluate(Compiler compiler, Environment environment);
+    }
+
+    // Returns null when the statement completes normally, otherwise the value
+    // of the return statement it executed (RETURNED_NULL for a bare return).
+    interface Node {
+        Object execute(Compiler compiler, Environment environment);
+    }
+
+    private static final Object RETURNED_NULL = new Object();
+
+    static Object run(Compiler compiler, List<Stmt> statements) {
+        Object result = null;
+        for (var statement : statements) {
+            if (statement instanceof Stmt.Expression) {
+                result = expression(((Stmt.Expression) statement).expression).evaluate(compiler, compiler.globals);
+            } else {
+                statement(statement).execute(compiler, compiler.globals);
+            }
+        }
+        return result;
+    }
+
+    // Runs a function body in its frame and returns what it returned.
+    static Object call(Compiler compiler, Stmt.Function declaration, Environment environment) {
+        var result = body(declaration).execute(compiler, environment);
+        return result == RETURNED_NULL ? null : result;
+    }
+
+    // Translates a function's body ahead of its first call.
+    static void precompile(Stmt.Function declaration) {
+        body(declaration);
+    }
+
+    // The translated body of a function, built on its first call.
+    private static Node body(Stmt.Function declaration) {
+        var compiled = declaration.compiled;
+        if (compiled == null) {
+            synchronized (declaration) {
+                compiled = declaration.compiled;
+                if (compiled == null) {
+                    compiled = sequence(declaration.body);
+                    declaration.compiled = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private static Node sequence(List<Stmt> statements) {
+        var nodes = new Node[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = statement(statements.get(i));
+        }
+        if (nodes.length == 1) {
+            return nodes[0];
+        }
+        return (compiler, environment) -> {
+            for (var node : nodes) {
+                var result = node.execute(compiler, environment);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    private static Node statement(Stmt stmt) {
+        if (stmt instanceof Stmt.Expression) {
+            var expression = expression(((Stmt.Expression) stmt).expression);
+            return (compiler, environment) -> {
+                expression.evaluate(compiler, environment);
+                return null;
+            };
+        }
+        if (stmt instanceof Stmt.Print) {
+            var expression = expression(((Stmt.Print) stmt).expression);
+            return (compiler, environment) -> {
+                compiler.print(expression.evaluate(compiler, environment));
+                return null;
+            };
+        }
+        if (stmt instanceof Stmt.Var) {
+            var var = (Stmt.Var) stmt;
+            var name = var.name.symbol();
+            if (var.initializer == null) {
+                return (compiler, environment) -> {
+                    environment.define(name, null);
+                    return null;
+                };
+            }
+            var initializer = expression(var.initializer);
+            return (compiler, environment) -> {
+                environment.define(name, initializer.evaluate(compiler, environment));
+                return null;
+            };
+        }
+        if (stmt instanceof Stmt.Block) {
+            var body = sequence(((Stmt.Block) stmt).statements);
+            return (compiler, environment) -> body.execute(compiler, new Environment(environment));
+        }
+        if (stmt instanceof Stmt.If) {
+            return ifStatement((Stmt.If) stmt);
+        }
+        if (stmt instanceof Stmt.While) {
+            var keyword = ((Stmt.While) stmt).keyword;
+            var condition = expression(((Stmt.While) stmt).condition);
+            var body = statement(((Stmt.While) stmt).body);
+            return (compiler, environment) -> {
+                while (Compiler.isTruthy(condition.evaluate(compiler, environment))) {
+                    var result = body.execute(compiler, environment);
+                    if (result != null) {
+                        return result;
+                    }
+                    compiler.tick(keyword);
+                }
+                return null;
+            };
+        }
+        if (stmt instanceof Stmt.Function) {
+            var function = (Stmt.Function) stmt;
+            var name = function.name.symbol();
+            return (compiler, environment) -> {
+                environment.define(name, new EigenFunction(function, environment, false));
+                return null;
+            };
+        }
+        if (stmt instanceof Stmt.Return) {
+            var value = ((Stmt.Return) stmt).value;
+            if (value == null) {
+                return (compiler, environment) -> RETURNED_NULL;
+            }
+            var result = expression(value);
+            return (compiler, environment) -> {
+                var returned = result.evaluate(compiler, environment);
+                return returned == null ? RETURNED_NULL : returned;
+            };
+        }
+        var statements = List.of(stmt);
+        return (compiler, environment) -> {
+            compiler.executeBlock(statements, environment);
+            return null;
+        };
+    }
+
+    private static Node ifStatement(Stmt.If stmt) {
+        var condition = expression(stmt.condition);
+        var thenBranch = statement(stmt.thenBranch);
+        if (stmt.elseBranch == null) {
+            return (compiler, environment) -> {
+                if (Compiler.isTruthy(condition.evaluate(compiler, environment))) {
+                    return thenBranch.execute(compiler, environment);
+                }
+                return null;
+            };
+        }
+        var elseBranch = statement(stmt.elseBranch);
+        return (compiler, environment) -> {
+            if (Compiler.isTruthy(condition.evaluate(compiler, environment))) {
+                return thenBranch.execute(compiler, environment);
+            }
+            return elseBranch.execute(compiler, environment);
+        };
+    }
+
+    private static Eval expression(Expr expr) {
+        if (expr instanceof Expr.Literal) {
+            var value = ((Expr.Literal) expr).value;
+            return (compiler, environment) -> value;
+        }
+        if (expr instanceof Expr.Grouping) {
+            return expression(((Expr.Grouping) expr).expression);
+        }
+        if (expr instanceof Expr.Variable) {
+            return variable((Expr.Variable) expr);
+        }
+        if (expr instanceof Expr.This) {
+            return local(Symbol.THIS, ((Expr.This) expr).depth);
+        }
+        if (expr instanceof Expr.Assign) {
+            return assign((Expr.Assign) expr);
+        }
+        if (expr instanceof Expr.Binary) {
+            return binary((Expr.Binary) expr);
+        }
+        if (expr instanceof Expr.Logical) {
+            return logical((Expr.Logical) expr);
+        }
+        if (expr instanceof Expr.Unary) {
+            return unary((Expr.Unary) expr);
+        }
+        if (expr instanceof Expr.Call) {
+            return call((Expr.Call) expr);
+        }
+        if (expr instanceof Expr.Get) {
+            var get = (Expr.Get) expr;
+            var object = expression(get.object);
+            return (compiler, environment) -> compiler.getProperty(get.name, object.evaluate(compiler, environment));
+        }
+        if (expr instanceof Expr.Set) {
+            var set = (Expr.Set) expr;
+            var object = expression(set.object);
+            var value = expression(set.value);
+            return (compiler, environment) -> {
+                var instance = Compiler.fieldsOf(set.name, object.evaluate(compiler, environment));
+                var result = value.evaluate(compiler, environment);
+                compiler.setField(set.name, instance, result);
+                return result;
+            };
+        }
+        if (expr instanceof Expr.Super) {
+            var superExpr = (Expr.Super) expr;
+            return (compiler, environment) -> Compiler.superMethod(superExpr, environment);
+        }
+        throw new IllegalArgumentException("Unknown expression " + expr.getClass().getSimpleName());
+    }
+
+    private static Eval variable(Expr.Variable expr) {
+        if (expr.depth < 0) {
+            return (compiler, environment) -> compiler.globals.get(expr);
+        }
+        return local(expr.name.symbol(), expr.depth);
+    }
+
+    private static Eval local(int symbol, int depth) {
+        if (depth == 0) {
+            return (compiler, environment) -> environment.getAt(0, symbol);
+        }
+        return (compiler, environment) -> environment.getAt(depth, symbol);
+    }
+
+    private static Eval assign(Expr.Assign expr) {
+        var value = expression(expr.value);
+        var name = expr.name;
+        var depth = expr.depth;
+        if (depth < 0) {
+            return (compiler, environment) -> {
+                var result = value.evaluate(compiler, environment);
+                compiler.globals.assign(expr, result);
+                return result;
+            };
+        }
+        return (compiler, environment) -> {
+            var result = value.evaluate(compiler, environment);
+            environment.assignAt(depth, name, result);
+            return result;
+        };
+    }
+
+    private static Eval binary(Expr.Binary expr) {
+        var typed = typedBinary(expr);
+        if (typed != null) {
+            return typed;
+        }
+        var operator = expr.operator;
+        var left = expression(expr.left);
+        if (expr.right instanceof Expr.Literal && ((Expr.Literal) expr.right).value instanceof Number) {
+            var constant = binaryConstant(expr, left, ((Expr.Literal) expr.right).value);
+            if (constant != null) {
+                return constant;
+            }
+        }
+        var right = expression(expr.right);
+
+        switch (operator.type) {
+        case GREATER:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                return Arithmetic.greater(operator, l, r);
+            };
+        case GREATER_EQUAL:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                return Arithmetic.greaterEqual(operator, l, r);
+            };
+        case LESS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                return Arithmetic.less(operator, l, r);
+            };
+        case LESS_EQUAL:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                return Arithmetic.lessEqual(operator, l, r);
+            };
+        case MINUS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                return Arithmetic.subtract(operator, l, r);
+            };
+        case PLUS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                if (l instanceof CharSequence && r instanceof CharSequence)
+                    return compiler.concatenate(operator, (CharSequence) l, (CharSequence) r);
+                return Arithmetic.add(operator, l, r);
+            };
+        case SLASH:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                return Arithmetic.divide(operator, l, r);
+            };
+        case STAR:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                return Arithmetic.multiply(operator, l, r);
+            };
+        case BITWISE_OR:
+        case BITWISE_AND:
+        case BITWISE_XOR:
+        case LESS_LESS:
+        case GREATER_GREATER:
+            return (compiler, environment) -> Arithmetic.bitwise(operator, left.evaluate(compiler, environment),
+                    right.evaluate(compiler, environment));
+        case BANG_EQUAL:
+            return (compiler, environment) -> !Compiler.isEqual(left.evaluate(compiler, environment),
+                    right.evaluate(compiler, environment));
+        case EQUAL_EQUAL:
+            return (compiler, environment) -> Compiler.isEqual(left.evaluate(compiler, environment),
+                    right.evaluate(compiler, environment));
+        default:
+            return (compiler, environment) -> {
+                left.evaluate(compiler, environment);
+                right.evaluate(compiler, environment);
+                return null;
+            };
+        }
+    }
+
+    // Operators the Typer proved the operands of, which need no checks.
+    // Float arithmetic is computed unboxed down through every operand that
+    // is itself proven float arithmetic, and boxed once at the top.
+    private static Eval typedBinary(Expr.Binary expr) {
+        var operator = expr.operator.type;
+        if (isFloatArithmetic(expr)) {
+            var value = floating(expr);
+            return (compiler, environment) -> value.evaluate(compiler, environment);
+        }
+        if (expr.operands == Typer.Type.FLOAT && isComparison(operator)) {
+            var left = floating(expr.left);
+            var right = floating(expr.right);
+            switch (operator) {
+            case GREATER:
+                return (compiler, environment) -> left.evaluate(compiler, environment) > right.evaluate(compiler,
+                        environment);
+            case GREATER_EQUAL:
+                return (compiler, environment) -> left.evaluate(compiler, environment) >= right.evaluate(compiler,
+                        environment);
+            case LESS:
+                return (compiler, environment) -> left.evaluate(compiler, environment) < right.evaluate(compiler,
+                        environment);
+            default:
+                return (compiler, environment) -> left.evaluate(compiler, environment) <= right.evaluate(compiler,
+                        environment);
+            }
+        }
+        if (expr.operands == Typer.Type.INTEGER) {
+            var left = expression(expr.left);
+            var right = expression(expr.right);
+            switch (operator) {
+            case PLUS:
+                return (compiler, environment) -> Arithmetic.add((long) left.evaluate(compiler, environment),
+                        (long) right.evaluate(compiler, environment));
+            case MINUS:
+                return (compiler, environment) -> Arithmetic.subtract((long) left.evaluate(compiler, environment),
+                        (long) right.evaluate(compiler, environment));
+            case LESS:
+                return (compiler, environment) -> (long) left.evaluate(compiler, environment) < (long) right
+                        .evaluate(compiler, environment);
+            case GREATER:
+                return (compiler, environment) -> (long) left.evaluate(compiler, environment) > (long) right
+                        .evaluate(compiler, environment);
+            default:
+                return (compiler, environment) -> Arithmetic.integers(operator,
+                        (long) left.evaluate(compiler, environment), (long) right.evaluate(compiler, environment));
+            }
+        }
+        if (expr.operands == Typer.Type.NUMBER) {
+            var left = expression(expr.left);
+            var right = expression(expr.right);
+            switch (operator) {
+            case PLUS:
+                return (compiler, environment) -> {
+                    var l = left.evaluate(compiler, environment);
+                    var r = right.evaluate(compiler, environment);
+                    if (l instanceof Long && r instanceof Long)
+                        return Arithmetic.add((long) l, (long) r);
+                    return ((Number) l).doubleValue() + ((Number) r).doubleValue();
+                };
+            case MINUS:
+                return (compiler, environment) -> {
+                    var l = left.evaluate(compiler, environment);
+                    var r = right.evaluate(compiler, environment);
+                    if (l instanceof Long && r instanceof Long)
+                        return Arithmetic.subtract((long) l, (long) r);
+                    return ((Number) l).doubleValue() - ((Number) r).doubleValue();
+                };
+            case LESS:
+                return (compiler, environment) -> {
+                    var l = left.evaluate(compiler, environment);
+                    var r = right.evaluate(compiler, environment);
+                    if (l instanceof Long && r instanceof Long)
+                        return (long) l < (long) r;
+                    return ((Number) l).doubleValue() < ((Number) r).doubleValue();
+                };
+            default:
+                return (compiler, environment) -> Arithmetic.numbers(operator, left.evaluate(compiler, environment),
+                        right.evaluate(compiler, environment));
+            }
+        }
+        if (expr.operands == Typer.Type.STRING) {
+            var token = expr.operator;
+            var left = expression(expr.left);
+            var right = expression(expr.right);
+            return (compiler, environment) -> compiler.concatenate(token,
+                    (CharSequence) left.evaluate(compiler, environment),
+                    (CharSequence) right.evaluate(compiler, environment));
+        }
+        if (expr.speculated == Typer.Type.FLOAT) {
+            return guessFloats(expr);
+        }
+        return null;
+    }
+
+    // A profiled guess that both operands are floats, checked on each run.
+    private static Eval guessFloats(Expr.Binary expr) {
+        var left = expression(expr.left);
+        var right = expression(expr.right);
+        switch (expr.operator.type) {
+        case PLUS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                if (l instanceof Double && r instanceof Double)
+                    return (double) l + (double) r;
+                return compiler.binary(expr, l, r);
+            };
+        case MINUS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                if (l instanceof Double && r instanceof Double)
+                    return (double) l - (double) r;
+                return compiler.binary(expr, l, r);
+            };
+        case STAR:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                if (l instanceof Double && r instanceof Double)
+                    return (double) l * (double) r;
+                return compiler.binary(expr, l, r);
+            };
+        default:
+            var operator = expr.operator.type;
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                var r = right.evaluate(compiler, environment);
+                sample(expr, l, r);
+                if (l instanceof Double && r instanceof Double)
+                    return Arithmetic.floats(operator, (double) l, (double) r);
+                return compiler.binary(expr, l, r);
+            };
+        }
+    }
+
+    private static boolean isComparison(TokenType operator) {
+        return operator == TokenType.GREATER || operator == TokenType.GREATER_EQUAL || operator == TokenType.LESS
+                || operator == TokenType.LESS_EQUAL;
+    }
+
+    // Whether expr is arithmetic on proven numbers, one of them a float.
+    private static boolean isFloatArithmetic(Expr.Binary expr) {
+        switch (expr.operator.type) {
+        case PLUS:
+        case MINUS:
+        case STAR:
+        case SLASH:
+            return expr.operands == Typer.Type.FLOAT;
+        default:
+            return false;
+        }
+    }
+
+    // A proven number as an unboxed double. Mixing integers with floats
+    // computes in floating point, so this is also how Arithmetic treats the
+    // integer operands of float arithmetic.
+    private static DoubleEval floating(Expr expr) {
+        while (expr instanceof Expr.Grouping) {
+            expr = ((Expr.Grouping) expr).expression;
+        }
+        if (expr instanceof Expr.Literal) {
+            var value = ((Number) ((Expr.Literal) expr).value).doubleValue();
+            return (compiler, environment) -> value;
+        }
+        if (expr instanceof Expr.Binary && isFloatArithmetic((Expr.Binary) expr)) {
+            var binary = (Expr.Binary) expr;
+            var left = floating(binary.left);
+            var right = floating(binary.right);
+            switch (binary.operator.type) {
+            case PLUS:
+                return (compiler, environment) -> left.evaluate(compiler, environment) + right.evaluate(compiler,
+                        environment);
+            case MINUS:
+                return (compiler, environment) -> left.evaluate(compiler, environment) - right.evaluate(compiler,
+                        environment);
+            case STAR:
+                return (compiler, environment) -> left.evaluate(compiler, environment) * right.evaluate(compiler,
+                        environment);
+            default:
+                return (compiler, environment) -> left.evaluate(compiler, environment) / right.evaluate(compiler,
+                        environment);
+            }
+        }
+        if (expr instanceof Expr.Unary && ((Expr.Unary) expr).type == Typer.Type.FLOAT) {
+            var operand = floating(((Expr.Unary) expr).right);
+            return (compiler, environment) -> -operand.evaluate(compiler, environment);
+        }
+        var boxed = expression(expr);
+        return (compiler, environment) -> ((Number) boxed.evaluate(compiler, environment)).doubleValue();
+    }
+
+    // Arithmetic and comparisons against a number literal, the shape of most
+    // loop counters and conditions. Integer constants get a primitive fast
+    // path for integer operands.
+    private static Eval binaryConstant(Expr.Binary expr, Eval left, Object constant) {
+        var operator = expr.operator;
+        if (constant instanceof Long) {
+            var right = (long) constant;
+            switch (operator.type) {
+            case PLUS:
+                return (compiler, environment) -> {
+                    var l = left.evaluate(compiler, environment);
+                    if (l instanceof Long) {
+                        long a = (long) l;
+                        long result = a + right;
+                        if (((a ^ result) & (right ^ result)) >= 0)
+                            return result;
+                    }
+                    return Arithmetic.add(operator, l, constant);
+                };
+            case MINUS:
+                return (compiler, environment) -> {
+                    var l = left.evaluate(compiler, environment);
+                    if (l instanceof Long) {
+                        long a = (long) l;
+                        long result = a - right;
+                        if (((a ^ right) & (a ^ result)) >= 0)
+                            return result;
+                    }
+                    return Arithmetic.subtract(operator, l, constant);
+                };
+            case LESS:
+                return (compiler, environment) -> {
+                    var l = left.evaluate(compiler, environment);
+                    if (l instanceof Long)
+                        return (long) l < right;
+                    return Arithmetic.less(operator, l, constant);
+                };
+            case GREATER:
+                return (compiler, environment) -> {
+                    var l = left.evaluate(compiler, environment);
+                    if (l instanceof Long)
+                        return (long) l > right;
+                    return Arithmetic.greater(operator, l, constant);
+                };
+            default:
+                break;
+            }
+        }
+        switch (operator.type) {
+        case PLUS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                sample(expr, l, constant);
+                return Arithmetic.add(operator, l, constant);
+            };
+        case MINUS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                sample(expr, l, constant);
+                return Arithmetic.subtract(operator, l, constant);
+            };
+        case STAR:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                sample(expr, l, constant);
+                return Arithmetic.multiply(operator, l, constant);
+            };
+        case LESS:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                sample(expr, l, constant);
+                return Arithmetic.less(operator, l, constant);
+            };
+        case GREATER:
+            return (compiler, environment) -> {
+                var l = left.evaluate(compiler, environment);
+                sample(expr, l, constant);
+                return Arithmetic.greater(operator, l, constant);
+            };
+        default:
+            return null;
+        }
+    }
+
+    // Records an unproven operator's operands while a profile samples it.
+    // Kept inside the lambdas that run anyway, so profiling adds no classes
+    // to the tree.
+    private static void sample(Expr.Binary expr, Object left, Object right) {
+        if (Profile.enabled && Profile.sampling(expr)) {
+            Profile.binary(expr, left, right);
+        }
+    }
+
+    private static Eval logical(Expr.Logical expr) {
+        var left = expression(expr.left);
+        var right = expression(expr.right);
+        if (expr.operator.type == TokenType.OR) {
+            return (compiler, environment) -> {
+                var value = left.evaluate(compiler, environment);
+                return Compiler.isTruthy(value) ? value : right.evaluate(compiler, environment);
+            };
+        }
+        return (compiler, environment) -> {
+            var value = left.evaluate(compiler, environment);
+            return !Compiler.isTruthy(value) ? value : right.evaluate(compiler, environment);
+        };
+    }
+
+    private static Eval unary(Expr.Unary expr) {
+        var operator = expr.operator;
+        var right = expression(expr.right);
+        switch (operator.type) {
+        case BANG:
+            return (compiler, environment) -> !Compiler.isTruthy(right.evaluate(compiler, environment));
+        case MINUS:
+            return (compiler, environment) -> Arithmetic.negate(operator, right.evaluate(compiler, environment));
+        default:
+            return (compiler, environment) -> {
+                right.evaluate(compiler, environment);
+                return null;
+            };
+        }
+    }
+
+    private static Eval call(Expr.Call expr) {
+        if (expr.intrinsic != null) {
+            return intrinsic(expr, invocation(expr));
+        }
+        return invocation(expr);
+    }
+
+    // Applies the intrinsic unless a global has taken its name, in which case
+    // the ordinary call runs instead.
+    private static Eval intrinsic(Expr.Call expr, Eval call) {
+        var intrinsic = expr.intrinsic;
+        var paren = expr.paren;
+        var first = expression(expr.arguments.get(0));
+        switch (intrinsic.arity) {
+        case 1:
+            return (compiler, environment) -> {
+                if (compiler.globals.shadows(intrinsic)) {
+                    return call.evaluate(compiler, environment);
+                }
+                var a = first.evaluate(compiler, environment);
+                try {
+                    return intrinsic.apply1(a);
+                } catch (NativeError error) {
+                    throw new RuntimeError(paren, error.getMessage());
+                }
+            };
+        case 2: {
+            var second = expression(expr.arguments.get(1));
+            return (compiler, environment) -> {
+                if (compiler.globals.shadows(intrinsic)) {
+                    return call.evaluate(compiler, environment);
+                }
+                var a = first.evaluate(compiler, environment);
+                var b = second.evaluate(compiler, environment);
+                try {
+                    return intrinsic.apply2(a, b);
+                } catch (NativeError error) {
+                    throw new RuntimeError(paren, error.getMessage());
+                }
+            };
+        }
+        default: {
+            var second = expression(expr.arguments.get(1));
+            var third = expression(expr.arguments.get(2));
+            return (compiler, environment) -> {
+                if (compiler.globals.shadows(intrinsic)) {
+                    return call.evaluate(compiler, environment);
+                }
+                var a = first.evaluate(compiler, environment);
+                var b = second.evaluate(compiler, environment);
+                var c = third.evaluate(compiler, environment);
+                try {
+                    return intrinsic.apply3(a, b, c);
+                } catch (NativeError error) {
+                    throw new RuntimeError(paren, error.getMessage());
+                }
+            };
+        }
+        }
+    }
+
+    private static Eval invocation(Expr.Call expr) {
+        var callee = expression(expr.callee);
+        var arguments = new Eval[expr.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = expression(expr.arguments.get(i));
+        }
+
+        switch (arguments.length) {
+        case 0:
+            return (compiler, environment) -> {
+                var constant = compiler.globals.constantCallee(expr);
+                var function = constant == null ? callee.evaluate(compiler, environment) : null;
+                try {
+                    return (constant != null ? constant : compiler.callable(expr, function, 0)).call0(compiler);
+                } catch (NativeError error) {
+                    throw new RuntimeError(expr.paren, error.getMessage());
+                } catch (StackOverflowError error) {
+                    throw Compiler.stackOverflow(expr.paren);
+                }
+            };
+        case 1: {
+            var first = arguments[0];
+            return (compiler, environment) -> {
+                var constant = compiler.globals.constantCallee(expr);
+                var function = constant == null ? callee.evaluate(compiler, environment) : null;
+                var a = first.evaluate(compiler, environment);
+                try {
+                    return (constant != null ? constant : compiler.callable(expr, function, 1)).call1(compiler, a);
+                } catch (NativeError error) {
+                    throw new RuntimeError(expr.paren, error.getMessage());
+                } catch (StackOverflowError error) {
+                    throw Compiler.stackOverflow(expr.paren);
+                }
+            };
+        }
+        case 2: {
+            var first = arguments[0];
+            var second = arguments[1];
+            return (compiler, environment) -> {
+                var constant = compiler.globals.constantCallee(expr);
+                var function = constant == null ? callee.evaluate(compiler, environment) : null;
+                var a = first.evaluate(compiler, environment);
+                var b = second.evaluate(compiler, environment);
+                try {
+                    return (constant != null ? constant : compiler.callable(expr, function, 2)).call2(compiler, a, b);
+                } catch (NativeError error) {
+                    throw new RuntimeError(expr.paren, error.getMessage());
+                } catch (StackOverflowError error) {
+                    throw Compiler.stackOverflow(expr.paren);
+                }
+            };
+        }
+        case 3: {
+            var first = arguments[0];
+            var second = arguments[1];
+            var third = arguments[2];
+            return (compiler, environment) -> {
+                var constant = compiler.globals.constantCallee(expr);
+                var function = constant == null ? callee.evaluate(compiler, environment) : null;
+                var a = first.evaluate(compiler, environment);
+                var b = second.evaluate(compiler, environment);
+                var c = third.evaluate(compiler, environment);
+                try {
+                    return (constant != null ? constant : compiler.callable(expr, function, 3)).call3(compiler, a, b, c);
+                } catch (NativeError error) {
+                    throw new RuntimeError(expr.paren, error.getMessage());
+                } catch (StackOverflowError error) {
+                    throw Compiler.stackOverflow(expr.paren);
+                }
+            };
+        }
+        default:
+            return (compiler, environment) -> {
+                var constant = compiler.globals.constantCallee(expr);
+                var function = constant == null ? callee.evaluate(compiler, environment) : null;
+                var values = new Object[arguments.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = arguments[i].evaluate(compiler, environment);
+                }
+                try {
+                    return (constant != null ? constant : compiler.callable(expr, function, values.length)).call(compiler, values);
+                } catch (NativeError error) {
+                    throw new RuntimeError(expr.paren, error.getMessage());
+                } catch (StackOverflowError error) {
+                    throw Compiler.stackOverflow(expr.paren);
+                }
+            };
+        }
+    }
+}
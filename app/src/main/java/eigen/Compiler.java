@@ -1,6 +1,7 @@
 package eigen;
 
-import java.util.ArrayList;
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,65 +21,131 @@ import eigen.Stmt.Print;
 
 public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
-    Environment globals = new Environment();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
+    // Natives live one level above the script's globals so that embedders can
+    // read back exactly what a script defined.
+    final Environment builtins;
+    // The globals of the code running now: the program's, or a module's while
+    // one of its functions runs (see EigenFunction.invoke).
+    Globals globals;
+    private Environment environment;
+    private PrintWriter out;
+    // Imported modules, run once per program and shared by all its threads.
+    private final Map<EigenScript, EigenModule> modules;
+    // Whether function bodies and top-level code run as closure-compiled
+    // trees (see ClosureCompiler) instead of through this visitor.
+    private final boolean closures;
+    // The explicit-stack machine for this thread when running with
+    // -Deigen.engine=stack, otherwise null.
+    private final StackCompiler stack;
+    // Null when the run is not limited.
+    Limits limits;
+    // Steps left in this thread's lease from the budget and when its time
+    // slice began.
+    private long ticks = 0;
+    private long sliceStart = System.nanoTime();
 
     public Compiler() {
-        globals.define("clock", new EigenCallable() {
-
-            @Override
-            public int arity() {
-                return 0;
-            }
-
-            @Override
-            public Object call(Compiler compiler, List<Object> arguments) {
-                return (double) System.currentTimeMillis() / 1000.0;
-            }
-
-            @Override
-            public String toString() {
-                return "<native function>";
-            }
-        });
+        this(Eigen.closureEngine, Eigen.stackEngine);
+    }
+
+    // A compiler for the engine chosen by closures and stack, or for this
+    // visitor when both are false.
+    Compiler(boolean closures, boolean stack) {
+        builtins = new Environment();
+        globals = new Globals(builtins);
+        environment = globals;
+        out = new PrintWriter(System.out, true);
+        modules = new HashMap<>();
+        this.closures = closures;
+        this.stack = stack ? new StackCompiler(this) : null;
+        NativeFunction.define0(builtins, "clock", compiler -> (double) System.currentTimeMillis() / 1000.0);
+        Concurrency.define(builtins);
+        EigenList.define(builtins);
+        Parallel.define(builtins);
+        MemoizedFunction.define(builtins);
+        Generator.define(builtins);
+        Intrinsic.define(builtins);
+        NativeBinder.define(builtins, StringNatives.class);
+        NativeBinder.define(builtins, MatrixNatives.class);
+    }
+
+    // A compiler for another thread: it shares the natives, globals and output
+    // of its parent but has its own current environment.
+    Compiler(Compiler parent) {
+        this(parent, parent.globals);
+    }
+
+    private Compiler(Compiler parent, Globals globals) {
+        builtins = parent.builtins;
+        this.globals = globals;
+        environment = globals;
+        out = parent.out;
+        modules = parent.modules;
+        closures = parent.closures;
+        stack = parent.stack != null ? new StackCompiler(this) : null;
+        limits = parent.limits;
+    }
+
+    // The compiler a thread this one spawns runs on.
+    Compiler fork() {
+        return new Compiler(this);
     }
 
     @Override
     public Object visitBinaryExpr(Binary expr) {
         var left = evaluate(expr.left);
         var right = evaluate(expr.right);
+        if (Profile.enabled && Profile.sampling(expr)) {
+            Profile.binary(expr, left, right);
+        }
+        return binary(expr, left, right);
+    }
 
+    // Applies expr's operator to its evaluated operands: on the Typer's
+    // proven path, on a profiled guess guarded by a check, or in general.
+    Object binary(Binary expr, Object left, Object right) {
+        if (expr.operands == Typer.Type.INTEGER) {
+            return Arithmetic.integers(expr.operator.type, (long) left, (long) right);
+        }
+        if (expr.operands == Typer.Type.FLOAT) {
+            return Arithmetic.floats(expr.operator.type, ((Number) left).doubleValue(),
+                    ((Number) right).doubleValue());
+        }
+        if (expr.operands == Typer.Type.NUMBER) {
+            return Arithmetic.numbers(expr.operator.type, left, right);
+        }
+        if (expr.operands == Typer.Type.STRING) {
+            return concatenate(expr.operator, (CharSequence) left, (CharSequence) right);
+        }
+        if (expr.speculated == Typer.Type.FLOAT && left instanceof Double && right instanceof Double) {
+            return Arithmetic.floats(expr.operator.type, (double) left, (double) right);
+        }
         switch (expr.operator.type) {
         case GREATER:
-            checkNumberOperands(expr.operator, left, right);
-            return (double) left > (double) right;
+            return Arithmetic.greater(expr.operator, left, right);
         case GREATER_EQUAL:
-            checkNumberOperands(expr.operator, left, right);
-            return (double) left >= (double) right;
+            return Arithmetic.greaterEqual(expr.operator, left, right);
         case LESS:
-            checkNumberOperands(expr.operator, left, right);
-            return (double) left < (double) right;
+            return Arithmetic.less(expr.operator, left, right);
         case LESS_EQUAL:
-            checkNumberOperands(expr.operator, left, right);
-            return (double) left <= (double) right;
+            return Arithmetic.lessEqual(expr.operator, left, right);
         case MINUS:
-            checkNumberOperands(expr.operator, left, right);
-            return (double) left - (double) right;
+            return Arithmetic.subtract(expr.operator, left, right);
         case PLUS:
-            if (left instanceof Double && right instanceof Double) {
-                return (double) left + (double) right;
-            }
-            if (left instanceof String && right instanceof String) {
-                return (String) left + (String) right;
+            if (left instanceof CharSequence && right instanceof CharSequence) {
+                return concatenate(expr.operator, (CharSequence) left, (CharSequence) right);
             }
-            throw new RuntimeError(expr.operator, "Operands must be two numbers or two strings.");
+            return Arithmetic.add(expr.operator, left, right);
         case SLASH:
-            checkNumberOperands(expr.operator, left, right);
-            return (double) left / (double) right;
+            return Arithmetic.divide(expr.operator, left, right);
         case STAR:
-            checkNumberOperands(expr.operator, left, right);
-            return (double) left * (double) right;
+            return Arithmetic.multiply(expr.operator, left, right);
+        case BITWISE_OR:
+        case BITWISE_AND:
+        case BITWISE_XOR:
+        case LESS_LESS:
+        case GREATER_GREATER:
+            return Arithmetic.bitwise(expr.operator, left, right);
         case BANG_EQUAL:
             return !isEqual(left, right);
         case EQUAL_EQUAL:
@@ -90,13 +157,44 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
-    private boolean isEqual(Object left, Object right) {
+    // Counts one step at a loop back-edge or function entry.
+    void tick(Token token) {
+        if (limits != null && --ticks < 0) {
+            ticks = 0;
+            sliceStart = limits.checkpoint(token, sliceStart);
+            ticks = limits.lease(token) - 1;
+        }
+    }
+
+    // Gives the rest of this thread's lease back to the budget. Called when
+    // the code this compiler runs is done.
+    void settle() {
+        if (limits != null && ticks > 0) {
+            limits.settle(ticks);
+        }
+        ticks = 0;
+    }
+
+    String concatenate(Token operator, CharSequence left, CharSequence right) {
+        if (limits != null) {
+            limits.allocate(operator, Limits.STRING_BYTES + left.length() + right.length());
+        }
+        if (left instanceof String && right instanceof String) {
+            return (String) left + (String) right;
+        }
+        var result = new StringBuilder(left.length() + right.length());
+        StringView.append(result, left);
+        StringView.append(result, right);
+        return result.toString();
+    }
+
+    static boolean isEqual(Object left, Object right) {
         if (left == null && right == null)
             return true;
         if (left == null)
             return false;
 
-        return left.equals(right);
+        return Arithmetic.isEqual(left, right);
     }
 
     @Override
@@ -104,7 +202,7 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return evaluate(expr.expression);
     }
 
-    private Object evaluate(Expr expr) {
+    Object evaluate(Expr expr) {
         return expr.accept(this);
     }
 
@@ -121,28 +219,21 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         case BANG:
             return !isTruthy(right);
         case MINUS:
-            checkNumberOperand(expr.operator, right);
-            return -(double) right;
+            return Arithmetic.negate(expr.operator, right);
         default:
             break;
         }
         return null;
     }
 
-    private void checkNumberOperand(Token operator, Object operand) {
-        if (operand instanceof Double)
-            return;
-        throw new RuntimeError(operator, "Operand must be a number");
+    // What a call reports when the Java stack runs out under it: recursion
+    // through natives, or deep recursion on an engine that uses the Java
+    // stack for Eigen calls.
+    static RuntimeError stackOverflow(Token token) {
+        return new RuntimeError(token, "Stack overflow.");
     }
 
-    private void checkNumberOperands(Token operator, Object left, Object right) {
-        if (left instanceof Double && right instanceof Double)
-            return;
-
-        throw new RuntimeError(operator, "Operands must be numbers.");
-    }
-
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
         if (object == null)
             return false;
         if (object instanceof Boolean)
@@ -152,19 +243,45 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     void compile(List<Stmt> statements) {
         try {
-            for (var statement : statements) {
-                execute(statement);
-            }
+            interpret(statements);
         } catch (RuntimeError error) {
             Eigen.runtimeError(error);
         }
     }
 
-    private void execute(Stmt stmt) {
+    // Runs top-level statements and returns the value of the last expression
+    // statement, leaving runtime errors to the caller.
+    Object interpret(List<Stmt> statements) {
+        try {
+            if (closures) {
+                return ClosureCompiler.run(this, statements);
+            }
+            if (stack != null) {
+                return stack.run(statements);
+            }
+            Object result = null;
+            for (var statement : statements) {
+                if (statement instanceof Stmt.Expression) {
+                    result = evaluate(((Stmt.Expression) statement).expression);
+                } else {
+                    execute(statement);
+                }
+            }
+            return result;
+        } finally {
+            settle();
+        }
+    }
+
+    void setOutput(Writer writer) {
+        out = new PrintWriter(writer, true);
+    }
+
+    void execute(Stmt stmt) {
         stmt.accept(this);
     }
 
-    private String stringify(Object value) {
+    static String stringify(Object value) {
         if (value == null)
             return "null";
         if (value instanceof Double) {
@@ -185,11 +302,14 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
  
     @Override
     public Void visitPrintStmt(Print stmt) {
-        var value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        print(evaluate(stmt.expression));
         return null;
     }
 
+    void print(Object value) {
+        out.println(stringify(value));
+    }
+
     @Override
     public Void visitVarStmt(Stmt.Var stmt) {
         Object value = null;
@@ -198,33 +318,26 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             value = evaluate(stmt.initializer);
         }
 
-        environment.define(stmt.name.lexeme, value);
+        environment.define(stmt.name.symbol(), value);
         return null;
     }
 
     @Override
     public Object visitVariableExpr(Expr.Variable expr) {
-        return lookUpVariable(expr.name, expr);
-    }
-
-    private Object lookUpVariable(Token name, Expr expr) {
-        var distance = locals.get(expr);
-        if (distance != null) {
-            return environment.getAt(distance, name.lexeme);
-        } else {
-            return globals.get(name);
+        if (expr.depth >= 0) {
+            return environment.getAt(expr.depth, expr.name.symbol());
         }
+        return globals.get(expr);
     }
 
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
         var value = evaluate(expr.value);
 
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            environment.assignAt(distance, expr.name, value);
+        if (expr.depth >= 0) {
+            environment.assignAt(expr.depth, expr.name, value);
         } else {
-            globals.assign(expr.name, value);
+            globals.assign(expr, value);
         }
         return value;
     }
@@ -235,6 +348,19 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
+    // Runs a function body in its frame. The visitor reports the return value
+    // by throwing Return; the other engines hand it back.
+    Object executeBody(Stmt.Function declaration, Environment environment) {
+        if (closures) {
+            return ClosureCompiler.call(this, declaration, environment);
+        }
+        if (stack != null) {
+            return stack.call(declaration, environment);
+        }
+        executeBlock(declaration.body, environment);
+        return null;
+    }
+
     void executeBlock(List<Stmt> statements, Environment environment) {
         var previous = this.environment;
         try {
@@ -276,35 +402,122 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Void visitWhileStmt(Stmt.While stmt) {
         while (isTruthy(evaluate(stmt.condition))) {
             execute(stmt.body);
+            tick(stmt.keyword);
         }
         return null;
     }
 
     @Override
     public Object visitCallExpr(Expr.Call expr) {
-        Object callee = evaluate(expr.callee);
+        if (expr.intrinsic != null && !globals.shadows(expr.intrinsic)) {
+            return intrinsic(expr);
+        }
+        // A call to a constant global needs neither its lookup nor its checks.
+        var function = globals.constantCallee(expr);
+        Object callee = function == null ? evaluate(expr.callee) : null;
+        var arguments = expr.arguments;
 
-        List<Object> arguments = new ArrayList<>();
-        for (var argument : expr.arguments) {
-            arguments.add(evaluate(argument));
+        try {
+            switch (arguments.size()) {
+            case 0:
+                return (function != null ? function : callable(expr, callee, 0)).call0(this);
+            case 1: {
+                var a = evaluate(arguments.get(0));
+                return (function != null ? function : callable(expr, callee, 1)).call1(this, a);
+            }
+            case 2: {
+                var a = evaluate(arguments.get(0));
+                var b = evaluate(arguments.get(1));
+                return (function != null ? function : callable(expr, callee, 2)).call2(this, a, b);
+            }
+            case 3: {
+                var a = evaluate(arguments.get(0));
+                var b = evaluate(arguments.get(1));
+                var c = evaluate(arguments.get(2));
+                return (function != null ? function : callable(expr, callee, 3)).call3(this, a, b, c);
+            }
+            default: {
+                var values = new Object[arguments.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = evaluate(arguments.get(i));
+                }
+                return (function != null ? function : callable(expr, callee, values.length)).call(this, values);
+            }
+            }
+        } catch (NativeError error) {
+            throw new RuntimeError(expr.paren, error.getMessage());
+        } catch (StackOverflowError error) {
+            throw stackOverflow(expr.paren);
         }
+    }
+
+    private Object intrinsic(Expr.Call expr) {
+        var arguments = expr.arguments;
+        var a = evaluate(arguments.get(0));
+        try {
+            switch (arguments.size()) {
+            case 1:
+                return expr.intrinsic.apply1(a);
+            case 2:
+                return expr.intrinsic.apply2(a, evaluate(arguments.get(1)));
+            default: {
+                var b = evaluate(arguments.get(1));
+                return expr.intrinsic.apply3(a, b, evaluate(arguments.get(2)));
+            }
+            }
+        } catch (NativeError error) {
+            throw new RuntimeError(expr.paren, error.getMessage());
+        }
+    }
+
+    EigenCallable callable(Expr.Call expr, Object callee, int count) {
         if (!(callee instanceof EigenCallable)) {
             throw new RuntimeError(expr.paren, "Can only call functions and classes.");
         }
         EigenCallable function = (EigenCallable) callee;
-        if (arguments.size() != function.arity()) {
-            throw new RuntimeError(expr.paren, "Expected " + function.arity() + " arguments but got " + arguments.size() + ".");
+        if (count != function.arity()) {
+            throw new RuntimeError(expr.paren, "Expected " + function.arity() + " arguments but got " + count + ".");
         }
-        return function.call(this, arguments);
+        globals.speculate(expr, function);
+        return function;
     }
 
     @Override
     public Void visitFunctionStmt(Function stmt) {
         var function = new EigenFunction(stmt, environment,false);
-        environment.define(stmt.name.lexeme, function);
+        environment.define(stmt.name.symbol(), function);
+        return null;
+    }
+
+    @Override
+    public Void visitImportStmt(Stmt.Import stmt) {
+        environment.define(stmt.name.symbol(), importModule(stmt));
         return null;
     }
 
+    // A module's top-level code runs against its own globals the first time
+    // the program imports it. It is registered before it runs so that import
+    // cycles see the partially initialized namespace instead of looping.
+    private EigenModule importModule(Stmt.Import stmt) {
+        EigenModule module;
+        synchronized (modules) {
+            module = modules.get(stmt.module);
+            if (module != null) {
+                return module;
+            }
+            module = new EigenModule(stmt.name.lexeme, new Globals(builtins));
+            modules.put(stmt.module, module);
+        }
+        new Compiler(this, module.globals).interpret(stmt.module.statements);
+        return module;
+    }
+
+    // Generator bodies only ever run on their own StackCompiler.
+    @Override
+    public Void visitYieldStmt(Stmt.Yield stmt) {
+        throw new IllegalStateException("yield outside a generator");
+    }
+
     @Override
     public Void visitReturnStmt(Stmt.Return stmt) {
         Object value = null;
@@ -314,10 +527,6 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         throw new Return(value);
     }
 
-    public void resolve(Expr expr, int i) {
-        locals.put(expr, i);
-    }
-
     @Override
     public Void visitClassStmt(Class stmt) {
         Object superclass = null;
@@ -327,11 +536,11 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 throw new RuntimeError(stmt.superclass.name, "Superclass must be a class.");
             }
         }
-        environment.define(stmt.name.lexeme, null);
+        environment.define(stmt.name.symbol(), null);
 
         if (stmt.superclass != null) {
             environment = new Environment(environment);
-            environment.define("super", superclass);
+            environment.define(Symbol.SUPER, superclass);
         }
 
         Map<String, EigenFunction> methods = new HashMap<>();
@@ -349,39 +558,57 @@ public class Compiler implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitGetExpr(Get expr) {
-        Object object = evaluate(expr.object);
+        return getProperty(expr.name, evaluate(expr.object));
+    }
+
+    Object getProperty(Token name, Object object) {
         if (object instanceof EigenInstance) {
-            return ((EigenInstance) object).get(expr.name);
+            return ((EigenInstance) object).get(name);
+        }
+        if (object instanceof EigenModule) {
+            return ((EigenModule) object).get(name);
         }
-        throw new RuntimeError(expr.name, "Only instances have properties.");
+        throw new RuntimeError(name, "Only instances have properties.");
     }
 
     @Override
     public Object visitSetExpr(Set expr) {
-        Object object = evaluate(expr.object);
+        var object = fieldsOf(expr.name, evaluate(expr.object));
+        Object value = evaluate(expr.value);
+        setField(expr.name, object, value);
+        return value;
+    }
 
-        if (!(object instanceof EigenInstance)) {
-            throw new RuntimeError(expr.name, "Only instances have fields.");
+    void setField(Token name, EigenInstance object, Object value) {
+        if (object.set(name, value) && limits != null) {
+            limits.allocate(name, Limits.FIELD_BYTES);
         }
+    }
 
-        Object value = evaluate(expr.value);
-        ((EigenInstance) object).set(expr.name, value);
-        return value;
+    static EigenInstance fieldsOf(Token name, Object object) {
+        if (!(object instanceof EigenInstance)) {
+            throw new RuntimeError(name, "Only instances have fields.");
+        }
+        return (EigenInstance) object;
     }
 
     @Override
     public Object visitThisExpr(This expr) {
-        return lookUpVariable(expr.keyword, expr);
+        return environment.getAt(expr.depth, Symbol.THIS);
     }
 
 
 
     @Override
     public Object visitSuperExpr(Super expr) {
-        var distance = locals.get(expr);
-        var superclass = (EigenClass) environment.getAt(distance, "super");
-        var object = (EigenInstance) environment.getAt(distance - 1, "this");
-        var method = superclass.findMethod(expr.method.lexeme);
+        return superMethod(expr, environment);
+    }
+
+    static Object superMethod(Super expr, Environment environment) {
+        var distance = expr.depth;
+        var superclass = (EigenClass) environment.getAt(distance, Symbol.SUPER);
+        var object = (EigenInstance) environment.getAt(distance - 1, Symbol.THIS);
+        var method = superclass.findMethod(expr.method.symbol());
         if (method == null) {
             throw new RuntimeError(expr.method, "Undefined property '" + expr.method.lexeme + "'.");
         }
@@ -0,0 +1,158 @@
+package eigen;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * spawn/join and channels. Each task runs on its own Compiler that shares the
+ * spawning script's natives and globals but keeps its own call state.
+ *
+ * The environments a function closes over are switched to synchronized
+ * storage whenever the function crosses to another task: when it is spawned,
+ * sent on a channel, returned from a task, or stored in globals that tasks
+ * share. Lists and instances lock themselves. A function that crosses only
+ * inside a list or an instance field is not followed there, so its closure
+ * must not be assigned to from two tasks at once. Values handed over through
+ * a channel or returned from join are safely published by the handoff.
+ */
+class Concurrency {
+
+    private static final ExecutorService executor = newExecutor();
+
+    // Virtual threads when the JDK has them, daemon platform threads otherwise.
+    private static ExecutorService newExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "eigen-task");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static void define(Environment builtins) {
+        NativeFunction.define1(builtins, "spawn", Concurrency::spawn);
+        NativeFunction.define1(builtins, "join", (compiler, task) -> {
+            return NativeFunction.expect(task, EigenTask.class, "Can only join a spawned task.").join();
+        });
+        NativeFunction.define1(builtins, "channel", (compiler, capacity) -> {
+            return new EigenChannel(NativeFunction.expectCount(capacity, "Channel capacity must be a positive integer."));
+        });
+        NativeFunction.define2(builtins, "send", (compiler, channel, value) -> {
+            NativeFunction.expect(channel, EigenChannel.class, "Can only send to a channel.").send(value);
+            return null;
+        });
+        NativeFunction.define1(builtins, "receive", (compiler, channel) -> {
+            return NativeFunction.expect(channel, EigenChannel.class, "Can only receive from a channel.").receive();
+        });
+    }
+
+    private static Object spawn(Compiler compiler, Object callee) {
+        var function = NativeFunction.expect(callee, EigenCallable.class, "Can only spawn a function.");
+        if (function.arity() != 0) {
+            throw new NativeError("Spawned functions can't take arguments.");
+        }
+        share(compiler, function);
+        var task = compiler.fork();
+        return new EigenTask(executor.submit(() -> {
+            try {
+                var result = function.call0(task);
+                share(result);
+                return result;
+            } finally {
+                task.settle();
+            }
+        }));
+    }
+
+    // Switches what a function run on another thread can reach to
+    // synchronized storage.
+    static void share(Compiler compiler, EigenCallable function) {
+        compiler.globals.share();
+        share(function);
+    }
+
+    // Switches the closures a value carries to another thread to synchronized
+    // storage.
+    static void share(Object value) {
+        if (value instanceof EigenFunction) {
+            ((EigenFunction) value).share();
+        } else if (value instanceof MemoizedFunction) {
+            ((MemoizedFunction) value).share();
+        } else if (value instanceof EigenClass) {
+            ((EigenClass) value).share();
+        }
+    }
+
+    static class EigenTask {
+        private final Future<Object> result;
+
+        EigenTask(Future<Object> result) {
+            this.result = result;
+        }
+
+        Object join() {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new NativeError("Spawned task failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NativeError("Interrupted while joining a task.");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "<task>";
+        }
+    }
+
+    static class EigenChannel {
+        // Blocking queues reject null, so null travels as this marker.
+        private static final Object NULL = new Object();
+        private final BlockingQueue<Object> queue;
+
+        EigenChannel(int capacity) {
+            if (capacity == 0) {
+                throw new NativeError("Channel capacity must be a positive integer.");
+            }
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void send(Object value) {
+            share(value);
+            try {
+                queue.put(value == null ? NULL : value);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NativeError("Interrupted while sending.");
+            }
+        }
+
+        Object receive() {
+            try {
+                var value = queue.take();
+                return value == NULL ? null : value;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NativeError("Interrupted while receiving.");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "<channel>";
+        }
+    }
+}
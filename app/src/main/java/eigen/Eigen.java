@@ -5,16 +5,72 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.script.ScriptException;
 
 public class Eigen {
     static boolean hadError = false;
     static boolean hadRuntimeError = false;
-    private static final Compiler compiler = new Compiler();
+    static final boolean lazyFunctions = Boolean.getBoolean("eigen.lazyFunctions");
+    static final boolean closureEngine = "closure".equals(System.getProperty("eigen.engine"));
+    static final boolean stackEngine = "stack".equals(System.getProperty("eigen.engine"));
+    // Whether the Typer lists the operators it could not specialize.
+    static final boolean typeReport = Boolean.getBoolean("eigen.typeReport");
+    // The file runs keep their type feedback in (see Profile), or null.
+    static final String profile = System.getProperty("eigen.profile");
+    // Deepest Eigen call nesting the stack engine allows.
+    static final int maxDepth = Integer.getInteger("eigen.maxDepth", 100_000);
+    private static final Compiler compiler = newCompiler();
+    private static final ThreadLocal<List<String>> errorLog = new ThreadLocal<>();
+
+    private static Compiler newCompiler() {
+        var compiler = new Compiler();
+        // Scripts run from the command line may use the filesystem; embedded
+        // ones only when the embedder binds FileNatives.
+        NativeBinder.define(compiler.builtins, FileNatives.class);
+        var quota = System.getProperty("eigen.memoryQuota");
+        var fuel = Long.getLong("eigen.fuel");
+        var timeSlice = Long.getLong("eigen.timeSliceMillis");
+        if (quota != null || fuel != null || timeSlice != null) {
+            compiler.limits = new Limits();
+        }
+        if (quota != null) {
+            compiler.limits.setMemoryQuota(Limits.parseSize(quota));
+        }
+        if (fuel != null) {
+            compiler.limits.setFuel(fuel);
+        }
+        if (timeSlice != null) {
+            compiler.limits.setTimeSlice(TimeUnit.MILLISECONDS.toNanos(timeSlice));
+        }
+        return compiler;
+    }
 
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Use \"eigen file\"");
+        if (args.length == 3 && args[0].equals("--snapshot")) {
+            // Run a prelude once and save the globals it leaves behind.
+            runFile(args[2]);
+            try {
+                HeapSnapshot.write(compiler, Paths.get(args[1]));
+            } catch (IOException error) {
+                System.err.println(error.getMessage());
+                System.exit(74);
+            }
+        } else if (args.length == 3 && args[0].equals("--from-snapshot")) {
+            try {
+                HeapSnapshot.read(compiler, Paths.get(args[1]));
+            } catch (IOException error) {
+                System.err.println(error.getMessage());
+                System.exit(74);
+            }
+            runFile(args[2]);
+        } else if (args.length > 1) {
+            System.out.println("Use \"eigen file\", \"eigen --snapshot out prelude\" or \"eigen --from-snapshot in file\"");
         } else if (args.length == 1) {
             runFile(args[0]);
         } else {
@@ -24,8 +80,9 @@ public class Eigen {
 
     // run the file
     private static void runFile(String path) throws IOException {
-        var bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+        var file = Paths.get(path).toAbsolutePath();
+        var bytes = Files.readAllBytes(file);
+        run(new String(bytes, Charset.defaultCharset()), file.getParent());
 
         if (hadError)
             System.exit(65);
@@ -33,7 +90,7 @@ public class Eigen {
             System.exit(70);
     }
 
-    private static void run(String charStream) throws IOException {
+    private static void run(String charStream, Path directory) throws IOException {
         var lexer = new Lexer(charStream);
         var tokens = lexer.scanTokens();
 
@@ -42,13 +99,27 @@ public class Eigen {
 
         if (hadError)
             return;
-        var resolver = new Resolver(compiler);
+        var resolver = new Resolver();
         resolver.resolve(statements);
 
         if (hadError)
             return;
+        Typer.infer(statements);
+        if (Profile.enabled) {
+            Profile.load(statements, charStream);
+        }
+        try {
+            ModuleLoader.link(parser.imports, directory);
+        } catch (ScriptException error) {
+            System.err.println(error.getMessage());
+            hadError = true;
+            return;
+        }
 
         compiler.compile(statements);
+        if (Profile.enabled) {
+            Profile.save(statements, charStream);
+        }
     }
 
     // run code on CLI
@@ -62,7 +133,7 @@ public class Eigen {
             if (line == null) {
                 break;
             }
-            run(line);
+            run(line, Paths.get(""));
             hadError = false;
         }
     }
@@ -72,10 +143,30 @@ public class Eigen {
     }
 
     private static void report(int line, String location, String message) {
-        System.err.println("[line " + line + "] Error" + location + ": " + message);
+        var text = "[line " + line + "] Error" + location + ": " + message;
+        var log = errorLog.get();
+        if (log != null) {
+            log.add(text);
+            return;
+        }
+        System.err.println(text);
         hadError = true;
     }
 
+    // Runs a front-end phase on this thread with its static errors collected
+    // and returned instead of printed.
+    static List<String> collectErrors(Runnable phase) {
+        var previous = errorLog.get();
+        List<String> errors = new ArrayList<>();
+        errorLog.set(errors);
+        try {
+            phase.run();
+        } finally {
+            errorLog.set(previous);
+        }
+        return errors;
+    }
+
     static void error(Token token, String message) {
         if (token.type == TokenType.EOF) {
             report(token.line, " at end", message);
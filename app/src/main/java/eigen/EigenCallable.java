@@ -1,8 +1,32 @@
 package eigen;
 
+import java.util.Arrays;
 import java.util.List;
 
 interface EigenCallable {
     int arity();
     Object call(Compiler compiler, List<Object> arguments);
+
+    // Fixed-arity entry points used by call sites that know their argument
+    // count, so they never build an argument list. Callables override the ones
+    // they can serve without one.
+    default Object call0(Compiler compiler) {
+        return call(compiler, List.of());
+    }
+
+    default Object call1(Compiler compiler, Object a) {
+        return call(compiler, Arrays.asList(a));
+    }
+
+    default Object call2(Compiler compiler, Object a, Object b) {
+        return call(compiler, Arrays.asList(a, b));
+    }
+
+    default Object call3(Compiler compiler, Object a, Object b, Object c) {
+        return call(compiler, Arrays.asList(a, b, c));
+    }
+
+    default Object call(Compiler compiler, Object[] arguments) {
+        return call(compiler, Arrays.asList(arguments));
+    }
 }
@@ -1,18 +1,31 @@
 package eigen;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
-public class EigenClass implements EigenCallable {
+public class EigenClass implements EigenCallable, Serializable {
+    private static final long serialVersionUID = 1L;
 
     final String lexeme;
     final private EigenClass superclass;
-    private final Map<String, EigenFunction> methods;
+    private final SymbolMap methods = new SymbolMap();
 
     public EigenClass(String lexeme, EigenClass superclass, Map<String, EigenFunction> methods) {
         this.lexeme = lexeme;
         this.superclass = superclass;
-        this.methods = methods;
+        for (var method : methods.entrySet()) {
+            this.methods.put(Symbol.intern(method.getKey()), method.getValue());
+        }
+    }
+
+    void share() {
+        for (var method : methods.toMap().values()) {
+            ((EigenFunction) method).share();
+        }
+        if (superclass != null) {
+            superclass.share();
+        }
     }
 
     @Override
@@ -22,7 +35,7 @@ public class EigenClass implements EigenCallable {
 
     @Override
     public int arity() {
-        var initializer = findMethod("init");
+        var initializer = findMethod(Symbol.INIT);
         if (initializer == null) {
             return 0;
         }
@@ -31,20 +44,77 @@ public class EigenClass implements EigenCallable {
 
     @Override
     public Object call(Compiler compiler, List<Object> arguments) {
-        var instance = new EigenInstance(this);
-        var initializer = findMethod("init");
+        var instance = instantiate(compiler);
+        var initializer = findMethod(Symbol.INIT);
         if (initializer != null) {
             initializer.bind(instance).call(compiler, arguments);
         }
         return instance;
     }
 
-    EigenFunction findMethod(String name) {
-        if (methods.containsKey(name)) {
-            return methods.get(name);
+    @Override
+    public Object call(Compiler compiler, Object[] arguments) {
+        var instance = instantiate(compiler);
+        var initializer = findMethod(Symbol.INIT);
+        if (initializer != null) {
+            initializer.bind(instance).call(compiler, arguments);
         }
-        if (superclass != null) {
-            return superclass.findMethod(name);
+        return instance;
+    }
+
+    @Override
+    public Object call0(Compiler compiler) {
+        var instance = instantiate(compiler);
+        var initializer = findMethod(Symbol.INIT);
+        if (initializer != null) {
+            initializer.bind(instance).call0(compiler);
+        }
+        return instance;
+    }
+
+    @Override
+    public Object call1(Compiler compiler, Object a) {
+        var instance = instantiate(compiler);
+        var initializer = findMethod(Symbol.INIT);
+        if (initializer != null) {
+            initializer.bind(instance).call1(compiler, a);
+        }
+        return instance;
+    }
+
+    @Override
+    public Object call2(Compiler compiler, Object a, Object b) {
+        var instance = instantiate(compiler);
+        var initializer = findMethod(Symbol.INIT);
+        if (initializer != null) {
+            initializer.bind(instance).call2(compiler, a, b);
+        }
+        return instance;
+    }
+
+    @Override
+    public Object call3(Compiler compiler, Object a, Object b, Object c) {
+        var instance = instantiate(compiler);
+        var initializer = findMethod(Symbol.INIT);
+        if (initializer != null) {
+            initializer.bind(instance).call3(compiler, a, b, c);
+        }
+        return instance;
+    }
+
+    EigenInstance instantiate(Compiler compiler) {
+        if (compiler.limits != null) {
+            compiler.limits.allocate(Limits.INSTANCE_BYTES);
+        }
+        return new EigenInstance(this);
+    }
+
+    EigenFunction findMethod(int symbol) {
+        for (var eigenClass = this; eigenClass != null; eigenClass = eigenClass.superclass) {
+            var method = eigenClass.methods.get(symbol);
+            if (method != null) {
+                return (EigenFunction) method;
+            }
         }
         return null;
     }
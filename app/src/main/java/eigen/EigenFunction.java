@@ -1,16 +1,22 @@
 package eigen;
 
+import java.io.Serializable;
 import java.util.List;
 
-public class EigenFunction implements EigenCallable {
-    private final Stmt.Function declaration;
-    private final Environment closure;
-    private final boolean isInitializer;
+public class EigenFunction implements EigenCallable, Serializable {
+    private static final long serialVersionUID = 1L;
+    final Stmt.Function declaration;
+    final Environment closure;
+    final boolean isInitializer;
+    // The globals of the program or module the function was defined in, which
+    // its body resolves global names against wherever it is called from.
+    final Globals globals;
 
     public EigenFunction(Stmt.Function declaration, Environment closure, boolean isInitializer) {
         this.isInitializer = isInitializer;
         this.closure = closure;
         this.declaration = declaration;
+        this.globals = closure.globals();
     }
 
     @Override
@@ -27,27 +33,101 @@ public class EigenFunction implements EigenCallable {
     public Object call(Compiler compiler, List<Object> arguments) {
         Environment environment = new Environment(closure);
         for (int i = 0; i < declaration.params.size(); i++) {
-            environment.define(declaration.params.get(i).lexeme, arguments.get(i));
+            environment.define(declaration.params.get(i).symbol(), arguments.get(i));
+        }
+        return invoke(compiler, environment);
+    }
+
+    @Override
+    public Object call(Compiler compiler, Object[] arguments) {
+        Environment environment = new Environment(closure);
+        for (int i = 0; i < arguments.length; i++) {
+            environment.define(declaration.params.get(i).symbol(), arguments[i]);
+        }
+        return invoke(compiler, environment);
+    }
+
+    @Override
+    public Object call0(Compiler compiler) {
+        return invoke(compiler, new Environment(closure));
+    }
+
+    @Override
+    public Object call1(Compiler compiler, Object a) {
+        Environment environment = new Environment(closure);
+        environment.define(declaration.params.get(0).symbol(), a);
+        return invoke(compiler, environment);
+    }
+
+    @Override
+    public Object call2(Compiler compiler, Object a, Object b) {
+        Environment environment = new Environment(closure);
+        environment.define(declaration.params.get(0).symbol(), a);
+        environment.define(declaration.params.get(1).symbol(), b);
+        return invoke(compiler, environment);
+    }
+
+    @Override
+    public Object call3(Compiler compiler, Object a, Object b, Object c) {
+        Environment environment = new Environment(closure);
+        environment.define(declaration.params.get(0).symbol(), a);
+        environment.define(declaration.params.get(1).symbol(), b);
+        environment.define(declaration.params.get(2).symbol(), c);
+        return invoke(compiler, environment);
+    }
+
+    // Runs the body in a frame whose parameters are already defined, against
+    // the globals the function was defined in.
+    private Object invoke(Compiler compiler, Environment environment) {
+        var callerGlobals = compiler.globals;
+        compiler.globals = globals;
+        try {
+            return run(compiler, environment);
+        } finally {
+            compiler.globals = callerGlobals;
+        }
+    }
+
+    private Object run(Compiler compiler, Environment environment) {
+        if (Profile.enabled) {
+            Profile.call(declaration);
+        }
+        if (declaration.lazy != null) {
+            LazyBody.materialize(declaration);
+        }
+        if (declaration.generator) {
+            return new Generator(compiler, declaration, environment);
         }
 
+        var limits = compiler.limits;
+        if (limits != null) {
+            compiler.tick(declaration.name);
+            limits.allocate(Limits.FRAME_BYTES);
+        }
+        Object value;
         try {
-            compiler.executeBlock(declaration.body, environment);
+            value = compiler.executeBody(declaration, environment);
         } catch (Return returnValue) {
-            if (isInitializer) {
-                return closure.getAt(0, "this");
+            value = returnValue.value;
+        } finally {
+            if (limits != null) {
+                limits.release(Limits.FRAME_BYTES);
             }
-            return returnValue.value;
         }
 
         if (isInitializer) {
-            return closure.getAt(0, "this");
+            return closure.getAt(0, Symbol.THIS);
         }
-        return null;
+        return value;
+    }
+
+    void share() {
+        closure.share();
     }
 
     public EigenFunction bind(EigenInstance eigenInstance) {
         Environment environment = new Environment(closure);
-        environment.define("this", eigenInstance);
+        environment.define(Symbol.THIS, eigenInstance);
         return new EigenFunction(declaration, environment, isInitializer);
     }
 
@@ -1,12 +1,12 @@
 package eigen;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Serializable;
 
-public class EigenInstance {
+public class EigenInstance implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     private EigenClass eigenClass;
-    private final Map<String,Object> fields = new HashMap<>();
+    private final SymbolMap fields = new SymbolMap();
     public EigenInstance(EigenClass eigenClass) {
         this.eigenClass=eigenClass;
     }
@@ -16,19 +16,24 @@ public class EigenInstance {
         return eigenClass.lexeme + "instance";
     }
 
-    Object get(Token name){
-        if(fields.containsKey(name.lexeme)){
-            return fields.get(name.lexeme);
+    // Synchronized because instances can be reached from spawned tasks.
+    synchronized Object get(Token name){
+        var symbol = name.symbol();
+        // The map itself stands for a missing field, as fields may be null.
+        var field = fields.get(symbol, fields);
+        if(field != fields){
+            return field;
         }
 
-        var method =eigenClass.findMethod(name.lexeme);
+        var method =eigenClass.findMethod(symbol);
         if(method!=null){
             return method.bind(this);
         }
         throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
     }
 
-    void set(Token name,Object value){
-        fields.put(name.lexeme,value);
+    // Returns whether this added a new field.
+    synchronized boolean set(Token name,Object value){
+        return fields.put(name.symbol(),value);
     }
 }
@@ -0,0 +1,58 @@
+package eigen;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The list values produced and consumed by natives such as parallelMap.
+// Lists are handed between tasks, so the elements are a synchronized list;
+// lists only grow, so reading by index below a size once seen is safe.
+class EigenList implements Serializable {
+    private static final long serialVersionUID = 1L;
+    final List<Object> elements;
+
+    EigenList(List<Object> elements) {
+        this.elements = Collections.synchronizedList(elements);
+    }
+
+    static void define(Environment builtins) {
+        NativeFunction.define0(builtins, "list", compiler -> {
+            if (compiler.limits != null) {
+                compiler.limits.allocate(Limits.INSTANCE_BYTES);
+            }
+            return new EigenList(new ArrayList<>());
+        });
+        NativeFunction.define2(builtins, "append", (compiler, value, element) -> {
+            var list = NativeFunction.expect(value, EigenList.class, "Can only append to a list.");
+            if (compiler.limits != null) {
+                compiler.limits.allocate(Limits.ELEMENT_BYTES);
+            }
+            list.elements.add(element);
+            return list;
+        });
+        NativeFunction.define2(builtins, "at", (compiler, value, position) -> {
+            var list = NativeFunction.expect(value, EigenList.class, "Can only index a list.");
+            var index = NativeFunction.expectCount(position, "List index must be a non-negative integer.");
+            if (index >= list.elements.size()) {
+                throw new NativeError("List index out of range.");
+            }
+            return list.elements.get(index);
+        });
+        NativeFunction.define1(builtins, "size", (compiler, list) -> {
+            return (long) NativeFunction.expect(list, EigenList.class, "Can only size a list.").elements.size();
+        });
+    }
+
+    @Override
+    public String toString() {
+        var text = new StringBuilder("[");
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(Compiler.stringify(elements.get(i)));
+        }
+        return text.append("]").toString();
+    }
+}
@@ -0,0 +1,28 @@
+package eigen;
+
+import java.io.Serializable;
+
+// The namespace an import statement binds: the globals left behind by running
+// the module's top-level code.
+class EigenModule implements Serializable {
+    private static final long serialVersionUID = 1L;
+    final String name;
+    final Globals globals;
+
+    EigenModule(String name, Globals globals) {
+        this.name = name;
+        this.globals = globals;
+    }
+
+    Object get(Token name) {
+        if (globals.contains(name.symbol())) {
+            return globals.get(name);
+        }
+        throw new RuntimeError(name, "Module '" + this.name + "' has no member '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return "<module " + name + ">";
+    }
+}
@@ -0,0 +1,17 @@
+package eigen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static method as a native for NativeBinder. The native takes the
+ * method's name unless one is given. A leading Compiler parameter receives
+ * the calling compiler and does not count towards the arity.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface EigenNative {
+    String value() default "";
+}
@@ -0,0 +1,127 @@
+package eigen;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.script.ScriptException;
+
+/**
+ * A script that has been lexed, parsed and resolved once and can then be run
+ * any number of times. Every run gets its own globals, so runs never see each
+ * other's state unless the caller passes the same bindings map.
+ */
+public final class EigenScript implements Serializable {
+    private static final long serialVersionUID = 1L;
+    final List<Stmt> statements;
+    final List<Stmt.Import> imports;
+    // Where relative import paths are resolved from. Not kept in heap
+    // snapshots, which only hold scripts whose imports are already linked.
+    final transient Path directory;
+
+    private EigenScript(List<Stmt> statements, List<Stmt.Import> imports, Path directory) {
+        this.statements = statements;
+        this.imports = imports;
+        this.directory = directory;
+    }
+
+    // Imports are resolved against the working directory.
+    public static EigenScript compile(String source) throws ScriptException {
+        var script = compileUnit(source, Paths.get(""));
+        ModuleLoader.link(script.imports, script.directory);
+        return script;
+    }
+
+    // Runs the front end over one source without loading what it imports.
+    static EigenScript compileUnit(String source, Path directory) throws ScriptException {
+        List<Stmt> statements = new ArrayList<>();
+        List<Stmt.Import> imports = new ArrayList<>();
+        var errors = Eigen.collectErrors(() -> {
+            var parser = new Parser(new Lexer(source).scanTokens());
+            statements.addAll(parser.parse());
+            imports.addAll(parser.imports);
+        });
+        if (errors.isEmpty()) {
+            errors = Eigen.collectErrors(() -> new Resolver().resolve(statements));
+        }
+        if (!errors.isEmpty()) {
+            throw new ScriptException(String.join("\n", errors));
+        }
+        Typer.infer(statements);
+        return new EigenScript(statements, imports, directory);
+    }
+
+    // Runs against fresh globals and returns the value of the last top-level
+    // expression statement.
+    public Object run() throws ScriptException {
+        return run(new Compiler());
+    }
+
+    // Runs with the given host values defined as globals. The map is updated
+    // with the globals the script leaves behind.
+    public Object run(Map<String, Object> bindings) throws ScriptException {
+        return run(bindings, null);
+    }
+
+    // As run(bindings), with the run held to the given limits.
+    public Object run(Map<String, Object> bindings, Limits limits) throws ScriptException {
+        return run(bindings, limits, null);
+    }
+
+    // As run(bindings, limits), with the probes attached to instruments
+    // watching the run. Either may be null.
+    public Object run(Map<String, Object> bindings, Limits limits, Instruments instruments)
+            throws ScriptException {
+        var compiler = instruments == null ? new Compiler() : new InstrumentedCompiler(instruments);
+        compiler.limits = limits;
+        bind(compiler, bindings);
+        try {
+            return run(compiler);
+        } finally {
+            unbind(compiler, bindings);
+        }
+    }
+
+    Object run(Compiler compiler) throws ScriptException {
+        try {
+            return toHost(compiler.interpret(statements));
+        } catch (RuntimeError error) {
+            throw new ScriptException(error.getMessage(), null, error.token.line);
+        }
+    }
+
+    static void bind(Compiler compiler, Map<String, ?> bindings) {
+        for (var binding : bindings.entrySet()) {
+            compiler.globals.define(binding.getKey(), toEigen(binding.getValue()));
+        }
+    }
+
+    static void unbind(Compiler compiler, Map<String, Object> bindings) {
+        for (var global : compiler.globals.values().entrySet()) {
+            bindings.put(global.getKey(), toHost(global.getValue()));
+        }
+    }
+
+    // String views stay inside Eigen; the host gets their characters.
+    static Object toHost(Object value) {
+        return value instanceof StringView ? value.toString() : value;
+    }
+
+    // Eigen numbers are Longs and Doubles, so other host numbers are widened
+    // on the way in.
+    static Object toEigen(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number && !(value instanceof Long) && !(value instanceof Double)) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Character) {
+            return value.toString();
+        }
+        return value;
+    }
+}
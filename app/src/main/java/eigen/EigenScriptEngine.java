@@ -0,0 +1,97 @@
+package eigen;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+public class EigenScriptEngine extends AbstractScriptEngine implements Compilable {
+    private final EigenScriptEngineFactory factory;
+
+    EigenScriptEngine(EigenScriptEngineFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return compile(script).eval(context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(read(reader), context);
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        return new EigenCompiledScript(this, EigenScript.compile(script));
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(read(script));
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    private static String read(Reader reader) throws ScriptException {
+        var text = new StringWriter();
+        try {
+            reader.transferTo(text);
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return text.toString();
+    }
+
+    private static class EigenCompiledScript extends CompiledScript {
+        private final ScriptEngine engine;
+        private final EigenScript script;
+
+        EigenCompiledScript(ScriptEngine engine, EigenScript script) {
+            this.engine = engine;
+            this.script = script;
+        }
+
+        // Global-scope bindings are seen first so engine-scope ones win, and
+        // the script's globals are written back to the engine scope.
+        @Override
+        public Object eval(ScriptContext context) throws ScriptException {
+            var compiler = new Compiler();
+            compiler.setOutput(context.getWriter());
+            var global = context.getBindings(ScriptContext.GLOBAL_SCOPE);
+            if (global != null) {
+                EigenScript.bind(compiler, global);
+            }
+            var engineScope = context.getBindings(ScriptContext.ENGINE_SCOPE);
+            EigenScript.bind(compiler, engineScope);
+            try {
+                return script.run(compiler);
+            } finally {
+                EigenScript.unbind(compiler, engineScope);
+            }
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return engine;
+        }
+    }
+}
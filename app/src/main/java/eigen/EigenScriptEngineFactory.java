@@ -0,0 +1,90 @@
+package eigen;
+
+import java.util.List;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+public class EigenScriptEngineFactory implements ScriptEngineFactory {
+
+    @Override
+    public String getEngineName() {
+        return "Eigen";
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return List.of("eigen");
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return List.of("application/x-eigen");
+    }
+
+    @Override
+    public List<String> getNames() {
+        return List.of("eigen", "Eigen");
+    }
+
+    @Override
+    public String getLanguageName() {
+        return "Eigen";
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public Object getParameter(String key) {
+        switch (key) {
+        case ScriptEngine.ENGINE:
+            return getEngineName();
+        case ScriptEngine.ENGINE_VERSION:
+            return getEngineVersion();
+        case ScriptEngine.NAME:
+            return getNames().get(0);
+        case ScriptEngine.LANGUAGE:
+            return getLanguageName();
+        case ScriptEngine.LANGUAGE_VERSION:
+            return getLanguageVersion();
+        case "THREADING":
+            // Every eval runs on its own Compiler; compiled scripts are shared
+            // read-only.
+            return "MULTITHREADED";
+        default:
+            return null;
+        }
+    }
+
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        return obj + "." + m + "(" + String.join(",", args) + ")";
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        return "print \"" + toDisplay + "\";";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        var program = new StringBuilder();
+        for (var statement : statements) {
+            program.append(statement).append(";\n");
+        }
+        return program.toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new EigenScriptEngine(this);
+    }
+}
@@ -1,9 +1,11 @@
 package eigen;
 
-import java.util.HashMap;
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.Map;
 
-public class Environment {
+public class Environment implements Serializable {
+    private static final long serialVersionUID = 1L;
     final Environment enclosing;
 
     Environment() {
@@ -14,40 +16,89 @@ public class Environment {
         this.enclosing = enclosing;
     }
 
-    private final Map<String, Object> values = new HashMap<>();
+    // The globals at the root of this chain, which the code of functions
+    // closing over it looks global names up in.
+    Globals globals() {
+        var environment = this;
+        while (!(environment instanceof Globals)) {
+            environment = environment.enclosing;
+        }
+        return (Globals) environment;
+    }
+
+    // Stands for an undefined name in lookups, where null is a value.
+    static final Object UNDEFINED = new Object();
+
+    private SymbolMap values = new SymbolMap();
+    private boolean shared = false;
 
     Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
-        }
-        if (enclosing != null) {
-            return enclosing.get(name);
+        var symbol = name.symbol();
+        for (var environment = this; environment != null; environment = environment.enclosing) {
+            var value = environment.lookup(symbol);
+            if (value != UNDEFINED) {
+                return value;
+            }
         }
-
         throw new RuntimeError(name, "Undefined variable '" + name.lexeme + "'.");
     }
 
+    // The value of symbol at this level only, or UNDEFINED.
+    Object lookup(int symbol) {
+        return values.get(symbol, UNDEFINED);
+    }
+
+    boolean contains(String name) {
+        return contains(Symbol.intern(name));
+    }
+
+    boolean contains(int symbol) {
+        return values.contains(symbol);
+    }
+
     void define(String name, Object value) {
-        values.put(name, value);
+        define(Symbol.intern(name), value);
     }
 
-    void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
-            return;
+    void define(int symbol, Object value) {
+        values.put(symbol, value);
+    }
+
+    // Defines a native, which must not take a name another builtin has.
+    void defineBuiltin(String name, Object value) {
+        var symbol = Symbol.intern(name);
+        if (contains(symbol)) {
+            throw new IllegalStateException("Builtin '" + name + "' is already defined.");
         }
-        if (enclosing != null) {
-            enclosing.assign(name, value);
-            return;
+        define(symbol, value);
+    }
+
+    // Whether a global of this name hides the builtin, for intrinsic calls
+    // made against these globals. Only Globals can.
+    boolean shadows(Intrinsic intrinsic) {
+        return false;
+    }
+
+    void assign(Token name, Object value) {
+        var symbol = name.symbol();
+        for (var environment = this; environment != null; environment = environment.enclosing) {
+            if (environment.update(symbol, value)) {
+                return;
+            }
         }
         throw new RuntimeError(name, "Undefined variable '" + name.lexeme + "'.");
     }
 
-    public Object getAt(Integer distance, String lexeme) {
-        return ancestor(distance).values.get(lexeme);
+    // Sets symbol at this level if it is defined here; returns whether it was.
+    boolean update(int symbol, Object value) {
+        return values.replace(symbol, value);
+    }
+
+    public Object getAt(int distance, int symbol) {
+        return ancestor(distance).values.get(symbol);
     }
 
-    private Environment ancestor(Integer distance) {
+    private Environment ancestor(int distance) {
         Environment environment = this;
         for (int i = 0; i < distance; i++) {
             environment = environment.enclosing;
@@ -55,7 +106,28 @@ public class Environment {
         return environment;
     }
 
-    public void assignAt(Integer distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+    // Makes this environment and everything it encloses safe to use from
+    // several threads. Only done for environments a spawned task can reach.
+    void share() {
+        for (var environment = this; environment != null && !environment.shared; environment = environment.enclosing) {
+            environment.synchronize();
+            environment.shared = true;
+        }
+    }
+
+    void synchronize() {
+        values = values.synchronize();
+    }
+
+    boolean isShared() {
+        return shared;
+    }
+
+    Map<String, Object> values() {
+        return Collections.unmodifiableMap(values.toMap());
+    }
+
+    public void assignAt(int distance, Token name, Object value) {
+        ancestor(distance).values.put(name.symbol(), value);
     }
 }
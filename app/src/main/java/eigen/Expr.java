@@ -1,8 +1,10 @@
 package eigen;
 
+import java.io.Serializable;
 import java.util.List;
 
-abstract class Expr {
+abstract class Expr implements Serializable {
+    private static final long serialVersionUID = 1L;
     interface Visitor<R> {
         R visitAssignExpr(Assign expr);
         R visitBinaryExpr(Binary expr);
@@ -18,8 +20,12 @@ abstract class Expr {
         R visitVariableExpr(Variable expr);
     }
     static class Assign extends Expr{
+        private static final long serialVersionUID = 1L;
         final Token name;
         final Expr value;
+        int depth = -1;
+        transient Globals.Cell cell;
+        Typer.Type type;
         Assign(Token name,Expr value) {
         this.name=name;
         this.value=value;
@@ -30,9 +36,15 @@ abstract class Expr {
     }
   }
     static class Binary extends Expr{
+        private static final long serialVersionUID = 1L;
         final Expr left;
         final Token operator;
         final Expr right;
+        Typer.Type type;
+        Typer.Type operands;
+        Typer.Type speculated;
+        transient int seen;
+        transient int samples;
         Binary(Expr left,Token operator,Expr right) {
         this.left=left;
         this.operator=operator;
@@ -44,9 +56,12 @@ abstract class Expr {
     }
   }
     static class Call extends Expr{
+        private static final long serialVersionUID = 1L;
         final Expr callee;
         final Token paren;
         final List<Expr> arguments;
+        Intrinsic intrinsic;
+        transient Globals.Constant constant;
         Call(Expr callee,Token paren,List<Expr> arguments) {
         this.callee=callee;
         this.paren=paren;
@@ -58,6 +73,7 @@ abstract class Expr {
     }
   }
     static class Get extends Expr{
+        private static final long serialVersionUID = 1L;
         final Expr object;
         final Token name;
         Get(Expr object,Token name) {
@@ -70,8 +86,10 @@ abstract class Expr {
     }
   }
     static class Super extends Expr{
+        private static final long serialVersionUID = 1L;
         final Token keyword;
         final Token method;
+        int depth = -1;
         Super(Token keyword,Token method) {
         this.keyword=keyword;
         this.method=method;
@@ -82,6 +100,7 @@ abstract class Expr {
     }
   }
     static class Set extends Expr{
+        private static final long serialVersionUID = 1L;
         final Expr object;
         final Token name;
         final Expr value;
@@ -96,7 +115,9 @@ abstract class Expr {
     }
   }
     static class This extends Expr{
+        private static final long serialVersionUID = 1L;
         final Token keyword;
+        int depth = -1;
         This(Token keyword) {
         this.keyword=keyword;
     }
@@ -106,6 +127,7 @@ abstract class Expr {
     }
   }
     static class Grouping extends Expr{
+        private static final long serialVersionUID = 1L;
         final Expr expression;
         Grouping(Expr expression) {
         this.expression=expression;
@@ -116,9 +138,11 @@ abstract class Expr {
     }
   }
     static class Logical extends Expr{
+        private static final long serialVersionUID = 1L;
         final Expr left;
         final Token operator;
         final Expr right;
+        Typer.Type type;
         Logical(Expr left,Token operator,Expr right) {
         this.left=left;
         this.operator=operator;
@@ -130,6 +154,7 @@ abstract class Expr {
     }
   }
     static class Literal extends Expr{
+        private static final long serialVersionUID = 1L;
         final Object value;
         Literal(Object value) {
         this.value=value;
@@ -140,8 +165,10 @@ abstract class Expr {
     }
   }
     static class Unary extends Expr{
+        private static final long serialVersionUID = 1L;
         final Token operator;
         final Expr right;
+        Typer.Type type;
         Unary(Token operator,Expr right) {
         this.operator=operator;
         this.right=right;
@@ -152,7 +179,11 @@ abstract class Expr {
     }
   }
     static class Variable extends Expr{
+        private static final long serialVersionUID = 1L;
         final Token name;
+        int depth = -1;
+        transient Globals.Cell cell;
+        Typer.Type type;
         Variable(Token name) {
         this.name=name;
     }
@@ -0,0 +1,284 @@
+package eigen;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The file natives. Readers map the file a window at a time with
+ * FileChannel.map and decode only the line or chunk asked for, so a script
+ * can stream an input of any size in constant heap:
+ *
+ *   var lines = openLines("big.log");
+ *   for (var line = nextLine(lines); line != null; line = nextLine(lines)) { ... }
+ *   close(lines);
+ *
+ * Files are UTF-8. Lines end at \n, with a preceding \r dropped; chunks hold
+ * up to the given number of bytes and never split a character. Writers are
+ * buffered and must be closed to be flushed.
+ *
+ * Only the command line installs these. An embedder that trusts its scripts
+ * with the filesystem passes NativeBinder.natives(FileNatives.class) in the
+ * bindings of EigenScript.run or of a javax.script engine.
+ */
+public final class FileNatives {
+    // How much of a file a reader maps at once.
+    private static final int WINDOW = 64 << 20;
+
+    private FileNatives() {
+    }
+
+    @EigenNative
+    static LineReader openLines(CharSequence path) {
+        return new LineReader(path.toString(), open(path.toString()));
+    }
+
+    @EigenNative
+    static Object nextLine(LineReader reader) {
+        return reader.next();
+    }
+
+    @EigenNative
+    static ChunkReader openChunks(CharSequence path, int size) {
+        if (size < 4) {
+            throw new NativeError("Chunk size must be at least 4 bytes.");
+        }
+        return new ChunkReader(path.toString(), open(path.toString()), size);
+    }
+
+    @EigenNative
+    static Object nextChunk(ChunkReader reader) {
+        return reader.next();
+    }
+
+    @EigenNative
+    static Writer openWriter(CharSequence path) {
+        try {
+            return new Writer(path.toString(), Files.newBufferedWriter(Paths.get(path.toString()), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw failure("open", path.toString(), e);
+        }
+    }
+
+    @EigenNative
+    static void write(Writer writer, Object value) {
+        writer.write(value, false);
+    }
+
+    @EigenNative
+    static void writeLine(Writer writer, Object value) {
+        writer.write(value, true);
+    }
+
+    // Closes a reader or a writer. Closing twice does nothing.
+    @EigenNative
+    static void close(Object handle) {
+        if (handle instanceof MappedFile) {
+            ((MappedFile) handle).close();
+        } else if (handle instanceof Writer) {
+            ((Writer) handle).close();
+        } else {
+            throw new NativeError("Can only close files.");
+        }
+    }
+
+    private static FileChannel open(String path) {
+        try {
+            return FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw failure("open", path, e);
+        }
+    }
+
+    private static NativeError failure(String action, String path, IOException e) {
+        var reason = e instanceof NoSuchFileException ? "no such file" : e.getMessage();
+        return new NativeError("Could not " + action + " '" + path + "': " + reason + ".");
+    }
+
+    // A read position in a file, with the mapped window around it.
+    private abstract static class MappedFile {
+        final String path;
+        private FileChannel channel;
+        final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        long position;
+        private byte[] scratch = new byte[256];
+
+        MappedFile(String path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+            try {
+                this.size = channel.size();
+            } catch (IOException e) {
+                close();
+                throw failure("open", path, e);
+            }
+        }
+
+        boolean atEnd() {
+            if (channel == null) {
+                throw new NativeError("File '" + path + "' is closed.");
+            }
+            return position >= size;
+        }
+
+        // The byte at offset, which must be below size, mapping the window
+        // that holds it if need be.
+        byte byteAt(long offset) {
+            if (window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+                map(offset, WINDOW);
+            }
+            return window.get((int) (offset - windowStart));
+        }
+
+        // Decodes the bytes from position up to end and moves past skip more.
+        String take(long end, int skip) {
+            var length = (int) (end - position);
+            if (window == null || position < windowStart || end > windowStart + window.limit()) {
+                map(position, Math.max(WINDOW, length));
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get((int) (position - windowStart), scratch, 0, length);
+            position = end + skip;
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void map(long offset, int length) {
+            try {
+                windowStart = offset;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(length, size - offset));
+            } catch (IOException e) {
+                throw failure("read", path, e);
+            }
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw failure("close", path, e);
+                } finally {
+                    channel = null;
+                    window = null;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "<file " + path + ">";
+        }
+    }
+
+    static final class LineReader extends MappedFile {
+        LineReader(String path, FileChannel channel) {
+            super(path, channel);
+        }
+
+        // The next line, or null at the end of the file.
+        Object next() {
+            if (atEnd()) {
+                return null;
+            }
+            var end = position;
+            while (end < size && byteAt(end) != '\n') {
+                end++;
+            }
+            var skip = end < size ? 1 : 0;
+            if (end > position && byteAt(end - 1) == '\r') {
+                return take(end - 1, skip + 1);
+            }
+            return take(end, skip);
+        }
+    }
+
+    static final class ChunkReader extends MappedFile {
+        private final int chunkSize;
+
+        ChunkReader(String path, FileChannel channel, int chunkSize) {
+            super(path, channel);
+            this.chunkSize = chunkSize;
+        }
+
+        // The next chunk, or null at the end of the file. A chunk that would
+        // end inside a character ends before it instead; bytes that are not
+        // UTF-8 are cut at the chunk size, so every chunk moves forward.
+        Object next() {
+            if (atEnd()) {
+                return null;
+            }
+            var end = Math.min(size, position + chunkSize);
+            if (end < size) {
+                // A character is at most 4 bytes, so its first byte is at
+                // most 3 back.
+                var start = end;
+                for (int i = 0; i < 3 && isContinuation(byteAt(start)); i++) {
+                    start--;
+                }
+                if (start > position && !isContinuation(byteAt(start))) {
+                    end = start;
+                }
+            }
+            return take(end, 0);
+        }
+
+        private static boolean isContinuation(byte b) {
+            return (b & 0xC0) == 0x80;
+        }
+    }
+
+    static final class Writer {
+        private final String path;
+        private BufferedWriter out;
+
+        Writer(String path, BufferedWriter out) {
+            this.path = path;
+            this.out = out;
+        }
+
+        void write(Object value, boolean newline) {
+            if (out == null) {
+                throw new NativeError("File '" + path + "' is closed.");
+            }
+            try {
+                if (value instanceof CharSequence) {
+                    out.append((CharSequence) value);
+                } else {
+                    out.write(Compiler.stringify(value));
+                }
+                if (newline) {
+                    out.newLine();
+                }
+            } catch (IOException e) {
+                throw failure("write", path, e);
+            }
+        }
+
+        void close() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    throw failure("close", path, e);
+                } finally {
+                    out = null;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "<file " + path + ">";
+        }
+    }
+}
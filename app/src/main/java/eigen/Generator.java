@@ -0,0 +1,88 @@
+package eigen;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * What calling a function that yields returns. Nothing of the body runs until
+ * the first hasNext or next; each then runs it on the generator's own
+ * StackCompiler up to its next yield and leaves the frame suspended there, so
+ * a generator costs a few small arrays rather than a thread, and a pipeline of
+ * them holds one value at a time:
+ *
+ *   function range(n) { for (var i = 0; i < n; i = i + 1) yield i; }
+ *   var numbers = range(1000000);
+ *   while (hasNext(numbers)) print next(numbers);
+ *
+ * A generator ends when its body returns or runs off its end. Hosts can walk
+ * one as an Iterator.
+ */
+final class Generator implements Iterator<Object> {
+    private final Token name;
+    private StackCompiler machine;
+    private Object next;
+    // Whether next holds a value yielded but not yet taken.
+    private boolean ready;
+    private boolean running;
+
+    Generator(Compiler compiler, Stmt.Function declaration, Environment environment) {
+        if (compiler.limits != null) {
+            compiler.limits.allocate(Limits.INSTANCE_BYTES);
+        }
+        this.name = declaration.name;
+        this.machine = new StackCompiler(compiler, declaration, environment);
+    }
+
+    static void define(Environment builtins) {
+        NativeFunction.define1(builtins, "hasNext", (compiler, value) -> generator(value).hasNext());
+        NativeFunction.define1(builtins, "next", (compiler, value) -> {
+            var generator = generator(value);
+            if (!generator.hasNext()) {
+                throw new NativeError("Generator " + generator.name.lexeme + " has finished.");
+            }
+            return generator.next();
+        });
+    }
+
+    private static Generator generator(Object value) {
+        return NativeFunction.expect(value, Generator.class, "Can only iterate a generator.");
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready && machine != null) {
+            if (running) {
+                throw new NativeError("Generator " + name.lexeme + " is already running.");
+            }
+            running = true;
+            try {
+                next = machine.resume();
+                ready = machine.suspended();
+            } finally {
+                running = false;
+                if (!ready) {
+                    // Finished or failed; let the frames go.
+                    machine = null;
+                    next = null;
+                }
+            }
+        }
+        return ready;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var value = next;
+        next = null;
+        ready = false;
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "<generator " + name.lexeme + ">";
+    }
+}
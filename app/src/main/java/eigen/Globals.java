@@ -0,0 +1,221 @@
+package eigen;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A program's (or module's) top-level variables. Each name has a Cell, made
+ * the first time the name is defined or referred to, and a global Variable or
+ * Assign node keeps the cell it last used, so after its first run a global
+ * reference is a field read. Nodes are shared by every run of a script, so
+ * the cell is only used when it belongs to the globals running now.
+ *
+ * A cell is constant until a global that already has a value is given
+ * another. Call sites whose callee is a constant global cache it, checked
+ * against the call, in an Expr.Call annotation and call it directly until the
+ * global changes.
+ */
+final class Globals extends Environment {
+    private static final long serialVersionUID = 1L;
+
+    static final class Cell {
+        final Globals owner;
+        // UNDEFINED until the global is defined; reads then fall through to
+        // the builtins.
+        volatile Object value = UNDEFINED;
+        // False once the global has had a second value.
+        volatile boolean constant = true;
+
+        Cell(Globals owner) {
+            this.owner = owner;
+        }
+
+        void define(Object value) {
+            if (this.value != UNDEFINED) {
+                constant = false;
+            }
+            this.value = value;
+        }
+    }
+
+    // A call site's speculation that a constant global is its callee.
+    static final class Constant {
+        final Cell cell;
+        final EigenCallable callee;
+
+        Constant(Cell cell, EigenCallable callee) {
+            this.cell = cell;
+            this.callee = callee;
+        }
+    }
+
+    private transient SymbolMap cells = new SymbolMap();
+    // Set once a global takes the name of an intrinsic, so intrinsic calls
+    // can skip looking their name up until then.
+    private transient boolean shadowsIntrinsic = false;
+
+    Globals(Environment builtins) {
+        super(builtins);
+    }
+
+    Cell cell(int symbol) {
+        var cell = (Cell) cells.get(symbol);
+        if (cell == null) {
+            synchronized (this) {
+                cell = (Cell) cells.get(symbol);
+                if (cell == null) {
+                    cell = new Cell(this);
+                    cells.put(symbol, cell);
+                }
+            }
+        }
+        return cell;
+    }
+
+    private Cell cell(Expr.Variable expr) {
+        var cell = expr.cell;
+        if (cell == null || cell.owner != this) {
+            cell = cell(expr.name.symbol());
+            expr.cell = cell;
+        }
+        return cell;
+    }
+
+    Object get(Expr.Variable expr) {
+        var value = cell(expr).value;
+        if (value != UNDEFINED) {
+            return value;
+        }
+        return enclosing.get(expr.name);
+    }
+
+    void assign(Expr.Assign expr, Object value) {
+        var cell = expr.cell;
+        if (cell == null || cell.owner != this) {
+            cell = cell(expr.name.symbol());
+            expr.cell = cell;
+        }
+        if (cell.value == UNDEFINED) {
+            enclosing.assign(expr.name, value);
+            return;
+        }
+        if (isShared()) {
+            Concurrency.share(value);
+        }
+        cell.constant = false;
+        cell.value = value;
+    }
+
+    // The callee a call site has cached, if the global it came from still
+    // holds it, or null.
+    EigenCallable constantCallee(Expr.Call expr) {
+        var constant = expr.constant;
+        if (constant != null && constant.cell.owner == this && constant.cell.constant) {
+            return constant.callee;
+        }
+        return null;
+    }
+
+    // Caches callee, which has passed the call's checks, at the call site if
+    // it is the value of a constant global.
+    void speculate(Expr.Call expr, EigenCallable callee) {
+        if (expr.callee instanceof Expr.Variable) {
+            var variable = (Expr.Variable) expr.callee;
+            var cell = variable.cell;
+            if (variable.depth < 0 && cell != null && cell.owner == this && cell.constant && cell.value == callee) {
+                expr.constant = new Constant(cell, callee);
+            }
+        }
+    }
+
+    @Override
+    Object lookup(int symbol) {
+        var cell = (Cell) cells.get(symbol);
+        return cell == null ? UNDEFINED : cell.value;
+    }
+
+    @Override
+    boolean contains(int symbol) {
+        return lookup(symbol) != UNDEFINED;
+    }
+
+    @Override
+    void define(int symbol, Object value) {
+        if (isShared()) {
+            Concurrency.share(value);
+        }
+        cell(symbol).define(value);
+        if (Intrinsic.isIntrinsic(Symbol.name(symbol))) {
+            shadowsIntrinsic = true;
+        }
+    }
+
+    @Override
+    boolean shadows(Intrinsic intrinsic) {
+        return shadowsIntrinsic && contains(intrinsic.symbol);
+    }
+
+    @Override
+    boolean update(int symbol, Object value) {
+        var cell = (Cell) cells.get(symbol);
+        if (cell == null || cell.value == UNDEFINED) {
+            return false;
+        }
+        if (isShared()) {
+            Concurrency.share(value);
+        }
+        cell.constant = false;
+        cell.value = value;
+        return true;
+    }
+
+    @Override
+    public Object getAt(int distance, int symbol) {
+        if (distance == 0) {
+            var value = lookup(symbol);
+            return value == UNDEFINED ? null : value;
+        }
+        return super.getAt(distance, symbol);
+    }
+
+    @Override
+    void synchronize() {
+        cells = cells.synchronize();
+    }
+
+    @Override
+    Map<String, Object> values() {
+        return Collections.unmodifiableMap(definedValues());
+    }
+
+    private Map<String, Object> definedValues() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (var entry : cells.toMap().entrySet()) {
+            var value = ((Cell) entry.getValue()).value;
+            if (value != UNDEFINED) {
+                values.put(entry.getKey(), value);
+            }
+        }
+        return values;
+    }
+
+    // Cells are bound to this run, so only the values are written.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new LinkedHashMap<>(definedValues()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        cells = new SymbolMap();
+        for (var entry : ((Map<String, Object>) in.readObject()).entrySet()) {
+            define(entry.getKey(), entry.getValue());
+        }
+    }
+}
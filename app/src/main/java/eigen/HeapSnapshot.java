@@ -0,0 +1,136 @@
+package eigen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Saves the globals a prelude leaves behind (classes, functions with their
+ * closures, instances, lists) so later runs can start from them instead of
+ * running the prelude again. Natives and the globals and builtins
+ * environments themselves are written as references and bound to the
+ * loading compiler's own on the way back in.
+ */
+class HeapSnapshot {
+    private static final String MAGIC = "eigen-snapshot-2";
+
+    private enum Root {
+        GLOBALS, BUILTINS
+    }
+
+    private static class NativeRef implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String name;
+
+        NativeRef(String name) {
+            this.name = name;
+        }
+    }
+
+    // Globals are written one at a time, so one holding something that can't
+    // be saved (a channel, a task, an open file) is named in the error. The
+    // snapshot goes to a temporary file moved into place once complete, so a
+    // failed write leaves no partial snapshot behind.
+    static void write(Compiler compiler, Path path) throws IOException {
+        var target = path.toAbsolutePath();
+        var temporary = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            try (var out = new SnapshotOutput(compiler, new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeUTF(MAGIC);
+                var values = new HashMap<>(compiler.globals.values());
+                out.writeInt(values.size());
+                for (var global : values.entrySet()) {
+                    out.writeUTF(global.getKey());
+                    try {
+                        out.writeObject(global.getValue());
+                    } catch (NotSerializableException e) {
+                        throw new IOException("Can't snapshot global '" + global.getKey() + "': it holds a "
+                                + e.getMessage() + ", which can't be saved.");
+                    }
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static void read(Compiler compiler, Path path) throws IOException {
+        try (var in = new SnapshotInput(compiler, new BufferedInputStream(Files.newInputStream(path)))) {
+            if (!MAGIC.equals(in.readUTF())) {
+                throw new IOException("Not an Eigen snapshot: " + path);
+            }
+            Map<String, Object> values = new HashMap<>();
+            for (int count = in.readInt(); count > 0; count--) {
+                var name = in.readUTF();
+                values.put(name, in.readObject());
+            }
+            values.forEach(compiler.globals::define);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Snapshot was written by a different build: " + e.getMessage());
+        }
+    }
+
+    private static class SnapshotOutput extends ObjectOutputStream {
+        private final Compiler compiler;
+
+        SnapshotOutput(Compiler compiler, OutputStream out) throws IOException {
+            super(out);
+            this.compiler = compiler;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj == compiler.globals) {
+                return Root.GLOBALS;
+            }
+            if (obj == compiler.builtins) {
+                return Root.BUILTINS;
+            }
+            if (obj instanceof NativeFunction) {
+                return new NativeRef(((NativeFunction) obj).name);
+            }
+            return obj;
+        }
+    }
+
+    private static class SnapshotInput extends ObjectInputStream {
+        private final Compiler compiler;
+
+        SnapshotInput(Compiler compiler, InputStream in) throws IOException {
+            super(in);
+            this.compiler = compiler;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj == Root.GLOBALS) {
+                return compiler.globals;
+            }
+            if (obj == Root.BUILTINS) {
+                return compiler.builtins;
+            }
+            if (obj instanceof NativeRef) {
+                var name = ((NativeRef) obj).name;
+                if (!compiler.builtins.contains(name)) {
+                    throw new IOException("Snapshot refers to unknown native '" + name + "'.");
+                }
+                return compiler.builtins.getAt(0, Symbol.intern(name));
+            }
+            return obj;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package eigen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eigen.Expr.Get;
+import eigen.Expr.Set;
+
+/**
+ * The visitor with the probes of an Instruments run around it. Each override
+ * does what Compiler does and reports it, so a run only pays for probes when
+ * it is given Instruments and is then on this class instead of Compiler.
+ */
+final class InstrumentedCompiler extends Compiler {
+    private final Instruments instruments;
+    // The compiler the run started on, which its forks report errors through.
+    private final InstrumentedCompiler root;
+    // The error last reported, so one passing through several frames is only
+    // reported by the innermost.
+    private volatile RuntimeError reported;
+    // The Eigen function running on this thread, or null at the top level.
+    private Stmt.Function function;
+
+    InstrumentedCompiler(Instruments instruments) {
+        super(false, false);
+        this.instruments = instruments;
+        root = this;
+    }
+
+    private InstrumentedCompiler(InstrumentedCompiler parent) {
+        super(parent);
+        instruments = parent.instruments;
+        root = parent.root;
+        function = parent.function;
+    }
+
+    @Override
+    Compiler fork() {
+        return new InstrumentedCompiler(this);
+    }
+
+    @Override
+    Object interpret(List<Stmt> statements) {
+        try {
+            Object result = null;
+            for (var statement : statements) {
+                if (statement instanceof Stmt.Expression) {
+                    statement(statement);
+                    result = evaluate(((Stmt.Expression) statement).expression);
+                } else {
+                    execute(statement);
+                }
+            }
+            return result;
+        } catch (RuntimeError error) {
+            error(error);
+            throw error;
+        } finally {
+            settle();
+        }
+    }
+
+    @Override
+    void execute(Stmt stmt) {
+        statement(stmt);
+        super.execute(stmt);
+    }
+
+    @Override
+    Object executeBody(Stmt.Function declaration, Environment environment) {
+        var name = declaration.name.lexeme;
+        var line = declaration.name.line;
+        if (instruments.probes(Probe.Kind.ENTER).length > 0) {
+            fire(Probe.Kind.ENTER, line, name, null, null, arguments(declaration, environment));
+        }
+        var caller = function;
+        function = declaration;
+        try {
+            super.executeBody(declaration, environment);
+        } catch (Return returnValue) {
+            fire(Probe.Kind.EXIT, line, name, null, null, returnValue.value);
+            throw returnValue;
+        } catch (RuntimeError error) {
+            error(error);
+            throw error;
+        } finally {
+            function = caller;
+        }
+        fire(Probe.Kind.EXIT, line, name, null, null, null);
+        return null;
+    }
+
+    @Override
+    public Object visitGetExpr(Get expr) {
+        var object = evaluate(expr.object);
+        var value = getProperty(expr.name, object);
+        fire(Probe.Kind.GET, expr.name.line, functionName(), expr.name.lexeme, object, value);
+        return value;
+    }
+
+    @Override
+    public Object visitSetExpr(Set expr) {
+        var object = fieldsOf(expr.name, evaluate(expr.object));
+        Object value = evaluate(expr.value);
+        setField(expr.name, object, value);
+        fire(Probe.Kind.SET, expr.name.line, functionName(), expr.name.lexeme, object, value);
+        return value;
+    }
+
+    private void statement(Stmt stmt) {
+        // Blocks only group statements, which report themselves.
+        if (!(stmt instanceof Stmt.Block)) {
+            fire(Probe.Kind.STATEMENT, line(stmt), functionName(), null, null, null);
+        }
+    }
+
+    private void error(RuntimeError error) {
+        if (root.reported != error) {
+            root.reported = error;
+            fire(Probe.Kind.ERROR, error.token.line, functionName(), null, null, error.getMessage());
+        }
+    }
+
+    private void fire(Probe.Kind kind, int line, String function, String name, Object object, Object value) {
+        Probe.Event event = null;
+        for (var probe : instruments.probes(kind)) {
+            if (probe.matches(line, function)) {
+                if (event == null) {
+                    event = new Probe.Event(kind, line, function, name, object, EigenScript.toHost(value));
+                }
+                probe.handle(event);
+            }
+        }
+    }
+
+    private String functionName() {
+        return function == null ? null : function.name.lexeme;
+    }
+
+    private static List<Object> arguments(Stmt.Function declaration, Environment environment) {
+        List<Object> arguments = new ArrayList<>();
+        for (var param : declaration.params) {
+            arguments.add(EigenScript.toHost(environment.getAt(0, param.symbol())));
+        }
+        return arguments;
+    }
+
+    private static int line(Stmt stmt) {
+        if (stmt instanceof Stmt.Expression) {
+            return ((Stmt.Expression) stmt).line;
+        } else if (stmt instanceof Stmt.Print) {
+            return ((Stmt.Print) stmt).line;
+        } else if (stmt instanceof Stmt.If) {
+            return ((Stmt.If) stmt).line;
+        } else if (stmt instanceof Stmt.Var) {
+            return ((Stmt.Var) stmt).name.line;
+        } else if (stmt instanceof Stmt.Function) {
+            return ((Stmt.Function) stmt).name.line;
+        } else if (stmt instanceof Stmt.Class) {
+            return ((Stmt.Class) stmt).name.line;
+        } else if (stmt instanceof Stmt.While) {
+            return ((Stmt.While) stmt).keyword.line;
+        } else if (stmt instanceof Stmt.Return) {
+            return ((Stmt.Return) stmt).keyword.line;
+        } else if (stmt instanceof Stmt.Yield) {
+            return ((Stmt.Yield) stmt).keyword.line;
+        } else if (stmt instanceof Stmt.Import) {
+            return ((Stmt.Import) stmt).keyword.line;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,56 @@
+package eigen;
+
+import java.util.Arrays;
+
+/**
+ * The probes attached to the runs of a script that are given them, through
+ * EigenScript.run. Probes can be attached and detached from any thread, also
+ * while a run is going on; the run sees the change from its next event.
+ *
+ * A run given Instruments executes on an instrumented subclass of Compiler,
+ * through the tree visitor whatever engine is configured, and only that run
+ * pays for the probes: runs without Instruments never load the instrumented
+ * code, so they run exactly as before. Generator bodies, which always run on
+ * the stack engine, and imported modules are not instrumented.
+ */
+public final class Instruments {
+    private static final Probe[] NONE = new Probe[0];
+
+    // The attached probes by Probe.Kind ordinal, replaced on every change.
+    private volatile Probe[][] probes;
+
+    public Instruments() {
+        var probes = new Probe[Probe.Kind.values().length][];
+        Arrays.fill(probes, NONE);
+        this.probes = probes;
+    }
+
+    public synchronized void attach(Probe probe) {
+        var next = probes.clone();
+        var ofKind = next[probe.kind().ordinal()];
+        ofKind = Arrays.copyOf(ofKind, ofKind.length + 1);
+        ofKind[ofKind.length - 1] = probe;
+        next[probe.kind().ordinal()] = ofKind;
+        probes = next;
+    }
+
+    // Does nothing if the probe is not attached.
+    public synchronized void detach(Probe probe) {
+        var next = probes.clone();
+        var ofKind = next[probe.kind().ordinal()];
+        for (int i = 0; i < ofKind.length; i++) {
+            if (ofKind[i] == probe) {
+                var rest = new Probe[ofKind.length - 1];
+                System.arraycopy(ofKind, 0, rest, 0, i);
+                System.arraycopy(ofKind, i + 1, rest, i, rest.length - i);
+                next[probe.kind().ordinal()] = rest;
+                probes = next;
+                return;
+            }
+        }
+    }
+
+    Probe[] probes(Probe.Kind kind) {
+        return probes[kind.ordinal()];
+    }
+}
@@ -0,0 +1,211 @@
+package eigen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The math natives. Each is defined once here and used two ways: as an
+ * ordinary native in builtins, and as an intrinsic when the Resolver sees a
+ * call to its global name that nothing in the script can have rebound. Such a
+ * call is marked on its Expr.Call, and the engines evaluate the arguments and
+ * apply the intrinsic directly, without looking up the callee or checking its
+ * arity. A script or host that defines a global of the same name at run time
+ * still wins: every intrinsic call first checks that its name is not defined
+ * in the globals, which costs a field read until some global shadows one.
+ *
+ * abs, min and max keep integers integral; floor and ceil return integers
+ * when the result fits in one. Everything else returns a float.
+ */
+enum Intrinsic {
+    SQRT("sqrt", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.sqrt(number(a, 1));
+        }
+    },
+    EXP("exp", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.exp(number(a, 1));
+        }
+    },
+    LOG("log", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.log(number(a, 1));
+        }
+    },
+    SIN("sin", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.sin(number(a, 1));
+        }
+    },
+    COS("cos", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.cos(number(a, 1));
+        }
+    },
+    TAN("tan", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.tan(number(a, 1));
+        }
+    },
+    ASIN("asin", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.asin(number(a, 1));
+        }
+    },
+    ACOS("acos", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.acos(number(a, 1));
+        }
+    },
+    ATAN("atan", 1) {
+        @Override
+        Object apply1(Object a) {
+            return Math.atan(number(a, 1));
+        }
+    },
+    FLOOR("floor", 1) {
+        @Override
+        Object apply1(Object a) {
+            if (a instanceof Long) {
+                return a;
+            }
+            return integral(Math.floor(number(a, 1)));
+        }
+    },
+    CEIL("ceil", 1) {
+        @Override
+        Object apply1(Object a) {
+            if (a instanceof Long) {
+                return a;
+            }
+            return integral(Math.ceil(number(a, 1)));
+        }
+    },
+    ABS("abs", 1) {
+        @Override
+        Object apply1(Object a) {
+            if (a instanceof Long && (long) a != Long.MIN_VALUE) {
+                return Math.abs((long) a);
+            }
+            return Math.abs(number(a, 1));
+        }
+    },
+    POW("pow", 2) {
+        @Override
+        Object apply2(Object a, Object b) {
+            return Math.pow(number(a, 1), number(b, 2));
+        }
+    },
+    ATAN2("atan2", 2) {
+        @Override
+        Object apply2(Object a, Object b) {
+            return Math.atan2(number(a, 1), number(b, 2));
+        }
+    },
+    MIN("min", 2) {
+        @Override
+        Object apply2(Object a, Object b) {
+            if (a instanceof Long && b instanceof Long) {
+                return Math.min((long) a, (long) b);
+            }
+            return Math.min(number(a, 1), number(b, 2));
+        }
+    },
+    MAX("max", 2) {
+        @Override
+        Object apply2(Object a, Object b) {
+            if (a instanceof Long && b instanceof Long) {
+                return Math.max((long) a, (long) b);
+            }
+            return Math.max(number(a, 1), number(b, 2));
+        }
+    },
+    FMA("fma", 3) {
+        @Override
+        Object apply3(Object a, Object b, Object c) {
+            return Math.fma(number(a, 1), number(b, 2), number(c, 3));
+        }
+    };
+
+    private static final Map<String, Intrinsic> byName = new HashMap<>();
+
+    static {
+        for (var intrinsic : values()) {
+            byName.put(intrinsic.name, intrinsic);
+        }
+    }
+
+    final String name;
+    final int symbol;
+    final int arity;
+
+    Intrinsic(String name, int arity) {
+        this.name = name;
+        this.symbol = Symbol.intern(name);
+        this.arity = arity;
+    }
+
+    // The intrinsic a call to this global name with this many arguments can
+    // become, or null.
+    static Intrinsic named(String name, int arity) {
+        var intrinsic = byName.get(name);
+        return intrinsic != null && intrinsic.arity == arity ? intrinsic : null;
+    }
+
+    static boolean isIntrinsic(String name) {
+        return byName.containsKey(name);
+    }
+
+    static void define(Environment builtins) {
+        for (var intrinsic : values()) {
+            switch (intrinsic.arity) {
+            case 1:
+                NativeFunction.define1(builtins, intrinsic.name, (compiler, a) -> intrinsic.apply1(a));
+                break;
+            case 2:
+                NativeFunction.define2(builtins, intrinsic.name, (compiler, a, b) -> intrinsic.apply2(a, b));
+                break;
+            default:
+                NativeFunction.define3(builtins, intrinsic.name, (compiler, a, b, c) -> intrinsic.apply3(a, b, c));
+                break;
+            }
+        }
+    }
+
+    Object apply1(Object a) {
+        throw new UnsupportedOperationException(name);
+    }
+
+    Object apply2(Object a, Object b) {
+        throw new UnsupportedOperationException(name);
+    }
+
+    Object apply3(Object a, Object b, Object c) {
+        throw new UnsupportedOperationException(name);
+    }
+
+    private static double number(Object value, int position) {
+        if (value instanceof Double) {
+            return (double) value;
+        }
+        if (value instanceof Long) {
+            return (long) value;
+        }
+        throw new NativeError("Argument " + position + " must be a number.");
+    }
+
+    private static Object integral(double value) {
+        if (value >= Long.MIN_VALUE && value < 0x1p63) {
+            return (long) value;
+        }
+        return value;
+    }
+}
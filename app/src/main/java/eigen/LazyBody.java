@@ -0,0 +1,40 @@
+package eigen;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A function body the parser only brace-matched. It keeps the token stream
+ * and the index just past the opening brace, and is parsed and resolved the
+ * first time the function is called.
+ */
+class LazyBody implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final List<Token> tokens;
+    private final int start;
+    Resolver.Snapshot scope;
+
+    LazyBody(List<Token> tokens, int start) {
+        this.tokens = tokens;
+        this.start = start;
+    }
+
+    static void materialize(Stmt.Function function) {
+        synchronized (function) {
+            var lazy = function.lazy;
+            if (lazy == null) {
+                return;
+            }
+            var errors = Eigen.collectErrors(() -> function.body.addAll(Parser.functionBody(lazy.tokens, lazy.start)));
+            if (errors.isEmpty()) {
+                errors = Eigen.collectErrors(() -> Resolver.resolveLazy(function, lazy.scope));
+            }
+            if (!errors.isEmpty()) {
+                function.body.clear();
+                throw new RuntimeError(function.name, String.join("\n", errors));
+            }
+            Typer.inferLazy(function);
+            function.lazy = null;
+        }
+    }
+}
@@ -1,9 +1,8 @@
 package eigen;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import static eigen.TokenType.*;
 
@@ -71,10 +70,10 @@ public class Lexer {
             addToken(match('=') ? EQUAL_EQUAL : EQUAL);
             break;
         case '>':
-            addToken(match('=') ? GREATER_EQUAL : GREATER);
+            addToken(match('=') ? GREATER_EQUAL : match('>') ? GREATER_GREATER : GREATER);
             break;
         case '<':
-            addToken(match('=') ? LESS_EQUAL : LESS);
+            addToken(match('=') ? LESS_EQUAL : match('<') ? LESS_LESS : LESS);
             break;
         case '/':
             if (match('/'))
@@ -99,6 +98,9 @@ public class Lexer {
         case '&':
             addToken(match('&') ? AND : BITWISE_AND);
             break;
+        case '^':
+            addToken(BITWISE_XOR);
+            break;
         default:
             if (Character.isDigit(c))
                 number();
@@ -114,13 +116,15 @@ public class Lexer {
         while (Character.isLetterOrDigit(peek()))
             advance();
 
-        var testText = charStream.substring(start, current);
-        var type = keywords.get(testText);
+        var symbol = Symbol.intern(charStream.substring(start, current));
+        var type = symbol < keywords.length ? keywords[symbol] : null;
         if (type == null)
             type = IDENTIFIER;
-        addToken(type);
+        tokens.add(new Token(type, symbol, line));
     }
 
+    // Literals without a fraction are integers unless they are too large for
+    // one.
     private void number() {
         while (Character.isDigit(peek()))
             advance();
@@ -129,9 +133,16 @@ public class Lexer {
             advance();
             while (Character.isDigit(peek()))
                 advance();
+            addToken(NUMBER, Double.parseDouble(charStream.substring(start, current)));
+            return;
         }
 
-        addToken(NUMBER, Double.parseDouble(charStream.substring(start, current)));
+        var text = charStream.substring(start, current);
+        try {
+            addToken(NUMBER, Long.parseLong(text));
+        } catch (NumberFormatException e) {
+            addToken(NUMBER, Double.parseDouble(text));
+        }
     }
 
     private char peekNext() {
@@ -190,23 +201,47 @@ public class Lexer {
         return current >= charStream.length();
     }
 
-    private static final Map<String, TokenType> keywords;
+    // Whether name would scan as a single identifier.
+    static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isLetter(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isLetterOrDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        var symbol = Symbol.intern(name);
+        return symbol >= keywords.length || keywords[symbol] == null;
+    }
+
+    // Keyword types by symbol; keywords are interned early, so this stays small.
+    private static TokenType[] keywords = new TokenType[0];
 
     static {
-        keywords = new HashMap<>();
-        keywords.put("class", CLASS);
-        keywords.put("function", FUN);
-        keywords.put("var", VAR);
-        keywords.put("if", IF);
-        keywords.put("else", ELSE);
-        keywords.put("true", TRUE);
-        keywords.put("false", FALSE);
-        keywords.put("for", FOR);
-        keywords.put("while", WHILE);
-        keywords.put("null", NULL);
-        keywords.put("print", PRINT);
-        keywords.put("return", RETURN);
-        keywords.put("super", SUPER);
-        keywords.put("this", THIS);
+        keyword("class", CLASS);
+        keyword("function", FUN);
+        keyword("var", VAR);
+        keyword("if", IF);
+        keyword("import", IMPORT);
+        keyword("else", ELSE);
+        keyword("true", TRUE);
+        keyword("false", FALSE);
+        keyword("for", FOR);
+        keyword("while", WHILE);
+        keyword("null", NULL);
+        keyword("print", PRINT);
+        keyword("return", RETURN);
+        keyword("super", SUPER);
+        keyword("this", THIS);
+        keyword("yield", YIELD);
+    }
+
+    private static void keyword(String name, TokenType type) {
+        var symbol = Symbol.intern(name);
+        if (symbol >= keywords.length) {
+            keywords = Arrays.copyOf(keywords, symbol + 1);
+        }
+        keywords[symbol] = type;
     }
 }
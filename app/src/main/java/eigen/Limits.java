@@ -0,0 +1,143 @@
+package eigen;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resource limits for one run of a script, shared by every thread the run
+ * spawns. Use a fresh Limits per run.
+ *
+ * The memory quota is approximate allocation accounting, not a heap
+ * measurement: instances, fields, lists and their elements, memo cache
+ * entries, and strings built by concatenation or by natives are charged an
+ * estimate of their size when created and are never credited back, while
+ * call frames are charged on entry and credited on return. A run that goes
+ * over its quota fails with a runtime error instead of exhausting the heap
+ * shared with other scripts.
+ *
+ * The instruction budget counts loop iterations and function calls. Each
+ * thread leases up to CHECK_INTERVAL steps at a time from the shared budget
+ * and gives back what it did not use when it finishes, so a run stops at
+ * exactly its budget and fuelLeft is exact once the run is over. Taking a
+ * lease is also when cancellation is noticed and when a thread that has run
+ * for longer than its time slice calls the slice hook. The hook is how a
+ * scheduler running many scripts on a fixed pool takes turns: it can park
+ * the thread or hand its worker to another script before returning.
+ */
+public final class Limits {
+    static final long FRAME_BYTES = 64;
+    static final long INSTANCE_BYTES = 48;
+    static final long FIELD_BYTES = 48;
+    static final long STRING_BYTES = 40;
+    static final long ELEMENT_BYTES = 16;
+    static final long ENTRY_BYTES = 64;
+    static final int CHECK_INTERVAL = 1024;
+
+    private long memoryQuota = Long.MAX_VALUE;
+    private final AtomicLong memoryUsed = new AtomicLong();
+    private final AtomicLong fuel = new AtomicLong(Long.MAX_VALUE);
+    private long timeSlice;
+    private Runnable sliceEnd = Thread::yield;
+    private volatile boolean cancelled;
+
+    public void setMemoryQuota(long bytes) {
+        memoryQuota = bytes;
+    }
+
+    public long memoryUsed() {
+        return memoryUsed.get();
+    }
+
+    public void setFuel(long steps) {
+        fuel.set(steps);
+    }
+
+    public long fuelLeft() {
+        return Math.max(0, fuel.get());
+    }
+
+    // How long a thread runs before giving others a turn; zero never yields.
+    public void setTimeSlice(long nanos) {
+        timeSlice = nanos;
+    }
+
+    // As setTimeSlice(nanos), with sliceEnd run on a thread whose slice is
+    // used up instead of Thread.yield. It may block until the thread's next
+    // turn, and may throw to stop the run.
+    public void setTimeSlice(long nanos, Runnable sliceEnd) {
+        timeSlice = nanos;
+        this.sliceEnd = sliceEnd;
+    }
+
+    // Safe to call from any thread. The run stops at its next checkpoint.
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Called by a thread that has used up its lease, with the time its slice
+    // began. Returns the start of its next slice.
+    long checkpoint(Token token, long sliceStart) {
+        if (cancelled) {
+            throw new RuntimeError(token, "Script was cancelled.");
+        }
+        if (timeSlice > 0) {
+            var now = System.nanoTime();
+            if (now - sliceStart >= timeSlice) {
+                sliceEnd.run();
+                return System.nanoTime();
+            }
+        }
+        return sliceStart;
+    }
+
+    // Takes the next lease of steps from the budget.
+    long lease(Token token) {
+        while (true) {
+            var left = fuel.get();
+            if (left <= 0) {
+                throw new RuntimeError(token, "Instruction budget exhausted.");
+            }
+            var steps = Math.min(CHECK_INTERVAL, left);
+            if (fuel.compareAndSet(left, left - steps)) {
+                return steps;
+            }
+        }
+    }
+
+    // Gives back the steps of a lease a thread did not use.
+    void settle(long steps) {
+        fuel.addAndGet(steps);
+    }
+
+    // For allocations made on behalf of a call; the call site reports it.
+    void allocate(long bytes) {
+        if (memoryUsed.addAndGet(bytes) > memoryQuota) {
+            throw new NativeError(quotaExceeded());
+        }
+    }
+
+    void allocate(Token token, long bytes) {
+        if (memoryUsed.addAndGet(bytes) > memoryQuota) {
+            throw new RuntimeError(token, quotaExceeded());
+        }
+    }
+
+    void release(long bytes) {
+        memoryUsed.addAndGet(-bytes);
+    }
+
+    private String quotaExceeded() {
+        return "Memory quota of " + memoryQuota + " bytes exceeded.";
+    }
+
+    // Sizes like 65536, 64k, 16m or 1g.
+    static long parseSize(String text) {
+        var last = Character.toLowerCase(text.charAt(text.length() - 1));
+        var scale = last == 'k' ? 1L << 10 : last == 'm' ? 1L << 20 : last == 'g' ? 1L << 30 : 1;
+        var digits = scale == 1 ? text : text.substring(0, text.length() - 1);
+        return Long.parseLong(digits.trim()) * scale;
+    }
+}
@@ -0,0 +1,377 @@
+package eigen;
+
+import java.io.Serializable;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A dense matrix of doubles in one row-major array. Vectors are matrices with
+ * one row.
+ *
+ * The kernels are plain counted loops over the array, which C2 turns into SIMD
+ * code on its own. Matrix multiply walks i-k-j so its inner loop is a
+ * contiguous axpy, in tiles sized to stay in cache. Work on more than
+ * PARALLEL_SIZE entries is split across the fork-join common pool. As in
+ * Parallel, where work is cut depends only on the sizes involved, so sums come
+ * out the same on any machine.
+ */
+final class Matrix implements Serializable {
+    private static final long serialVersionUID = 1L;
+    // Entries below which a kernel runs on the calling thread.
+    static final int PARALLEL_SIZE = 1 << 16;
+    // The side of a square tile in matrix multiply and transpose.
+    private static final int TILE = 64;
+    // Entries per chunk of a parallel reduction.
+    private static final int REDUCE_CHUNK = 1 << 14;
+
+    final int rows;
+    final int cols;
+    final double[] data;
+
+    Matrix(int rows, int cols) {
+        this(rows, cols, new double[size(rows, cols)]);
+    }
+
+    Matrix(int rows, int cols, double[] data) {
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+    }
+
+    private static int size(int rows, int cols) {
+        var size = (long) rows * cols;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new NativeError("Matrix of " + rows + " by " + cols + " is too large.");
+        }
+        return (int) size;
+    }
+
+    double get(int row, int col) {
+        return data[index(row, col)];
+    }
+
+    void set(int row, int col, double value) {
+        data[index(row, col)] = value;
+    }
+
+    private int index(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new NativeError("Index (" + row + ", " + col + ") is outside a " + rows + " by " + cols + " matrix.");
+        }
+        return row * cols + col;
+    }
+
+    // The operators that combine two matrices entry by entry.
+    enum Op {
+        PLUS, MINUS, TIMES, DIVIDE
+    }
+
+    Matrix combine(Op op, Matrix other) {
+        sameShape(other);
+        var result = new Matrix(rows, cols);
+        var a = data;
+        var b = other.data;
+        var c = result.data;
+        forRange(c.length, (start, end) -> {
+            switch (op) {
+            case PLUS:
+                for (int i = start; i < end; i++) {
+                    c[i] = a[i] + b[i];
+                }
+                break;
+            case MINUS:
+                for (int i = start; i < end; i++) {
+                    c[i] = a[i] - b[i];
+                }
+                break;
+            case TIMES:
+                for (int i = start; i < end; i++) {
+                    c[i] = a[i] * b[i];
+                }
+                break;
+            default:
+                for (int i = start; i < end; i++) {
+                    c[i] = a[i] / b[i];
+                }
+                break;
+            }
+        });
+        return result;
+    }
+
+    Matrix scale(double factor) {
+        var result = new Matrix(rows, cols);
+        var a = data;
+        var c = result.data;
+        forRange(c.length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                c[i] = a[i] * factor;
+            }
+        });
+        return result;
+    }
+
+    double dot(Matrix other) {
+        if (data.length != other.data.length) {
+            throw new NativeError("Cannot take the dot product of " + data.length + " and " + other.data.length
+                    + " entries.");
+        }
+        var a = data;
+        var b = other.data;
+        return reduce(a.length, (start, end) -> dot(a, b, start, end));
+    }
+
+    double sum() {
+        var a = data;
+        return reduce(a.length, (start, end) -> sum(a, start, end));
+    }
+
+    // Four independent sums keep the adds from waiting on each other; Java
+    // will not reassociate a single floating point sum to vectorize it.
+    private static double dot(double[] a, double[] b, int start, int end) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        var i = start;
+        for (; i + 3 < end; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < end; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double sum(double[] a, int start, int end) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        var i = start;
+        for (; i + 3 < end; i += 4) {
+            s0 += a[i];
+            s1 += a[i + 1];
+            s2 += a[i + 2];
+            s3 += a[i + 3];
+        }
+        for (; i < end; i++) {
+            s0 += a[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    double min() {
+        nonEmpty();
+        var min = data[0];
+        for (var value : data) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    double max() {
+        nonEmpty();
+        var max = data[0];
+        for (var value : data) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    Matrix multiply(Matrix other) {
+        if (cols != other.rows) {
+            throw new NativeError("Cannot multiply a " + rows + " by " + cols + " matrix by a " + other.rows + " by "
+                    + other.cols + " one.");
+        }
+        var result = new Matrix(rows, other.cols);
+        var work = (long) rows * cols * other.cols;
+        var rowTiles = (rows + TILE - 1) / TILE;
+        if (work < PARALLEL_SIZE * (long) TILE || rowTiles == 1) {
+            multiplyRows(other, result, 0, rows);
+        } else {
+            new Tiles(rowTiles, tile -> multiplyRows(other, result, tile * TILE, Math.min(rows, (tile + 1) * TILE)))
+                    .invoke();
+        }
+        return result;
+    }
+
+    // Fills rows [start, end) of result with this times other.
+    private void multiplyRows(Matrix other, Matrix result, int start, int end) {
+        var a = data;
+        var b = other.data;
+        var c = result.data;
+        var n = cols;
+        var m = other.cols;
+        for (int kk = 0; kk < n; kk += TILE) {
+            var kEnd = Math.min(n, kk + TILE);
+            for (int jj = 0; jj < m; jj += TILE) {
+                var jEnd = Math.min(m, jj + TILE);
+                for (int i = start; i < end; i++) {
+                    var row = i * m;
+                    for (int k = kk; k < kEnd; k++) {
+                        var aik = a[i * n + k];
+                        var column = k * m;
+                        for (int j = jj; j < jEnd; j++) {
+                            c[row + j] += aik * b[column + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    Matrix transpose() {
+        var result = new Matrix(cols, rows);
+        var a = data;
+        var c = result.data;
+        for (int ii = 0; ii < rows; ii += TILE) {
+            var iEnd = Math.min(rows, ii + TILE);
+            for (int jj = 0; jj < cols; jj += TILE) {
+                var jEnd = Math.min(cols, jj + TILE);
+                for (int i = ii; i < iEnd; i++) {
+                    for (int j = jj; j < jEnd; j++) {
+                        c[j * rows + i] = a[i * cols + j];
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void sameShape(Matrix other) {
+        if (rows != other.rows || cols != other.cols) {
+            throw new NativeError("Cannot combine a " + rows + " by " + cols + " matrix with a " + other.rows + " by "
+                    + other.cols + " one.");
+        }
+    }
+
+    private void nonEmpty() {
+        if (data.length == 0) {
+            throw new NativeError("Matrix is empty.");
+        }
+    }
+
+    private interface Kernel {
+        void run(int start, int end);
+    }
+
+    private interface Reduction {
+        double run(int start, int end);
+    }
+
+    private interface Tile {
+        void run(int tile);
+    }
+
+    // Runs kernel over [0, size), in parallel when size is large.
+    private static void forRange(int size, Kernel kernel) {
+        if (size < PARALLEL_SIZE) {
+            kernel.run(0, size);
+        } else {
+            new Range(kernel, 0, size).invoke();
+        }
+    }
+
+    // Sums reduction over fixed chunks of [0, size), combined pairwise in
+    // chunk order.
+    private static double reduce(int size, Reduction reduction) {
+        if (size < PARALLEL_SIZE) {
+            return reduction.run(0, size);
+        }
+        return new Chunks(reduction, size, 0, (size + REDUCE_CHUNK - 1) / REDUCE_CHUNK).invoke();
+    }
+
+    private static class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Kernel kernel;
+        private final int start;
+        private final int end;
+
+        Range(Kernel kernel, int start, int end) {
+            this.kernel = kernel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARALLEL_SIZE) {
+                kernel.run(start, end);
+                return;
+            }
+            var middle = (start + end) >>> 1;
+            invokeAll(new Range(kernel, start, middle), new Range(kernel, middle, end));
+        }
+    }
+
+    private static class Chunks extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private final Reduction reduction;
+        private final int size;
+        private final int first;
+        private final int last;
+
+        Chunks(Reduction reduction, int size, int first, int last) {
+            this.reduction = reduction;
+            this.size = size;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Double compute() {
+            if (last - first == 1) {
+                return reduction.run(first * REDUCE_CHUNK, Math.min(size, (first + 1) * REDUCE_CHUNK));
+            }
+            var middle = (first + last) >>> 1;
+            var right = new Chunks(reduction, size, middle, last);
+            right.fork();
+            double left = new Chunks(reduction, size, first, middle).compute();
+            return left + right.join();
+        }
+    }
+
+    private static class Tiles extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Tile tile;
+        private final int first;
+        private final int last;
+
+        Tiles(int count, Tile tile) {
+            this(tile, 0, count);
+        }
+
+        private Tiles(Tile tile, int first, int last) {
+            this.tile = tile;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                tile.run(first);
+                return;
+            }
+            var middle = (first + last) >>> 1;
+            invokeAll(new Tiles(tile, first, middle), new Tiles(tile, middle, last));
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (data.length > 100) {
+            return "<matrix " + rows + " by " + cols + ">";
+        }
+        var text = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            text.append(i > 0 ? ", [" : "[");
+            for (int j = 0; j < cols; j++) {
+                if (j > 0) {
+                    text.append(", ");
+                }
+                text.append(Compiler.stringify(data[i * cols + j]));
+            }
+            text.append("]");
+        }
+        return text.append("]").toString();
+    }
+}
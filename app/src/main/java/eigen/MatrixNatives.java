@@ -0,0 +1,194 @@
+package eigen;
+
+import java.util.ArrayList;
+
+/**
+ * The matrix natives. Matrices are built with matrix, vector, identity or
+ * toMatrix, read and written with entry and setEntry, and combined by natives
+ * that return new matrices, so a script's loops run over rows or whole
+ * matrices instead of entries:
+ *
+ *   var a = toMatrix(rows);
+ *   var b = matmul(a, transpose(a));
+ *   print sum(b);
+ *
+ * Entries are always floats. Every new matrix is charged against the memory
+ * quota, if there is one.
+ */
+final class MatrixNatives {
+
+    private MatrixNatives() {
+    }
+
+    @EigenNative
+    static Matrix matrix(Compiler compiler, int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new NativeError("Matrix dimensions must not be negative.");
+        }
+        // Charged before the array exists, as a script may ask for any size.
+        if (compiler.limits != null) {
+            compiler.limits.allocate(Limits.INSTANCE_BYTES + 8L * rows * cols);
+        }
+        return new Matrix(rows, cols);
+    }
+
+    @EigenNative
+    static Matrix vector(Compiler compiler, int size) {
+        return matrix(compiler, 1, size);
+    }
+
+    @EigenNative
+    static Matrix identity(Compiler compiler, int size) {
+        var identity = matrix(compiler, size, size);
+        for (int i = 0; i < size; i++) {
+            identity.data[i * size + i] = 1;
+        }
+        return identity;
+    }
+
+    // A list of numbers becomes a vector, a list of equally long lists of
+    // numbers a matrix with a row for each.
+    @EigenNative
+    static Matrix toMatrix(Compiler compiler, EigenList list) {
+        var elements = list.elements;
+        if (elements.isEmpty() || !(elements.get(0) instanceof EigenList)) {
+            var vector = vector(compiler, elements.size());
+            for (int i = 0; i < elements.size(); i++) {
+                vector.data[i] = number(elements.get(i));
+            }
+            return vector;
+        }
+        var cols = ((EigenList) elements.get(0)).elements.size();
+        var matrix = matrix(compiler, elements.size(), cols);
+        for (int i = 0; i < elements.size(); i++) {
+            var row = NativeFunction.expect(elements.get(i), EigenList.class, "Matrix rows must be lists.").elements;
+            if (row.size() != cols) {
+                throw new NativeError("Matrix rows must all have " + cols + " entries.");
+            }
+            for (int j = 0; j < cols; j++) {
+                matrix.data[i * cols + j] = number(row.get(j));
+            }
+        }
+        return matrix;
+    }
+
+    // A vector becomes a list of numbers, a matrix a list of rows.
+    @EigenNative
+    static EigenList toList(Matrix matrix) {
+        if (matrix.rows == 1) {
+            return row(matrix, 0);
+        }
+        var rows = new ArrayList<Object>(matrix.rows);
+        for (int i = 0; i < matrix.rows; i++) {
+            rows.add(row(matrix, i));
+        }
+        return new EigenList(rows);
+    }
+
+    @EigenNative
+    static int rows(Matrix matrix) {
+        return matrix.rows;
+    }
+
+    @EigenNative
+    static int cols(Matrix matrix) {
+        return matrix.cols;
+    }
+
+    @EigenNative
+    static double entry(Matrix matrix, int row, int col) {
+        return matrix.get(row, col);
+    }
+
+    @EigenNative
+    static Matrix setEntry(Matrix matrix, int row, int col, double value) {
+        matrix.set(row, col, value);
+        return matrix;
+    }
+
+    @EigenNative
+    static Matrix plus(Compiler compiler, Matrix a, Matrix b) {
+        return charge(compiler, a.combine(Matrix.Op.PLUS, b));
+    }
+
+    @EigenNative
+    static Matrix minus(Compiler compiler, Matrix a, Matrix b) {
+        return charge(compiler, a.combine(Matrix.Op.MINUS, b));
+    }
+
+    // Entry by entry; matmul is the matrix product.
+    @EigenNative
+    static Matrix times(Compiler compiler, Matrix a, Matrix b) {
+        return charge(compiler, a.combine(Matrix.Op.TIMES, b));
+    }
+
+    @EigenNative
+    static Matrix divide(Compiler compiler, Matrix a, Matrix b) {
+        return charge(compiler, a.combine(Matrix.Op.DIVIDE, b));
+    }
+
+    @EigenNative
+    static Matrix scale(Compiler compiler, Matrix matrix, double factor) {
+        return charge(compiler, matrix.scale(factor));
+    }
+
+    @EigenNative
+    static Matrix matmul(Compiler compiler, Matrix a, Matrix b) {
+        return charge(compiler, a.multiply(b));
+    }
+
+    @EigenNative
+    static Matrix transpose(Compiler compiler, Matrix matrix) {
+        return charge(compiler, matrix.transpose());
+    }
+
+    @EigenNative
+    static double dot(Matrix a, Matrix b) {
+        return a.dot(b);
+    }
+
+    @EigenNative
+    static double sum(Matrix matrix) {
+        return matrix.sum();
+    }
+
+    @EigenNative
+    static double norm(Matrix matrix) {
+        return Math.sqrt(matrix.dot(matrix));
+    }
+
+    @EigenNative
+    static double minEntry(Matrix matrix) {
+        return matrix.min();
+    }
+
+    @EigenNative
+    static double maxEntry(Matrix matrix) {
+        return matrix.max();
+    }
+
+    private static EigenList row(Matrix matrix, int row) {
+        var entries = new ArrayList<Object>(matrix.cols);
+        for (int j = 0; j < matrix.cols; j++) {
+            entries.add(matrix.data[row * matrix.cols + j]);
+        }
+        return new EigenList(entries);
+    }
+
+    private static double number(Object value) {
+        if (value instanceof Double) {
+            return (double) value;
+        }
+        if (value instanceof Long) {
+            return (long) value;
+        }
+        throw new NativeError("Matrix entries must be numbers.");
+    }
+
+    private static Matrix charge(Compiler compiler, Matrix matrix) {
+        if (compiler.limits != null) {
+            compiler.limits.allocate(Limits.INSTANCE_BYTES + 8L * matrix.data.length);
+        }
+        return matrix;
+    }
+}
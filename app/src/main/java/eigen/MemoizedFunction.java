@@ -0,0 +1,142 @@
+package eigen;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * memoize(fn, capacity) wraps a pure callable in a cache keyed on argument
+ * values, evicting the least recently used entry once capacity entries are
+ * held. Rebinding the original name (fib = memoize(fib, 1000);) makes
+ * recursive calls go through the cache too. memoHits(fn) and memoMisses(fn)
+ * report how well it works.
+ */
+class MemoizedFunction implements EigenCallable, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final EigenCallable function;
+    private final Map<Object, Object> cache;
+    private long hits = 0;
+    private long misses = 0;
+
+    MemoizedFunction(EigenCallable function, int capacity) {
+        this.function = function;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    static void define(Environment builtins) {
+        NativeFunction.define2(builtins, "memoize", (compiler, callee, size) -> {
+            var function = NativeFunction.expect(callee, EigenCallable.class, "Can only memoize a function.");
+            var capacity = NativeFunction.expectCount(size, "Memo capacity must be a positive integer.");
+            if (capacity == 0) {
+                throw new NativeError("Memo capacity must be a positive integer.");
+            }
+            return new MemoizedFunction(function, capacity);
+        });
+        NativeFunction.define1(builtins, "memoHits", (compiler, callee) -> {
+            var function = NativeFunction.expect(callee, MemoizedFunction.class, "Not a memoized function.");
+            synchronized (function.cache) {
+                return function.hits;
+            }
+        });
+        NativeFunction.define1(builtins, "memoMisses", (compiler, callee) -> {
+            var function = NativeFunction.expect(callee, MemoizedFunction.class, "Not a memoized function.");
+            synchronized (function.cache) {
+                return function.misses;
+            }
+        });
+    }
+
+    @Override
+    public int arity() {
+        return function.arity();
+    }
+
+    // The lock is not held while the function runs, so recursive and
+    // concurrent callers don't wait on each other; a value computed twice by
+    // racing callers is simply stored twice.
+    @Override
+    public Object call(Compiler compiler, List<Object> arguments) {
+        Object key;
+        if (arguments.size() == 1) {
+            key = key(arguments.get(0));
+        } else {
+            List<Object> keys = new ArrayList<>(arguments.size());
+            for (var argument : arguments) {
+                keys.add(key(argument));
+            }
+            key = keys;
+        }
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                hits++;
+                return cache.get(key);
+            }
+            misses++;
+        }
+        var value = function.call(compiler, arguments);
+        store(compiler, key, value);
+        return value;
+    }
+
+    // The common single-argument case keys on the argument itself.
+    @Override
+    public Object call1(Compiler compiler, Object a) {
+        var key = key(a);
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                hits++;
+                return cache.get(key);
+            }
+            misses++;
+        }
+        var value = function.call1(compiler, a);
+        store(compiler, key, value);
+        return value;
+    }
+
+    // A string view keys as the String it spells, which hashes and compares
+    // like one and doesn't keep the view's parent alive in the cache. A float
+    // with an integer value keys as that integer, since 2 == 2.0.
+    private static Object key(Object argument) {
+        if (argument instanceof StringView) {
+            return argument.toString();
+        }
+        if (argument instanceof Double) {
+            double value = (double) argument;
+            if (value == Math.rint(value) && Math.abs(value) < 0x1p63) {
+                return (long) value;
+            }
+        }
+        return argument;
+    }
+
+    // Only an entry that grows the cache is charged; one that evicts the
+    // eldest takes its place.
+    private void store(Compiler compiler, Object key, Object value) {
+        boolean grew;
+        synchronized (cache) {
+            var size = cache.size();
+            cache.put(key, value);
+            grew = cache.size() > size;
+        }
+        if (grew && compiler.limits != null) {
+            compiler.limits.allocate(Limits.ENTRY_BYTES);
+        }
+    }
+
+    void share() {
+        Concurrency.share(function);
+    }
+
+    @Override
+    public String toString() {
+        return function.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package eigen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.script.ScriptException;
+
+/**
+ * Compiles imported modules. Every module file is lexed, parsed and resolved
+ * at most once per process; the result is cached by absolute path, unless it
+ * failed, in which case the next import tries again. As soon as a module has
+ * been parsed the modules it imports are queued on the common pool, so a
+ * whole import graph is compiled in parallel while the importing thread waits
+ * for it.
+ */
+class ModuleLoader {
+    private static final Map<Path, CompletableFuture<EigenScript>> cache = new ConcurrentHashMap<>();
+
+    // Points every import statement reachable from these imports at its
+    // compiled module.
+    static void link(List<Stmt.Import> imports, Path directory) throws ScriptException {
+        for (var stmt : imports) {
+            request(resolve(directory, stmt));
+        }
+
+        Set<EigenScript> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        var pending = new ArrayDeque<EigenScript>();
+        link(imports, directory, seen, pending);
+        while (!pending.isEmpty()) {
+            var module = pending.pop();
+            link(module.imports, module.directory, seen, pending);
+        }
+    }
+
+    private static void link(List<Stmt.Import> imports, Path directory, Set<EigenScript> seen,
+            ArrayDeque<EigenScript> pending) throws ScriptException {
+        for (var stmt : imports) {
+            var module = await(resolve(directory, stmt));
+            stmt.module = module;
+            if (seen.add(module)) {
+                pending.push(module);
+            }
+        }
+    }
+
+    // A module that failed to load is dropped from the cache once its
+    // failure is known, so a later import compiles it afresh.
+    private static CompletableFuture<EigenScript> request(Path path) {
+        var module = cache.computeIfAbsent(path, key -> CompletableFuture.supplyAsync(() -> compile(key)));
+        module.whenComplete((compiled, error) -> {
+            if (error != null) {
+                cache.remove(path, module);
+            }
+        });
+        return module;
+    }
+
+    private static EigenScript compile(Path path) {
+        try {
+            var module = EigenScript.compileUnit(Files.readString(path), path.getParent());
+            for (var stmt : module.imports) {
+                request(resolve(module.directory, stmt));
+            }
+            return module;
+        } catch (IOException e) {
+            throw new CompletionException(new ScriptException("Can't read module '" + path + "'."));
+        } catch (ScriptException e) {
+            throw new CompletionException(new ScriptException(e.getMessage(), path.toString(), -1));
+        }
+    }
+
+    private static Path resolve(Path directory, Stmt.Import stmt) {
+        return directory.resolve((String) stmt.path.literal).toAbsolutePath().normalize();
+    }
+
+    // A failure is also dropped from the cache here, as the callback in
+    // request may not have run yet when join returns.
+    private static EigenScript await(Path path) throws ScriptException {
+        var module = request(path);
+        try {
+            return module.join();
+        } catch (CompletionException e) {
+            cache.remove(path, module);
+            if (e.getCause() instanceof ScriptException) {
+                throw (ScriptException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package eigen;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the @EigenNative static methods of a class into natives. Each method
+ * handle is adapted once, at bind time, to take and return Eigen values:
+ * numbers arrive as double, int or long (ints and longs must be integral),
+ * booleans as boolean, and strings, instances and other values by reference
+ * type, never null (declare Object to accept anything); integral results
+ * come back as Long, floating ones as Double and void as null. Calls of up
+ * to three arguments go straight to invokeExact on the adapted handle.
+ */
+public final class NativeBinder {
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private static final MethodHandle toDouble = converter("toDouble", double.class);
+    private static final MethodHandle toInt = converter("toInt", int.class);
+    private static final MethodHandle toLong = converter("toLong", long.class);
+    private static final MethodHandle toBoolean = converter("toBoolean", boolean.class);
+    private static final MethodHandle toReference;
+    private static final MethodHandle toEigen;
+    private static final MethodHandle charToString;
+
+    static {
+        try {
+            toReference = lookup.findStatic(NativeBinder.class, "toReference",
+                    MethodType.methodType(Object.class, Object.class, Class.class, int.class));
+            toEigen = lookup.findStatic(EigenScript.class, "toEigen",
+                    MethodType.methodType(Object.class, Object.class));
+            charToString = lookup.findStatic(String.class, "valueOf",
+                    MethodType.methodType(String.class, char.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private NativeBinder() {
+    }
+
+    // The natives of a host class by name, ready to be passed in as bindings.
+    public static Map<String, Object> natives(Class<?> host) {
+        Map<String, Object> natives = new LinkedHashMap<>();
+        for (var function : bind(host)) {
+            natives.put(function.name, function);
+        }
+        return natives;
+    }
+
+    static void define(Environment environment, Class<?> host) {
+        for (var function : bind(host)) {
+            environment.defineBuiltin(function.name, function);
+        }
+    }
+
+    private static List<NativeFunction> bind(Class<?> host) {
+        List<NativeFunction> functions = new ArrayList<>();
+        for (var method : host.getDeclaredMethods()) {
+            var annotation = method.getAnnotation(EigenNative.class);
+            if (annotation != null) {
+                var name = annotation.value().isEmpty() ? method.getName() : annotation.value();
+                functions.add(bind(name, method));
+            }
+        }
+        return functions;
+    }
+
+    private static NativeFunction bind(String name, Method method) {
+        if (!Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("Native " + name + " must be a static method.");
+        }
+        MethodHandle handle;
+        try {
+            handle = lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Native " + name + " is not accessible.", e);
+        }
+        var parameters = method.getParameterTypes();
+        if (parameters.length == 0 || parameters[0] != Compiler.class) {
+            handle = MethodHandles.dropArguments(handle, 0, Compiler.class);
+        }
+        var arity = handle.type().parameterCount() - 1;
+        for (int i = 1; i <= arity; i++) {
+            handle = MethodHandles.filterArguments(handle, i, argument(name, handle.type().parameterType(i), i));
+        }
+        handle = result(handle);
+        return new BoundNative(name, arity, handle);
+    }
+
+    // Converts the Object in position to the parameter's type.
+    private static MethodHandle argument(String name, Class<?> type, int position) {
+        MethodHandle converter;
+        if (type == Object.class) {
+            return null;
+        } else if (type == double.class) {
+            converter = toDouble;
+        } else if (type == int.class) {
+            converter = toInt;
+        } else if (type == long.class) {
+            converter = toLong;
+        } else if (type == boolean.class) {
+            converter = toBoolean;
+        } else if (!type.isPrimitive()) {
+            converter = MethodHandles.insertArguments(toReference, 1, type)
+                    .asType(MethodType.methodType(type, Object.class, int.class));
+        } else {
+            throw new IllegalArgumentException("Native " + name + " cannot take a " + type.getName() + ".");
+        }
+        return MethodHandles.insertArguments(converter, 1, position);
+    }
+
+    private static MethodHandle result(MethodHandle handle) {
+        var type = handle.type().returnType();
+        if (type == char.class) {
+            handle = MethodHandles.filterReturnValue(handle, charToString);
+        } else if (type == float.class) {
+            handle = handle.asType(handle.type().changeReturnType(double.class));
+        } else if (type.isPrimitive() && type != double.class && type != boolean.class && type != void.class) {
+            handle = handle.asType(handle.type().changeReturnType(long.class));
+        } else if (!type.isPrimitive() && type != String.class) {
+            handle = MethodHandles.filterReturnValue(handle.asType(handle.type().changeReturnType(Object.class)), toEigen);
+        }
+        return handle.asType(handle.type().changeReturnType(Object.class));
+    }
+
+    private static MethodHandle converter(String name, Class<?> type) {
+        try {
+            return lookup.findStatic(NativeBinder.class, name,
+                    MethodType.methodType(type, Object.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static double toDouble(Object value, int position) {
+        if (value instanceof Double) {
+            return (double) value;
+        }
+        if (value instanceof Long) {
+            return (long) value;
+        }
+        throw new NativeError("Argument " + position + " must be a number.");
+    }
+
+    private static int toInt(Object value, int position) {
+        if (value instanceof Long && (long) value == (int) (long) value) {
+            return (int) (long) value;
+        }
+        if (value instanceof Double) {
+            var number = (double) value;
+            if (number == (int) number) {
+                return (int) number;
+            }
+        }
+        throw new NativeError("Argument " + position + " must be an integer.");
+    }
+
+    private static long toLong(Object value, int position) {
+        if (value instanceof Long) {
+            return (long) value;
+        }
+        if (value instanceof Double) {
+            var number = (double) value;
+            if (number == (long) number) {
+                return (long) number;
+            }
+        }
+        throw new NativeError("Argument " + position + " must be an integer.");
+    }
+
+    private static boolean toBoolean(Object value, int position) {
+        if (value instanceof Boolean) {
+            return (boolean) value;
+        }
+        throw new NativeError("Argument " + position + " must be a boolean.");
+    }
+
+    private static Object toReference(Object value, Class<?> type, int position) {
+        if (type.isInstance(value)) {
+            return value;
+        }
+        if (type == String.class && value instanceof StringView) {
+            return value.toString();
+        }
+        var expected = type == String.class || type == CharSequence.class ? "a string"
+                : type == EigenInstance.class ? "an instance" : type == EigenList.class ? "a list"
+                : type == Matrix.class ? "a matrix" : type.getSimpleName();
+        throw new NativeError("Argument " + position + " must be " + expected + ".");
+    }
+
+    // A native whose handle has the exact type (Compiler, Object...)Object.
+    private static final class BoundNative extends NativeFunction {
+        private final MethodHandle handle;
+        private final MethodHandle spreader;
+
+        BoundNative(String name, int arity, MethodHandle handle) {
+            this(name, arity, handle, handle.asSpreader(Object[].class, arity));
+        }
+
+        private BoundNative(String name, int arity, MethodHandle handle, MethodHandle spreader) {
+            super(name, arity, (compiler, arguments) -> invoke(spreader, compiler, arguments.toArray()));
+            this.handle = handle;
+            this.spreader = spreader;
+        }
+
+        @Override
+        public Object call(Compiler compiler, Object[] arguments) {
+            return invoke(spreader, compiler, arguments);
+        }
+
+        @Override
+        public Object call0(Compiler compiler) {
+            try {
+                return (Object) handle.invokeExact(compiler);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        public Object call1(Compiler compiler, Object a) {
+            try {
+                return (Object) handle.invokeExact(compiler, a);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        public Object call2(Compiler compiler, Object a, Object b) {
+            try {
+                return (Object) handle.invokeExact(compiler, a, b);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        public Object call3(Compiler compiler, Object a, Object b, Object c) {
+            try {
+                return (Object) handle.invokeExact(compiler, a, b, c);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        private static Object invoke(MethodHandle spreader, Compiler compiler, Object[] arguments) {
+            try {
+                return (Object) spreader.invokeExact(compiler, arguments);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        // Eigen errors pass through; anything else the host throws becomes a
+        // NativeError so the script sees it at the call's line.
+        private static RuntimeException rethrow(Throwable e) {
+            if (e instanceof NativeError || e instanceof RuntimeError || e instanceof Return) {
+                return (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return new NativeError(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package eigen;
+
+// Thrown by natives, which have no token of their own; the call site turns it
+// into a RuntimeError at the call's line.
+public class NativeError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public NativeError(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,116 @@
+package eigen;
+
+import java.util.List;
+
+// A host function exposed to scripts under a global name. Natives of up to
+// three arguments are declared with the fixed-arity bodies so calls to them
+// skip the argument list entirely.
+class NativeFunction implements EigenCallable {
+
+    interface Body {
+        Object call(Compiler compiler, List<Object> arguments);
+    }
+
+    interface Body0 {
+        Object call(Compiler compiler);
+    }
+
+    interface Body1 {
+        Object call(Compiler compiler, Object a);
+    }
+
+    interface Body2 {
+        Object call(Compiler compiler, Object a, Object b);
+    }
+
+    interface Body3 {
+        Object call(Compiler compiler, Object a, Object b, Object c);
+    }
+
+    final String name;
+    private final int arity;
+    private final Body body;
+
+    NativeFunction(String name, int arity, Body body) {
+        this.name = name;
+        this.arity = arity;
+        this.body = body;
+    }
+
+    static void define(Environment environment, String name, int arity, Body body) {
+        environment.defineBuiltin(name, new NativeFunction(name, arity, body));
+    }
+
+    static void define0(Environment environment, String name, Body0 body) {
+        environment.defineBuiltin(name, new NativeFunction(name, 0, (compiler, arguments) -> body.call(compiler)) {
+            @Override
+            public Object call0(Compiler compiler) {
+                return body.call(compiler);
+            }
+        });
+    }
+
+    static void define1(Environment environment, String name, Body1 body) {
+        environment.defineBuiltin(name, new NativeFunction(name, 1, (compiler, arguments) -> body.call(compiler, arguments.get(0))) {
+            @Override
+            public Object call1(Compiler compiler, Object a) {
+                return body.call(compiler, a);
+            }
+        });
+    }
+
+    static void define2(Environment environment, String name, Body2 body) {
+        environment.defineBuiltin(name, new NativeFunction(name, 2,
+                (compiler, arguments) -> body.call(compiler, arguments.get(0), arguments.get(1))) {
+            @Override
+            public Object call2(Compiler compiler, Object a, Object b) {
+                return body.call(compiler, a, b);
+            }
+        });
+    }
+
+    static void define3(Environment environment, String name, Body3 body) {
+        environment.defineBuiltin(name, new NativeFunction(name, 3,
+                (compiler, arguments) -> body.call(compiler, arguments.get(0), arguments.get(1), arguments.get(2))) {
+            @Override
+            public Object call3(Compiler compiler, Object a, Object b, Object c) {
+                return body.call(compiler, a, b, c);
+            }
+        });
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    @Override
+    public Object call(Compiler compiler, List<Object> arguments) {
+        return body.call(compiler, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return "<native function>";
+    }
+
+    static <T> T expect(Object value, Class<T> type, String message) {
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        throw new NativeError(message);
+    }
+
+    static int expectCount(Object value, String message) {
+        if (value instanceof Long && (long) value >= 0 && (long) value <= Integer.MAX_VALUE) {
+            return (int) (long) value;
+        }
+        if (value instanceof Double) {
+            var number = (double) value;
+            if (number >= 0 && number == Math.rint(number) && number <= Integer.MAX_VALUE) {
+                return (int) number;
+            }
+        }
+        throw new NativeError(message);
+    }
+}
@@ -0,0 +1,156 @@
+package eigen;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * parallelMap(fn, source) and parallelReduce(fn, identity, source) over a
+ * list or over the range 0..n-1 when the source is a number n. The source is
+ * cut into chunks that run on the fork-join common pool, each chunk on its own
+ * Compiler. Chunk boundaries depend only on the source size, so results come
+ * back in source order and reductions combine in the same shape on any
+ * machine.
+ */
+class Parallel {
+
+    private static final int MAX_CHUNKS = 256;
+
+    static void define(Environment builtins) {
+        NativeFunction.define2(builtins, "parallelMap", (compiler, callee, values) -> {
+            var function = function(compiler, callee, 1);
+            var source = source(values);
+            if (compiler.limits != null) {
+                compiler.limits.allocate(Limits.INSTANCE_BYTES + Limits.ELEMENT_BYTES * source.size());
+            }
+            var results = new Object[source.size()];
+            new MapChunk(compiler, function, source, results, 0, source.size(), grain(source.size())).invoke();
+            return new EigenList(new ArrayList<>(Arrays.asList(results)));
+        });
+        NativeFunction.define3(builtins, "parallelReduce", (compiler, callee, identity, values) -> {
+            var function = function(compiler, callee, 2);
+            var source = source(values);
+            return new ReduceChunk(compiler, function, identity, source, 0, source.size(),
+                    grain(source.size())).invoke();
+        });
+    }
+
+    private static EigenCallable function(Compiler compiler, Object value, int arity) {
+        var function = NativeFunction.expect(value, EigenCallable.class, "Can only map a function.");
+        if (function.arity() != arity) {
+            throw new NativeError("Expected a function of " + arity + " arguments.");
+        }
+        Concurrency.share(compiler, function);
+        return function;
+    }
+
+    private static List<Object> source(Object value) {
+        if (value instanceof EigenList) {
+            // Workers read their own copy rather than taking the list's lock.
+            return new ArrayList<>(((EigenList) value).elements);
+        }
+        var count = NativeFunction.expectCount(value, "Can only map over a list or a count.");
+        return new AbstractList<Object>() {
+            @Override
+            public Object get(int index) {
+                return (long) index;
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    private static int grain(int size) {
+        return Math.max(1, (size + MAX_CHUNKS - 1) / MAX_CHUNKS);
+    }
+
+    private static class MapChunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Compiler compiler;
+        private final EigenCallable function;
+        private final List<Object> source;
+        private final Object[] results;
+        private final int start;
+        private final int end;
+        private final int grain;
+
+        MapChunk(Compiler compiler, EigenCallable function, List<Object> source, Object[] results, int start, int end,
+                int grain) {
+            this.compiler = compiler;
+            this.function = function;
+            this.source = source;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= grain) {
+                var worker = compiler.fork();
+                try {
+                    for (int i = start; i < end; i++) {
+                        results[i] = function.call1(worker, source.get(i));
+                    }
+                } finally {
+                    worker.settle();
+                }
+                return;
+            }
+            var middle = start + (end - start) / 2;
+            invokeAll(new MapChunk(compiler, function, source, results, start, middle, grain),
+                    new MapChunk(compiler, function, source, results, middle, end, grain));
+        }
+    }
+
+    private static class ReduceChunk extends RecursiveTask<Object> {
+        private static final long serialVersionUID = 1L;
+        private final Compiler compiler;
+        private final EigenCallable function;
+        private final Object identity;
+        private final List<Object> source;
+        private final int start;
+        private final int end;
+        private final int grain;
+
+        ReduceChunk(Compiler compiler, EigenCallable function, Object identity, List<Object> source, int start,
+                int end, int grain) {
+            this.compiler = compiler;
+            this.function = function;
+            this.identity = identity;
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Object compute() {
+            var worker = compiler.fork();
+            try {
+                if (end - start <= grain) {
+                    var accumulator = identity;
+                    for (int i = start; i < end; i++) {
+                        accumulator = function.call2(worker, accumulator, source.get(i));
+                    }
+                    return accumulator;
+                }
+                var middle = start + (end - start) / 2;
+                var left = new ReduceChunk(compiler, function, identity, source, start, middle, grain);
+                var right = new ReduceChunk(compiler, function, identity, source, middle, end, grain);
+                right.fork();
+                var leftValue = left.compute();
+                return function.call2(worker, leftValue, right.join());
+            } finally {
+                worker.settle();
+            }
+        }
+    }
+}
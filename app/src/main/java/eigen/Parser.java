@@ -1,5 +1,6 @@
 package eigen;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -11,9 +12,22 @@ import static eigen.TokenType.*;
 public class Parser {
     private final List<Token> tokens;
     private int current = 0;
+    final List<Stmt.Import> imports = new ArrayList<>();
+    // Whether function bodies are only brace-matched here and parsed on their
+    // first call.
+    private final boolean lazy;
 
     Parser(List<Token> tokens) {
         this.tokens = tokens;
+        this.lazy = Eigen.lazyFunctions;
+    }
+
+    // Parses the body of a lazily loaded function, starting just after its
+    // opening brace.
+    static List<Stmt> functionBody(List<Token> tokens, int start) {
+        var parser = new Parser(tokens);
+        parser.current = start;
+        return parser.block();
     }
 
     List<Stmt> parse() {
@@ -32,6 +46,8 @@ public class Parser {
                 return function("function");
             if (match(VAR))
                 return varDeclaration();
+            if (match(IMPORT))
+                return importDeclaration();
 
             return statement();
         } catch (ParseError error) {
@@ -77,10 +93,66 @@ public class Parser {
         consume(RIGHT_PAREN, "Expect ')' after parameters.");
 
         consume(LEFT_BRACE, "Expect '{' before" + string + "body.");
+        if (lazy) {
+            var start = current;
+            if (skipBody()) {
+                var function = new Stmt.Function(name, parameters, new ArrayList<>());
+                function.lazy = new LazyBody(tokens, start);
+                return function;
+            }
+            current = start;
+        }
         List<Stmt> body = block();
         return new Stmt.Function(name, parameters, body);
     }
 
+    // Moves past the closing brace of a body without building it. Bodies that
+    // import modules are left to the eager path, since imports are linked
+    // before the program runs.
+    private boolean skipBody() {
+        var depth = 1;
+        while (!isAtEnd()) {
+            switch (advance().type) {
+            case LEFT_BRACE:
+                depth++;
+                break;
+            case RIGHT_BRACE:
+                if (--depth == 0)
+                    return true;
+                break;
+            case IMPORT:
+                return false;
+            default:
+                break;
+            }
+        }
+        return false;
+    }
+
+    private Stmt importDeclaration() {
+        var keyword = previous();
+        var path = consume(STRING, "Expect module path after 'import'.");
+
+        Token name;
+        if (check(IDENTIFIER) && peek().lexeme.equals("as")) {
+            advance();
+            name = consume(IDENTIFIER, "Expect module name after 'as'.");
+        } else {
+            var file = Paths.get((String) path.literal).getFileName().toString();
+            var dot = file.lastIndexOf('.');
+            var module = dot > 0 ? file.substring(0, dot) : file;
+            if (!Lexer.isIdentifier(module)) {
+                error(path, "Module name '" + module + "' is not an identifier; name it with 'as'.");
+            }
+            name = new Token(IDENTIFIER, module, null, path.line);
+        }
+        consume(SEMICOLON, "Expect ';' after import.");
+
+        var stmt = new Stmt.Import(keyword, path, name);
+        imports.add(stmt);
+        return stmt;
+    }
+
     private Stmt varDeclaration() {
 
         var name = consume(IDENTIFIER, "Exepect variable name.");
@@ -106,6 +178,8 @@ public class Parser {
             return returnStatement();
         if (match(WHILE))
             return whileStatement();
+        if (match(YIELD))
+            return yieldStatement();
         if (match(LEFT_BRACE))
             return new Stmt.Block(block());
         return expressionStatement();
@@ -122,7 +196,15 @@ public class Parser {
         return new Stmt.Return(keyword, value);
     }
 
+    private Stmt yieldStatement() {
+        var keyword = previous();
+        var value = expression();
+        consume(SEMICOLON, "Expect ';' after yield value.");
+        return new Stmt.Yield(keyword, value);
+    }
+
     private Stmt forStatement() {
+        var keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'while'.");
 
         Stmt initializer;
@@ -147,12 +229,14 @@ public class Parser {
         consume(RIGHT_PAREN, "Expect ')' after for clauses.");
         var body = statement();
         if (increment != null) {
-            body = new Stmt.Block(Arrays.asList(body, new Stmt.Expression(increment)));
+            var step = new Stmt.Expression(increment);
+            step.line = keyword.line;
+            body = new Stmt.Block(Arrays.asList(body, step));
         }
 
         if (condition == null)
             condition = new Expr.Literal(true);
-        body = new Stmt.While(condition, body);
+        body = new Stmt.While(keyword, condition, body);
 
         if (initializer != null) {
             body = new Stmt.Block(Arrays.asList(initializer, body));
@@ -162,15 +246,17 @@ public class Parser {
     }
 
     private Stmt whileStatement() {
+        var keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'while'.");
         var condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after condition.");
         var body = statement();
 
-        return new Stmt.While(condition, body);
+        return new Stmt.While(keyword, condition, body);
     }
 
     private Stmt ifStatement() {
+        var keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'if'.");
         var condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after 'if' condition.");
@@ -180,7 +266,9 @@ public class Parser {
         if (match(ELSE)) {
             elseBranch = statement();
         }
-        return new Stmt.If(condition, thenBranch, elseBranch);
+        var statement = new Stmt.If(condition, thenBranch, elseBranch);
+        statement.line = keyword.line;
+        return statement;
     }
 
     private List<Stmt> block() {
@@ -195,170 +283,149 @@ public class Parser {
     }
 
     private Stmt expressionStatement() {
+        var line = peek().line;
         var expr = expression();
         consume(SEMICOLON, "Expect ';' after expression.");
-        return new Stmt.Expression(expr);
+        var statement = new Stmt.Expression(expr);
+        statement.line = line;
+        return statement;
     }
 
     private Stmt printStatement() {
+        var keyword = previous();
         var value = expression();
         consume(SEMICOLON, "Expect ';' after value.");
-        return new Stmt.Print(value);
+        var statement = new Stmt.Print(value);
+        statement.line = keyword.line;
+        return statement;
     }
 
-    private Expr expression() {
-        return assignment();
-    }
-
-    private Expr assignment() {
-
-        var expr = or();
+    // How tightly an infix operator binds, loosest first.
+    private enum Precedence {
+        NONE, ASSIGNMENT, OR, AND, EQUALITY, COMPARISON, BITWISE_OR, BITWISE_XOR, BITWISE_AND, SHIFT, TERM, FACTOR,
+        UNARY, CALL;
 
-        if (match(EQUAL)) {
-            Token equals = previous();
-            Expr value = assignment();
-
-            if (expr instanceof Expr.Variable) {
-                Token name = ((Expr.Variable) expr).name;
-                return new Expr.Assign(name, value);
-            } else if (expr instanceof Expr.Get) {
-                Expr.Get get = (Expr.Get) expr;
-                return new Expr.Set(get.object, get.name, value);
-            }
+        private static final Precedence[] levels = values();
 
-            error(equals, "Invalid assignment target.");
+        Precedence next() {
+            return levels[ordinal() + 1];
         }
-
-        return expr;
     }
 
-    private Expr or() {
-        var expr = and();
-
-        while (match(OR)) {
-            var operator = previous();
-            var right = and();
-            expr = new Expr.Logical(expr, operator, right);
-        }
-        return expr;
+    private interface Prefix {
+        Expr parse(Parser parser, Token token);
     }
 
-    private Expr and() {
-
-        var expr = equality();
-
-        while (match(AND)) {
-            var operator = previous();
-            var right = equality();
-            expr = new Expr.Logical(expr, operator, right);
-        }
-        return expr;
+    private interface Infix {
+        Expr parse(Parser parser, Expr left, Token token);
     }
 
-    private Expr equality() {
-        var expr = comparison();
+    // The expression rules, by the type of the token that starts them (prefix)
+    // or that follows their left operand (infix).
+    private static final Prefix[] prefixes = new Prefix[TokenType.values().length];
+    private static final Infix[] infixes = new Infix[TokenType.values().length];
+    private static final Precedence[] precedences = new Precedence[TokenType.values().length];
 
-        while (match(BANG_EQUAL, EQUAL_EQUAL)) {
-            var operator = previous();
-            var right = comparison();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-        return expr;
-    }
-
-    private boolean match(TokenType... types) {
+    static {
+        Arrays.fill(precedences, Precedence.NONE);
+        prefix(FALSE, (parser, token) -> new Expr.Literal(false));
+        prefix(TRUE, (parser, token) -> new Expr.Literal(true));
+        prefix(NULL, (parser, token) -> new Expr.Literal(null));
+        prefix(NUMBER, (parser, token) -> new Expr.Literal(token.literal));
+        prefix(STRING, (parser, token) -> new Expr.Literal(token.literal));
+        prefix(SUPER, (parser, token) -> {
+            parser.consume(DOT, "Expect '.' after 'super'.");
+            Token method = parser.consume(IDENTIFIER, "Expect superclass method name.");
+            return new Expr.Super(token, method);
+        });
+        prefix(THIS, (parser, token) -> new Expr.This(token));
+        prefix(IDENTIFIER, (parser, token) -> new Expr.Variable(token));
+        prefix(LEFT_PAREN, (parser, token) -> {
+            var expr = parser.expression();
+            parser.consume(RIGHT_PAREN, "Expect ')' after expression.");
+            return new Expr.Grouping(expr);
+        });
+        prefix(BANG, Parser::unary);
+        prefix(MINUS, Parser::unary);
+
+        infix(EQUAL, Precedence.ASSIGNMENT, Parser::assignment);
+        infix(OR, Precedence.OR, Parser::logical);
+        infix(AND, Precedence.AND, Parser::logical);
+        binary(Precedence.EQUALITY, BANG_EQUAL, EQUAL_EQUAL);
+        binary(Precedence.COMPARISON, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL);
+        binary(Precedence.BITWISE_OR, BITWISE_OR);
+        binary(Precedence.BITWISE_XOR, BITWISE_XOR);
+        binary(Precedence.BITWISE_AND, BITWISE_AND);
+        binary(Precedence.SHIFT, LESS_LESS, GREATER_GREATER);
+        binary(Precedence.TERM, MINUS, PLUS);
+        binary(Precedence.FACTOR, SLASH, STAR);
+        infix(LEFT_PAREN, Precedence.CALL, (parser, left, token) -> parser.finishCall(left));
+        infix(DOT, Precedence.CALL, (parser, left, token) -> {
+            Token name = parser.consume(IDENTIFIER, "Expect property name after '.'.");
+            return new Expr.Get(left, name);
+        });
+    }
+
+    private static void prefix(TokenType type, Prefix rule) {
+        prefixes[type.ordinal()] = rule;
+    }
+
+    private static void infix(TokenType type, Precedence precedence, Infix rule) {
+        infixes[type.ordinal()] = rule;
+        precedences[type.ordinal()] = precedence;
+    }
+
+    // Binary operators are left-associative: the right operand only takes
+    // operators that bind more tightly.
+    private static void binary(Precedence precedence, TokenType... types) {
         for (var type : types) {
-            if (check(type)) {
-                advance();
-                return true;
-            }
+            infix(type, precedence,
+                    (parser, left, token) -> new Expr.Binary(left, token, parser.expression(precedence.next())));
         }
-        return false;
     }
 
-    private Token advance() {
-        if (!isAtEnd())
-            current++;
-        return previous();
-    }
-
-    private boolean isAtEnd() {
-        return peek().type == EOF;
-    }
-
-    private Token peek() {
-        return tokens.get(current);
-    }
-
-    private boolean check(TokenType type) {
-        if (isAtEnd())
-            return false;
-        return peek().type == type;
-    }
-
-    private Token previous() {
-        return tokens.get(current - 1);
+    private Expr expression() {
+        return expression(Precedence.ASSIGNMENT);
     }
 
-    private Expr comparison() {
-        var expr = term();
-
-        while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
-            var operator = previous();
-            var right = term();
-            expr = new Expr.Binary(expr, operator, right);
+    // Parses an expression made of operators that bind at least as tightly as
+    // precedence.
+    private Expr expression(Precedence precedence) {
+        var prefix = prefixes[peek().type.ordinal()];
+        if (prefix == null) {
+            throw error(peek(), "Expect expression.");
         }
-
-        return expr;
-    }
-
-    private Expr term() {
-        var expr = factor();
-
-        while (match(MINUS, PLUS)) {
-            var operator = previous();
-            var right = factor();
-            expr = new Expr.Binary(expr, operator, right);
+        var expr = prefix.parse(this, advance());
+        while (precedences[peek().type.ordinal()].compareTo(precedence) >= 0) {
+            var operator = advance();
+            expr = infixes[operator.type.ordinal()].parse(this, expr, operator);
         }
-
         return expr;
     }
 
-    private Expr factor() {
-        var expr = unary();
-
-        while (match(SLASH, STAR)) {
-            var operator = previous();
-            var right = unary();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-        return expr;
+    private Expr unary(Token operator) {
+        return new Expr.Unary(operator, expression(Precedence.UNARY));
     }
 
-    private Expr unary() {
-        if (match(BANG, MINUS)) {
-            var operator = previous();
-            var right = unary();
-
-            return new Expr.Unary(operator, right);
-        }
-        return call();
+    private Expr logical(Expr left, Token operator) {
+        var precedence = precedences[operator.type.ordinal()];
+        return new Expr.Logical(left, operator, expression(precedence.next()));
     }
 
-    private Expr call() {
-        var expr = primary();
+    // Assignment is right-associative, so the value may itself be one.
+    private Expr assignment(Expr target, Token equals) {
+        var value = expression(Precedence.ASSIGNMENT);
 
-        while (true) {
-            if (match(LEFT_PAREN)) {
-                expr = finishCall(expr);
-            } else if (match(DOT)) {
-                Token name = consume(IDENTIFIER, "Expect property name after '.'.");
-                expr = new Expr.Get(expr, name);
-            } else {
-                break;
-            }
+        if (target instanceof Expr.Variable) {
+            Token name = ((Expr.Variable) target).name;
+            return new Expr.Assign(name, value);
+        } else if (target instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get) target;
+            return new Expr.Set(get.object, get.name, value);
         }
-        return expr;
+
+        error(equals, "Invalid assignment target.");
+        return target;
     }
 
     private Expr finishCall(Expr expr) {
@@ -376,42 +443,36 @@ public class Parser {
         return new Expr.Call(expr, paren, arguments);
     }
 
-    private Expr primary() {
-        if (match(FALSE)) {
-            return new Expr.Literal(false);
+    private boolean match(TokenType type) {
+        if (check(type)) {
+            advance();
+            return true;
         }
+        return false;
+    }
 
-        if (match(TRUE)) {
-            return new Expr.Literal(true);
-        }
+    private Token advance() {
+        if (!isAtEnd())
+            current++;
+        return previous();
+    }
 
-        if (match(NULL)) {
-            return new Expr.Literal(null);
-        }
+    private boolean isAtEnd() {
+        return peek().type == EOF;
+    }
 
-        if (match(NUMBER, STRING)) {
-            return new Expr.Literal(previous().literal);
-        }
-        if (match(SUPER)) {
-            Token keyword = previous();
-            consume(DOT, "Expect '.' after 'super'.");
-            Token method = consume(IDENTIFIER, "Expect superclass method name.");
-            return new Expr.Super(keyword, method);
-        }
+    private Token peek() {
+        return tokens.get(current);
+    }
 
-        if (match(THIS)) {
-            return new Expr.This(previous());
-        }
-        if (match(IDENTIFIER)) {
-            return new Expr.Variable(previous());
-        }
+    private boolean check(TokenType type) {
+        if (isAtEnd())
+            return false;
+        return peek().type == type;
+    }
 
-        if (match(LEFT_PAREN)) {
-            var expr = expression();
-            consume(RIGHT_PAREN, "Expect ')' after expression.");
-            return new Expr.Grouping(expr);
-        }
-        throw error(peek(), "Expect expression.");
+    private Token previous() {
+        return tokens.get(current - 1);
     }
 
     private Token consume(TokenType type, String message) {
@@ -427,6 +488,7 @@ public class Parser {
     }
 
     private static class ParseError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
     }
 
     private void synchronize() {
@@ -440,11 +502,13 @@ public class Parser {
             case CLASS:
             case FUN:
             case VAR:
+            case IMPORT:
             case FOR:
             case IF:
             case WHILE:
             case PRINT:
             case RETURN:
+            case YIELD:
                 return;
             default:
                 break;
@@ -0,0 +1,127 @@
+package eigen;
+
+/**
+ * A hook a Java tool attaches to a script through Instruments: a kind of
+ * event, an optional source line and function name to narrow it to, and the
+ * handler that runs when a matching event happens. Set the filters before
+ * attaching the probe.
+ *
+ * Events of an instrumented run happen on whichever thread runs the Eigen
+ * code, so a handler shared by spawned tasks or parallel workers must be
+ * thread-safe. A handler that throws stops the run as the Java exception it
+ * threw.
+ */
+public final class Probe {
+
+    public enum Kind {
+        // Before a statement other than a block runs.
+        STATEMENT,
+        // When an Eigen function is called, with its arguments as the value.
+        ENTER,
+        // When an Eigen function returns, with what it returned as the value.
+        EXIT,
+        // After a property is read, with the object, name and value read.
+        GET,
+        // After a field is set, with the object, name and value assigned.
+        SET,
+        // When a runtime error leaves the function or top level it happened
+        // in, with its message as the value.
+        ERROR
+    }
+
+    public interface Handler {
+        void handle(Event event);
+    }
+
+    // What a probe saw. Function is the Eigen function the event happened in
+    // (the one called, for ENTER and EXIT), or null at the top level.
+    public static final class Event {
+        private final Kind kind;
+        private final int line;
+        private final String function;
+        private final String name;
+        private final Object object;
+        private final Object value;
+
+        Event(Kind kind, int line, String function, String name, Object object, Object value) {
+            this.kind = kind;
+            this.line = line;
+            this.function = function;
+            this.name = name;
+            this.object = object;
+            this.value = value;
+        }
+
+        public Kind kind() {
+            return kind;
+        }
+
+        public int line() {
+            return line;
+        }
+
+        public String function() {
+            return function;
+        }
+
+        // The property of a GET or SET, otherwise null.
+        public String name() {
+            return name;
+        }
+
+        // The instance or module of a GET or SET, otherwise null.
+        public Object object() {
+            return object;
+        }
+
+        public Object value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            var text = kind + " [line " + line + "]";
+            if (function != null) {
+                text += " in " + function;
+            }
+            if (name != null) {
+                text += " ." + name;
+            }
+            return text;
+        }
+    }
+
+    private final Kind kind;
+    private final Handler handler;
+    private int line;
+    private String function;
+
+    public Probe(Kind kind, Handler handler) {
+        this.kind = kind;
+        this.handler = handler;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    // Only events on this line; zero, the default, matches every line. ENTER
+    // and EXIT are on the line the function is declared on.
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    // Only events in the Eigen function of this name; null, the default,
+    // matches the top level and every function.
+    public void setFunction(String name) {
+        function = name;
+    }
+
+    boolean matches(int line, String function) {
+        return (this.line == 0 || this.line == line) && (this.function == null || this.function.equals(function));
+    }
+
+    void handle(Event event) {
+        handler.handle(event);
+    }
+}
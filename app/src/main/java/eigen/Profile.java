@@ -0,0 +1,298 @@
+package eigen;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Type feedback kept from one run of a script to the next, with
+ * -Deigen.profile=file. While a script runs, every function counts its calls
+ * and every operator the Typer could not prove records the kinds of operands
+ * it sees in its first evaluations. When the script ends these are written
+ * to the file, keyed by function name and line and by each operator's line
+ * and place on it.
+ *
+ * The closure engine records inside the lambdas it would run anyway, since a
+ * separate recording lambda at a site skews what the JVM learns about the
+ * calls around it, and only where both operands could be floats. The stack
+ * engine compiles a function again once it has been sampled, without the
+ * recording instructions.
+ *
+ * The next run of the same source reads the file back before anything
+ * executes. Functions that were called are parsed, resolved and compiled for
+ * the running engine up front, most-called first, instead of on their first
+ * call. Operators that only ever saw two floats take a float path guarded by
+ * two instanceof checks, falling back to the general one when the guess is
+ * wrong. A profile written for other source is ignored.
+ *
+ * Only the script given on the command line is profiled, not its imports.
+ */
+final class Profile {
+    static final boolean enabled = Eigen.profile != null;
+
+    // Operand kinds recorded in Expr.Binary.seen.
+    private static final int INTEGERS = 1;
+    private static final int FLOATS = 2;
+    private static final int MIXED = 4;
+    private static final int STRINGS = 8;
+    private static final int OTHER = 16;
+
+    // Evaluations of an operator recorded before it is taken to be known,
+    // and calls after which a function is compiled again without recording.
+    private static final int SAMPLES = 1000;
+
+    private Profile() {
+    }
+
+    // Whether expr still records its operands: it is unproven and has not
+    // been sampled enough yet.
+    static boolean sampling(Expr.Binary expr) {
+        return expr.operands == null && expr.samples < SAMPLES;
+    }
+
+    static void binary(Expr.Binary expr, Object left, Object right) {
+        if (!sampling(expr)) {
+            return;
+        }
+        expr.samples++;
+        int kind;
+        if (left instanceof Long && right instanceof Long) {
+            kind = INTEGERS;
+        } else if (left instanceof Double && right instanceof Double) {
+            kind = FLOATS;
+        } else if (left instanceof Number && right instanceof Number) {
+            kind = MIXED;
+        } else if (left instanceof CharSequence && right instanceof CharSequence) {
+            kind = STRINGS;
+        } else {
+            kind = OTHER;
+        }
+        if ((expr.seen & kind) == 0) {
+            expr.seen |= kind;
+        }
+    }
+
+    static void call(Stmt.Function declaration) {
+        declaration.calls++;
+    }
+
+    // Whether the call just counted is the one after which declaration's
+    // operators have been sampled, so its compiled body can drop the
+    // recording.
+    static boolean sampled(Stmt.Function declaration) {
+        return enabled && declaration.calls == SAMPLES + 1;
+    }
+
+    // Applies the profile left by the last run of source, if there is one.
+    static void load(List<Stmt> statements, String source) {
+        var path = path();
+        var profile = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            profile.load(reader);
+        } catch (NoSuchFileException error) {
+            return;
+        } catch (IOException error) {
+            System.err.println("Could not read profile '" + path + "': " + error.getMessage());
+            return;
+        }
+        if (!checksum(source).equals(profile.getProperty("source"))) {
+            return;
+        }
+        Map<Stmt.Function, Long> hot = new HashMap<>();
+        new Sites() {
+            @Override
+            boolean function(Stmt.Function function, String key) {
+                var calls = Long.parseLong(profile.getProperty("function." + key, "0"));
+                if (calls == 0) {
+                    return false;
+                }
+                hot.put(function, calls);
+                if (function.lazy != null) {
+                    try {
+                        LazyBody.materialize(function);
+                    } catch (RuntimeError error) {
+                        // Reported again by the call that needs the body.
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            void binary(Expr.Binary expr, String key) {
+                var seen = Integer.parseInt(profile.getProperty("binary." + key, "0"));
+                if (seen == FLOATS && expr.operands == null && floatOperator(expr.operator.type)) {
+                    expr.speculated = Typer.Type.FLOAT;
+                }
+            }
+        }.walk(statements);
+        List<Stmt.Function> functions = new ArrayList<>(hot.keySet());
+        functions.sort((a, b) -> Long.compare(hot.get(b), hot.get(a)));
+        for (var function : functions) {
+            if (Eigen.closureEngine) {
+                ClosureCompiler.precompile(function);
+            } else if (Eigen.stackEngine) {
+                StackCompiler.precompile(function);
+            }
+        }
+    }
+
+    // Writes what this run of source recorded, replacing the last profile.
+    static void save(List<Stmt> statements, String source) {
+        var profile = new Properties();
+        profile.setProperty("source", checksum(source));
+        new Sites() {
+            @Override
+            boolean function(Stmt.Function function, String key) {
+                if (function.calls == 0) {
+                    return false;
+                }
+                profile.setProperty("function." + key, Long.toString(function.calls));
+                return true;
+            }
+
+            @Override
+            void binary(Expr.Binary expr, String key) {
+                if (expr.seen != 0) {
+                    profile.setProperty("binary." + key, Integer.toString(expr.seen));
+                }
+            }
+        }.walk(statements);
+        var path = path();
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            profile.store(writer, "eigen profile");
+        } catch (IOException error) {
+            System.err.println("Could not write profile '" + path + "': " + error.getMessage());
+        }
+    }
+
+    private static Path path() {
+        return Paths.get(Eigen.profile);
+    }
+
+    private static String checksum(String source) {
+        var crc = new CRC32();
+        crc.update(source.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static boolean floatOperator(TokenType operator) {
+        switch (operator) {
+        case PLUS:
+        case MINUS:
+        case STAR:
+        case SLASH:
+        case GREATER:
+        case GREATER_EQUAL:
+        case LESS:
+        case LESS_EQUAL:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    // Walks a script in source order, naming each function name@line and
+    // each operator in it function/line.index, where index counts the
+    // operators before it on its line in the same function. A function's
+    // body is only walked when function() returns true.
+    private abstract static class Sites {
+        private String function = "";
+        private Map<Integer, Integer> lines = new HashMap<>();
+
+        abstract boolean function(Stmt.Function function, String key);
+
+        abstract void binary(Expr.Binary expr, String key);
+
+        void walk(List<Stmt> statements) {
+            for (var statement : statements) {
+                walk(statement);
+            }
+        }
+
+        private void walk(Stmt stmt) {
+            if (stmt instanceof Stmt.Expression) {
+                walk(((Stmt.Expression) stmt).expression);
+            } else if (stmt instanceof Stmt.Print) {
+                walk(((Stmt.Print) stmt).expression);
+            } else if (stmt instanceof Stmt.Var) {
+                walk(((Stmt.Var) stmt).initializer);
+            } else if (stmt instanceof Stmt.Block) {
+                walk(((Stmt.Block) stmt).statements);
+            } else if (stmt instanceof Stmt.If) {
+                var ifStmt = (Stmt.If) stmt;
+                walk(ifStmt.condition);
+                walk(ifStmt.thenBranch);
+                walk(ifStmt.elseBranch);
+            } else if (stmt instanceof Stmt.While) {
+                walk(((Stmt.While) stmt).condition);
+                walk(((Stmt.While) stmt).body);
+            } else if (stmt instanceof Stmt.Return) {
+                walk(((Stmt.Return) stmt).value);
+            } else if (stmt instanceof Stmt.Yield) {
+                walk(((Stmt.Yield) stmt).value);
+            } else if (stmt instanceof Stmt.Function) {
+                walkFunction((Stmt.Function) stmt);
+            } else if (stmt instanceof Stmt.Class) {
+                for (var method : ((Stmt.Class) stmt).methods) {
+                    walkFunction(method);
+                }
+            }
+        }
+
+        private void walkFunction(Stmt.Function declaration) {
+            var key = declaration.name.lexeme + "@" + declaration.name.line;
+            if (!function(declaration, key)) {
+                return;
+            }
+            var enclosingFunction = function;
+            var enclosingLines = lines;
+            function = key;
+            lines = new HashMap<>();
+            walk(declaration.body);
+            function = enclosingFunction;
+            lines = enclosingLines;
+        }
+
+        private void walk(Expr expr) {
+            if (expr instanceof Expr.Binary) {
+                var binary = (Expr.Binary) expr;
+                walk(binary.left);
+                walk(binary.right);
+                var line = binary.operator.line;
+                var index = lines.merge(line, 1, Integer::sum) - 1;
+                binary(binary, function + "/" + line + "." + index);
+            } else if (expr instanceof Expr.Logical) {
+                walk(((Expr.Logical) expr).left);
+                walk(((Expr.Logical) expr).right);
+            } else if (expr instanceof Expr.Unary) {
+                walk(((Expr.Unary) expr).right);
+            } else if (expr instanceof Expr.Grouping) {
+                walk(((Expr.Grouping) expr).expression);
+            } else if (expr instanceof Expr.Assign) {
+                walk(((Expr.Assign) expr).value);
+            } else if (expr instanceof Expr.Call) {
+                walk(((Expr.Call) expr).callee);
+                for (var argument : ((Expr.Call) expr).arguments) {
+                    walk(argument);
+                }
+            } else if (expr instanceof Expr.Get) {
+                walk(((Expr.Get) expr).object);
+            } else if (expr instanceof Expr.Set) {
+                walk(((Expr.Set) expr).object);
+                walk(((Expr.Set) expr).value);
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package eigen;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -27,12 +30,20 @@ import eigen.Stmt.Var;
 import eigen.Stmt.While;
 
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
-    private final Compiler compiler;
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+    // Each scope maps a symbol to whether its variable is defined yet.
+    private final Stack<SymbolMap> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
+    // The function being resolved, which a yield makes a generator, and the
+    // first return in it that has a value, which a generator may not have.
+    private Function currentDeclaration;
+    private Token valueReturn;
+    // Calls marked as intrinsics so far, by name, and the intrinsic names the
+    // unit assigns to as globals. Such an assignment rebinds the builtin
+    // itself, so no call to that name may stay an intrinsic.
+    private final Map<String, List<Call>> intrinsicCalls = new HashMap<>();
+    private HashSet<String> reboundIntrinsics = new HashSet<>();
 
-    Resolver(Compiler compiler) {
-        this.compiler = compiler;
+    Resolver() {
     }
 
     private enum ClassType {
@@ -68,7 +79,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     }
 
     private void beginScope() {
-        scopes.push(new HashMap<String, Boolean>());
+        scopes.push(new SymbolMap());
     }
 
     private void endScope() {
@@ -89,18 +100,18 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         if (scopes.isEmpty()) {
             return;
         }
-        Map<String, Boolean> scope = scopes.peek();
-        if (scope.containsKey(name.lexeme)) {
+        var scope = scopes.peek();
+        if (scope.contains(name.symbol())) {
             Eigen.error(name, "Already a variable with this name in this scope.");
         }
-        scope.put(name.lexeme, false);
+        scope.put(name.symbol(), false);
     }
 
     private void define(Token name) {
         if (scopes.isEmpty()) {
             return;
         }
-        scopes.peek().put(name.lexeme, true);
+        scopes.peek().put(name.symbol(), true);
     }
 
     @Override
@@ -119,8 +130,20 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     }
 
     private void resolveFunction(Function function, FunctionType type) {
+        if (function.lazy != null) {
+            function.lazy.scope = new Snapshot(this, type);
+            return;
+        }
+        resolveBody(function, type);
+    }
+
+    private void resolveBody(Function function, FunctionType type) {
         var enclosingFunction = currentFunction;
+        var enclosingDeclaration = currentDeclaration;
+        var enclosingReturn = valueReturn;
         currentFunction = type;
+        currentDeclaration = function;
+        valueReturn = null;
         beginScope();
         for (var param : function.params) {
             declare(param);
@@ -128,7 +151,50 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         }
         resolve(function.body);
         endScope();
+        if (function.generator && valueReturn != null) {
+            Eigen.error(valueReturn, "Can't return a value from a generator.");
+        }
         currentFunction = enclosingFunction;
+        currentDeclaration = enclosingDeclaration;
+        valueReturn = enclosingReturn;
+    }
+
+    @Override
+    public Void visitImportStmt(Stmt.Import stmt) {
+        declare(stmt.name);
+        define(stmt.name);
+        return null;
+    }
+
+    // What a lazily parsed function body can see, captured where the function
+    // is declared so that resolving it later gives the same depths.
+    static class Snapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final List<SymbolMap> scopes = new ArrayList<>();
+        private final ClassType currentClass;
+        private final FunctionType type;
+        // Shared with the declaring resolver, so it is complete by the time
+        // the body is resolved.
+        private final HashSet<String> reboundIntrinsics;
+
+        private Snapshot(Resolver resolver, FunctionType type) {
+            for (var scope : resolver.scopes) {
+                var copy = new SymbolMap();
+                scope.copyInto(copy);
+                scopes.add(copy);
+            }
+            this.currentClass = resolver.currentClass;
+            this.type = type;
+            this.reboundIntrinsics = resolver.reboundIntrinsics;
+        }
+    }
+
+    static void resolveLazy(Function function, Snapshot snapshot) {
+        var resolver = new Resolver();
+        resolver.scopes.addAll(snapshot.scopes);
+        resolver.currentClass = snapshot.currentClass;
+        resolver.reboundIntrinsics = snapshot.reboundIntrinsics;
+        resolver.resolveBody(function, snapshot.type);
     }
 
     @Override
@@ -156,11 +222,27 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             if (currentFunction == FunctionType.INITIALIZER) {
                 Eigen.error(stmt.keyword, "Can't return a value from an initializer.");
             }
+            if (valueReturn == null) {
+                valueReturn = stmt.keyword;
+            }
             resolve(stmt.value);
         }
         return null;
     }
 
+    @Override
+    public Void visitYieldStmt(Stmt.Yield stmt) {
+        if (currentFunction == FunctionType.NONE) {
+            Eigen.error(stmt.keyword, "Can't yield from top-level code.");
+        } else if (currentFunction == FunctionType.INITIALIZER) {
+            Eigen.error(stmt.keyword, "Can't yield from an initializer.");
+        } else {
+            currentDeclaration.generator = true;
+        }
+        resolve(stmt.value);
+        return null;
+    }
+
     @Override
     public Void visitWhileStmt(While stmt) {
         resolve(stmt.condition);
@@ -171,7 +253,13 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitAssignExpr(Assign expr) {
         resolve(expr.value);
-        resolveLocal(expr, expr.name);
+        expr.depth = resolveLocal(expr.name);
+        if (expr.depth < 0 && Intrinsic.isIntrinsic(expr.name.lexeme)) {
+            reboundIntrinsics.add(expr.name.lexeme);
+            for (var call : intrinsicCalls.getOrDefault(expr.name.lexeme, List.of())) {
+                call.intrinsic = null;
+            }
+        }
         return null;
     }
 
@@ -189,6 +277,15 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         for (var argument : expr.arguments) {
             resolve(argument);
         }
+
+        if (expr.callee instanceof Variable && ((Variable) expr.callee).depth < 0) {
+            var name = ((Variable) expr.callee).name.lexeme;
+            var intrinsic = Intrinsic.named(name, expr.arguments.size());
+            if (intrinsic != null && !reboundIntrinsics.contains(name)) {
+                expr.intrinsic = intrinsic;
+                intrinsicCalls.computeIfAbsent(name, key -> new ArrayList<>()).add(expr);
+            }
+        }
         return null;
     }
 
@@ -218,20 +315,21 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitVariableExpr(Variable expr) {
-        if (!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
+        if (!scopes.isEmpty() && scopes.peek().get(expr.name.symbol()) == Boolean.FALSE) {
             Eigen.error(expr.name, "Can't read local variable in its own initializer.");
         }
-        resolveLocal(expr, expr.name);
+        expr.depth = resolveLocal(expr.name);
         return null;
     }
 
-    private void resolveLocal(Expr expr, Token name) {
+    // Returns how many scopes out the variable lives, or -1 for a global.
+    private int resolveLocal(Token name) {
         for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme)) {
-                compiler.resolve(expr, scopes.size() - 1 - i);
-                return;
+            if (scopes.get(i).contains(name.symbol())) {
+                return scopes.size() - 1 - i;
             }
         }
+        return -1;
     }
 
     @Override
@@ -250,10 +348,10 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         }
         if (stmt.superclass != null) {
             beginScope();
-            scopes.peek().put("super", true);
+            scopes.peek().put(Symbol.SUPER, true);
         }
         beginScope();
-        scopes.peek().put("this", true);
+        scopes.peek().put(Symbol.THIS, true);
         for (var method : stmt.methods) {
             var declaration = FunctionType.METHOD;
             if (method.name.lexeme.equals("init")) {
@@ -276,7 +374,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         } else if (currentClass != ClassType.SUBCLASS) {
             Eigen.error(expr.keyword, "Can't use 'super' in a class with no superclass.");
         }
-        resolveLocal(expr, expr.keyword);
+        expr.depth = resolveLocal(expr.keyword);
         return null;
     }
 
@@ -299,7 +397,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             Eigen.error(expr.keyword, "Can't use 'this' outside of a class.");
             return null;
         }
-        resolveLocal(expr, expr.keyword);
+        expr.depth = resolveLocal(expr.keyword);
         return null;
     }
 }
@@ -1,6 +1,7 @@
 package eigen;
 
 public class Return extends RuntimeException {
+    private static final long serialVersionUID = 1L;
     final Object value;
 
     public Return(Object value) {
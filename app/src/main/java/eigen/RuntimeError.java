@@ -1,6 +1,7 @@
 package eigen;
 
 public class RuntimeError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
 
     final Token token;
 
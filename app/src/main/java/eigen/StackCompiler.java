@@ -0,0 +1,841 @@
+package eigen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The explicit-stack engine, selected with -Deigen.engine=stack. Function
+ * bodies are flattened once into a chunk of int instructions, and the
+ * machine runs them with its frames and operands in growable arrays, so a
+ * call to an Eigen function pushes a Frame instead of a dozen Java frames and
+ * recursion depth is bounded by Eigen.maxDepth rather than the thread's
+ * stack size.
+ *
+ * Every Compiler has its own machine. Natives that call back into Eigen
+ * (parallel map, memoize, ...) re-enter it through call, which runs a nested
+ * loop on the same stacks until the frame it pushed returns. Class and import
+ * statements are rare and run through the visitor.
+ *
+ * Generators get a machine of their own whatever the engine. A yield saves
+ * the frame's pc and environment and returns from the loop, leaving the frame
+ * where it is; resume picks the loop up again from it.
+ */
+class StackCompiler {
+
+    private static final int CONSTANT = 0;
+    private static final int POP = 1;
+    private static final int GET_LOCAL = 2;
+    private static final int SET_LOCAL = 3;
+    private static final int GET_GLOBAL = 4;
+    private static final int SET_GLOBAL = 5;
+    private static final int DEFINE = 6;
+    private static final int GET_PROPERTY = 7;
+    private static final int SET_PROPERTY = 8;
+    private static final int SUPER = 9;
+    private static final int ADD = 10;
+    private static final int SUBTRACT = 11;
+    private static final int MULTIPLY = 12;
+    private static final int DIVIDE = 13;
+    private static final int LESS = 14;
+    private static final int LESS_EQUAL = 15;
+    private static final int GREATER = 16;
+    private static final int GREATER_EQUAL = 17;
+    private static final int EQUAL = 18;
+    private static final int NOT_EQUAL = 19;
+    private static final int NOT = 20;
+    private static final int NEGATE = 21;
+    private static final int JUMP = 22;
+    private static final int JUMP_IF_FALSE = 23;
+    private static final int JUMP_IF_FALSE_KEEP = 24;
+    private static final int JUMP_IF_TRUE_KEEP = 25;
+    private static final int LOOP = 26;
+    private static final int PRINT = 27;
+    private static final int CALL = 28;
+    private static final int CLOSURE = 29;
+    private static final int PUSH_SCOPE = 30;
+    private static final int POP_SCOPE = 31;
+    private static final int STATEMENT = 32;
+    private static final int RESULT = 33;
+    private static final int RETURN = 34;
+    private static final int HALT = 35;
+    private static final int BITWISE = 36;
+    private static final int INTRINSIC = 37;
+    private static final int YIELD = 38;
+    // Operators on two proven integers, or numbers one of them a float,
+    // with the operator's TokenType as operand.
+    private static final int INTEGERS = 39;
+    private static final int FLOATS = 40;
+    // A profiled guess that both operands are floats, with the Expr.Binary as
+    // operand for when they are not.
+    private static final int GUESS_FLOATS = 41;
+    // Records the two operands on top of the stack for the Expr.Binary
+    // operand, when profiling.
+    private static final int PROFILE = 42;
+    // As INTEGERS, for two proven numbers of either kind.
+    private static final int NUMBERS = 43;
+
+    // A flattened body. Operands follow their opcode in code and index into
+    // constants, except local names, which are their symbols inline; tokens
+    // for error reporting live in constants too.
+    static final class Chunk {
+        final int[] code;
+        final Object[] constants;
+
+        Chunk(int[] code, Object[] constants) {
+            this.code = code;
+            this.constants = constants;
+        }
+    }
+
+    private static final class Frame {
+        Chunk chunk;
+        int pc;
+        Environment environment;
+        // Where the operand stack is cut back to when this frame returns.
+        int base;
+        // The function running in this frame when the machine entered it
+        // itself, for initializers and frame accounting.
+        EigenFunction function;
+        // The globals the frame's code looks global names up in.
+        Globals globals;
+        // The value of the last top-level expression statement.
+        Object result;
+    }
+
+    private final Compiler compiler;
+    private Frame[] frames = new Frame[16];
+    private int depth;
+    private Object[] values = new Object[64];
+    private int top;
+    // Whether the loop last returned from a yield rather than a return.
+    private boolean suspended;
+
+    StackCompiler(Compiler compiler) {
+        this.compiler = compiler;
+    }
+
+    // A machine for one generator. It starts with room for a few frames, as
+    // most generator bodies call little.
+    StackCompiler(Compiler compiler, Stmt.Function declaration, Environment environment) {
+        this.compiler = compiler;
+        this.frames = new Frame[4];
+        this.values = new Object[16];
+        push(chunk(declaration), environment, 0, null, declaration.name);
+    }
+
+    Object run(List<Stmt> statements) {
+        var chunk = new Emitter(true).chunk(statements);
+        return execute(chunk, compiler.globals, null);
+    }
+
+    // Runs a function body in its frame and returns what it returned. Used
+    // when the call comes from outside the machine, such as from a native.
+    Object call(Stmt.Function declaration, Environment environment) {
+        return execute(chunk(declaration), environment, declaration.name);
+    }
+
+    // Runs a generator's machine to its next yield and returns the value
+    // yielded, or to its end and returns null. suspended tells the two apart.
+    Object resume() {
+        return resume(0);
+    }
+
+    boolean suspended() {
+        return suspended;
+    }
+
+    // Builds a function's chunk ahead of its first call.
+    static void precompile(Stmt.Function declaration) {
+        chunk(declaration);
+    }
+
+    // The flattened body of a function, built on its first call.
+    private static Chunk chunk(Stmt.Function declaration) {
+        if (declaration.lazy != null) {
+            LazyBody.materialize(declaration);
+        }
+        if (Profile.sampled(declaration)) {
+            declaration.chunk = null;
+        }
+        var chunk = declaration.chunk;
+        if (chunk == null) {
+            synchronized (declaration) {
+                chunk = declaration.chunk;
+                if (chunk == null) {
+                    chunk = new Emitter(false).chunk(declaration.body);
+                    declaration.chunk = chunk;
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private Object execute(Chunk entryChunk, Environment entryEnvironment, Token token) {
+        var entry = depth;
+        push(entryChunk, entryEnvironment, top, null, token);
+        return resume(entry);
+    }
+
+    // Runs the frames above entry from where the top one left off until the
+    // bottom one returns or yields.
+    private Object resume(int entry) {
+        suspended = false;
+        var frame = frames[depth - 1];
+        var code = frame.chunk.code;
+        var constants = frame.chunk.constants;
+        var pc = frame.pc;
+        var environment = frame.environment;
+        var callerGlobals = compiler.globals;
+        compiler.globals = frame.globals;
+        try {
+            for (;;) {
+                switch (code[pc++]) {
+                case CONSTANT:
+                    push(constants[code[pc++]]);
+                    break;
+                case POP:
+                    values[--top] = null;
+                    break;
+                case GET_LOCAL: {
+                    var distance = code[pc++];
+                    push(environment.getAt(distance, code[pc++]));
+                    break;
+                }
+                case SET_LOCAL: {
+                    var distance = code[pc++];
+                    environment.assignAt(distance, (Token) constants[code[pc++]], values[top - 1]);
+                    break;
+                }
+                case GET_GLOBAL:
+                    push(compiler.globals.get((Expr.Variable) constants[code[pc++]]));
+                    break;
+                case SET_GLOBAL:
+                    compiler.globals.assign((Expr.Assign) constants[code[pc++]], values[top - 1]);
+                    break;
+                case DEFINE:
+                    environment.define(code[pc++], values[--top]);
+                    values[top] = null;
+                    break;
+                case GET_PROPERTY:
+                    values[top - 1] = compiler.getProperty((Token) constants[code[pc++]], values[top - 1]);
+                    break;
+                case SET_PROPERTY: {
+                    var name = (Token) constants[code[pc++]];
+                    var value = values[--top];
+                    compiler.setField(name, Compiler.fieldsOf(name, values[top - 1]), value);
+                    values[top - 1] = value;
+                    values[top] = null;
+                    break;
+                }
+                case SUPER:
+                    push(Compiler.superMethod((Expr.Super) constants[code[pc++]], environment));
+                    break;
+                case ADD: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    var l = values[top - 1];
+                    values[top] = null;
+                    if (l instanceof CharSequence && r instanceof CharSequence) {
+                        values[top - 1] = compiler.concatenate(operator, (CharSequence) l, (CharSequence) r);
+                    } else {
+                        values[top - 1] = Arithmetic.add(operator, l, r);
+                    }
+                    break;
+                }
+                case SUBTRACT: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.subtract(operator, values[top - 1], r);
+                    break;
+                }
+                case MULTIPLY: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.multiply(operator, values[top - 1], r);
+                    break;
+                }
+                case DIVIDE: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.divide(operator, values[top - 1], r);
+                    break;
+                }
+                case LESS: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.less(operator, values[top - 1], r);
+                    break;
+                }
+                case LESS_EQUAL: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.lessEqual(operator, values[top - 1], r);
+                    break;
+                }
+                case GREATER: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.greater(operator, values[top - 1], r);
+                    break;
+                }
+                case GREATER_EQUAL: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.greaterEqual(operator, values[top - 1], r);
+                    break;
+                }
+                case BITWISE: {
+                    var operator = (Token) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.bitwise(operator, values[top - 1], r);
+                    break;
+                }
+                case INTEGERS: {
+                    var operator = (TokenType) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.integers(operator, (long) values[top - 1], (long) r);
+                    break;
+                }
+                case FLOATS: {
+                    var operator = (TokenType) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.floats(operator, ((Number) values[top - 1]).doubleValue(),
+                            ((Number) r).doubleValue());
+                    break;
+                }
+                case NUMBERS: {
+                    var operator = (TokenType) constants[code[pc++]];
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Arithmetic.numbers(operator, values[top - 1], r);
+                    break;
+                }
+                case GUESS_FLOATS: {
+                    var binary = (Expr.Binary) constants[code[pc++]];
+                    var r = values[--top];
+                    var l = values[top - 1];
+                    values[top] = null;
+                    if (l instanceof Double && r instanceof Double) {
+                        values[top - 1] = Arithmetic.floats(binary.operator.type, (double) l, (double) r);
+                    } else {
+                        values[top - 1] = compiler.binary(binary, l, r);
+                    }
+                    break;
+                }
+                case PROFILE:
+                    Profile.binary((Expr.Binary) constants[code[pc++]], values[top - 2], values[top - 1]);
+                    break;
+                case EQUAL: {
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = Compiler.isEqual(values[top - 1], r);
+                    break;
+                }
+                case NOT_EQUAL: {
+                    var r = values[--top];
+                    values[top] = null;
+                    values[top - 1] = !Compiler.isEqual(values[top - 1], r);
+                    break;
+                }
+                case NOT:
+                    values[top - 1] = !Compiler.isTruthy(values[top - 1]);
+                    break;
+                case NEGATE:
+                    values[top - 1] = Arithmetic.negate((Token) constants[code[pc++]], values[top - 1]);
+                    break;
+                case JUMP:
+                    pc = code[pc];
+                    break;
+                case JUMP_IF_FALSE: {
+                    var condition = values[--top];
+                    values[top] = null;
+                    pc = Compiler.isTruthy(condition) ? pc + 1 : code[pc];
+                    break;
+                }
+                case JUMP_IF_FALSE_KEEP:
+                    pc = Compiler.isTruthy(values[top - 1]) ? pc + 1 : code[pc];
+                    break;
+                case JUMP_IF_TRUE_KEEP:
+                    pc = Compiler.isTruthy(values[top - 1]) ? code[pc] : pc + 1;
+                    break;
+                case LOOP:
+                    compiler.tick((Token) constants[code[pc + 1]]);
+                    pc = code[pc];
+                    break;
+                case PRINT:
+                    compiler.print(values[--top]);
+                    values[top] = null;
+                    break;
+                case CALL: {
+                    var count = code[pc++];
+                    var expr = (Expr.Call) constants[code[pc++]];
+                    var base = top - count - 1;
+                    var callee = compiler.globals.constantCallee(expr);
+                    if (callee == null) {
+                        callee = compiler.callable(expr, values[base], count);
+                    }
+                    EigenFunction target = null;
+                    if (callee instanceof EigenFunction) {
+                        target = (EigenFunction) callee;
+                        if (target.declaration.lazy != null) {
+                            LazyBody.materialize(target.declaration);
+                        }
+                        if (target.declaration.generator) {
+                            // Calling a generator makes one; the native path below does that.
+                            target = null;
+                        }
+                    } else if (callee instanceof EigenClass) {
+                        var eigenClass = (EigenClass) callee;
+                        var instance = eigenClass.instantiate(compiler);
+                        var initializer = eigenClass.findMethod(Symbol.INIT);
+                        if (initializer == null) {
+                            Arrays.fill(values, base, top, null);
+                            top = base;
+                            push(instance);
+                            break;
+                        }
+                        target = initializer.bind(instance);
+                    }
+                    if (target == null) {
+                        var arguments = Arrays.copyOfRange(values, base + 1, top);
+                        Object result;
+                        try {
+                            result = callee.call(compiler, arguments);
+                        } catch (NativeError error) {
+                            throw new RuntimeError(expr.paren, error.getMessage());
+                        } catch (StackOverflowError error) {
+                            throw Compiler.stackOverflow(expr.paren);
+                        }
+                        Arrays.fill(values, base, top, null);
+                        top = base;
+                        push(result);
+                        break;
+                    }
+                    var declaration = target.declaration;
+                    if (Profile.enabled) {
+                        Profile.call(declaration);
+                    }
+                    var callEnvironment = new Environment(target.closure);
+                    for (int i = 0; i < count; i++) {
+                        callEnvironment.define(declaration.params.get(i).symbol(), values[base + 1 + i]);
+                    }
+                    if (compiler.limits != null) {
+                        compiler.tick(declaration.name);
+                        compiler.limits.allocate(expr.paren, Limits.FRAME_BYTES);
+                    }
+                    frame.pc = pc;
+                    frame.environment = environment;
+                    push(chunk(declaration), callEnvironment, base, target, expr.paren);
+                    frame = frames[depth - 1];
+                    code = frame.chunk.code;
+                    constants = frame.chunk.constants;
+                    pc = 0;
+                    environment = callEnvironment;
+                    compiler.globals = frame.globals;
+                    break;
+                }
+                case INTRINSIC: {
+                    var expr = (Expr.Call) constants[code[pc++]];
+                    var intrinsic = expr.intrinsic;
+                    var base = top - intrinsic.arity;
+                    Object result;
+                    try {
+                        if (compiler.globals.shadows(intrinsic)) {
+                            // A global has taken the name; call it the ordinary way.
+                            var callee = compiler.globals.get((Expr.Variable) expr.callee);
+                            result = compiler.callable(expr, callee, intrinsic.arity).call(compiler,
+                                    Arrays.copyOfRange(values, base, top));
+                        } else if (intrinsic.arity == 1) {
+                            result = intrinsic.apply1(values[base]);
+                        } else if (intrinsic.arity == 2) {
+                            result = intrinsic.apply2(values[base], values[base + 1]);
+                        } else {
+                            result = intrinsic.apply3(values[base], values[base + 1], values[base + 2]);
+                        }
+                    } catch (NativeError error) {
+                        throw new RuntimeError(expr.paren, error.getMessage());
+                    }
+                    Arrays.fill(values, base, top, null);
+                    top = base;
+                    push(result);
+                    break;
+                }
+                case CLOSURE: {
+                    var declaration = (Stmt.Function) constants[code[pc++]];
+                    environment.define(declaration.name.symbol(), new EigenFunction(declaration, environment, false));
+                    break;
+                }
+                case PUSH_SCOPE:
+                    environment = new Environment(environment);
+                    break;
+                case POP_SCOPE:
+                    environment = environment.enclosing;
+                    break;
+                case STATEMENT: {
+                    @SuppressWarnings("unchecked")
+                    var statements = (List<Stmt>) constants[code[pc++]];
+                    compiler.executeBlock(statements, environment);
+                    break;
+                }
+                case RESULT:
+                    frame.result = values[--top];
+                    values[top] = null;
+                    break;
+                case YIELD: {
+                    frame.pc = pc;
+                    frame.environment = environment;
+                    suspended = true;
+                    var value = values[--top];
+                    values[top] = null;
+                    return value;
+                }
+                case RETURN:
+                case HALT: {
+                    var result = code[pc - 1] == HALT ? frame.result : values[top - 1];
+                    var returning = frame.function;
+                    if (returning != null) {
+                        if (returning.isInitializer) {
+                            result = returning.closure.getAt(0, Symbol.THIS);
+                        }
+                        if (compiler.limits != null) {
+                            compiler.limits.release(Limits.FRAME_BYTES);
+                        }
+                    }
+                    Arrays.fill(values, frame.base, top, null);
+                    top = frame.base;
+                    pop();
+                    if (depth == entry) {
+                        return result;
+                    }
+                    values[top++] = result;
+                    frame = frames[depth - 1];
+                    code = frame.chunk.code;
+                    constants = frame.chunk.constants;
+                    pc = frame.pc;
+                    environment = frame.environment;
+                    compiler.globals = frame.globals;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown instruction " + code[pc - 1]);
+                }
+            }
+        } catch (RuntimeException error) {
+            unwind(entry);
+            throw error;
+        } finally {
+            compiler.globals = callerGlobals;
+        }
+    }
+
+    private void push(Object value) {
+        if (top == values.length) {
+            values = Arrays.copyOf(values, top * 2);
+        }
+        values[top++] = value;
+    }
+
+    // The token is where a stack overflow is reported; top-level code, which
+    // starts an empty machine, passes null.
+    private void push(Chunk chunk, Environment environment, int base, EigenFunction function, Token token) {
+        if (depth == Eigen.maxDepth) {
+            throw new RuntimeError(token, "Stack overflow: more than " + Eigen.maxDepth + " nested calls.");
+        }
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        var frame = frames[depth];
+        if (frame == null) {
+            frame = new Frame();
+            frames[depth] = frame;
+        }
+        frame.chunk = chunk;
+        frame.pc = 0;
+        frame.environment = environment;
+        frame.base = base;
+        frame.function = function;
+        frame.globals = function != null ? function.globals : compiler.globals;
+        frame.result = null;
+        depth++;
+    }
+
+    private void pop() {
+        var frame = frames[--depth];
+        frame.environment = null;
+        frame.function = null;
+        frame.globals = null;
+        frame.result = null;
+    }
+
+    // Drops the frames an error unwound through, crediting back the ones the
+    // machine charged for.
+    private void unwind(int entry) {
+        var base = frames[entry].base;
+        while (depth > entry) {
+            if (frames[depth - 1].function != null && compiler.limits != null) {
+                compiler.limits.release(Limits.FRAME_BYTES);
+            }
+            pop();
+        }
+        Arrays.fill(values, base, top, null);
+        top = base;
+    }
+
+    // Flattens statements into a chunk. Jumps hold absolute instruction
+    // indexes, patched once their target is known.
+    private static final class Emitter {
+        private final boolean topLevel;
+        private int[] code = new int[64];
+        private int size;
+        private final List<Object> constants = new ArrayList<>();
+
+        Emitter(boolean topLevel) {
+            this.topLevel = topLevel;
+        }
+
+        Chunk chunk(List<Stmt> statements) {
+            for (var statement : statements) {
+                statement(statement);
+            }
+            if (topLevel) {
+                emit(HALT);
+            } else {
+                emit(CONSTANT, constant(null));
+                emit(RETURN);
+            }
+            return new Chunk(Arrays.copyOf(code, size), constants.toArray());
+        }
+
+        private void statement(Stmt stmt) {
+            if (stmt instanceof Stmt.Expression) {
+                expression(((Stmt.Expression) stmt).expression);
+                emit(topLevel ? RESULT : POP);
+            } else if (stmt instanceof Stmt.Print) {
+                expression(((Stmt.Print) stmt).expression);
+                emit(PRINT);
+            } else if (stmt instanceof Stmt.Var) {
+                var var = (Stmt.Var) stmt;
+                if (var.initializer == null) {
+                    emit(CONSTANT, constant(null));
+                } else {
+                    expression(var.initializer);
+                }
+                emit(DEFINE, var.name.symbol());
+            } else if (stmt instanceof Stmt.Block) {
+                emit(PUSH_SCOPE);
+                for (var statement : ((Stmt.Block) stmt).statements) {
+                    statement(statement);
+                }
+                emit(POP_SCOPE);
+            } else if (stmt instanceof Stmt.If) {
+                var ifStmt = (Stmt.If) stmt;
+                expression(ifStmt.condition);
+                var otherwise = jump(JUMP_IF_FALSE);
+                statement(ifStmt.thenBranch);
+                if (ifStmt.elseBranch == null) {
+                    patch(otherwise);
+                } else {
+                    var end = jump(JUMP);
+                    patch(otherwise);
+                    statement(ifStmt.elseBranch);
+                    patch(end);
+                }
+            } else if (stmt instanceof Stmt.While) {
+                var whileStmt = (Stmt.While) stmt;
+                var start = size;
+                expression(whileStmt.condition);
+                var exit = jump(JUMP_IF_FALSE);
+                statement(whileStmt.body);
+                emit(LOOP, start, constant(whileStmt.keyword));
+                patch(exit);
+            } else if (stmt instanceof Stmt.Function) {
+                emit(CLOSURE, constant(stmt));
+            } else if (stmt instanceof Stmt.Return) {
+                var value = ((Stmt.Return) stmt).value;
+                if (value == null) {
+                    emit(CONSTANT, constant(null));
+                } else {
+                    expression(value);
+                }
+                emit(RETURN);
+            } else if (stmt instanceof Stmt.Yield) {
+                expression(((Stmt.Yield) stmt).value);
+                emit(YIELD);
+            } else {
+                emit(STATEMENT, constant(List.of(stmt)));
+            }
+        }
+
+        private void expression(Expr expr) {
+            if (expr instanceof Expr.Literal) {
+                emit(CONSTANT, constant(((Expr.Literal) expr).value));
+            } else if (expr instanceof Expr.Grouping) {
+                expression(((Expr.Grouping) expr).expression);
+            } else if (expr instanceof Expr.Variable) {
+                var variable = (Expr.Variable) expr;
+                if (variable.depth < 0) {
+                    emit(GET_GLOBAL, constant(variable));
+                } else {
+                    emit(GET_LOCAL, variable.depth, variable.name.symbol());
+                }
+            } else if (expr instanceof Expr.This) {
+                emit(GET_LOCAL, ((Expr.This) expr).depth, Symbol.THIS);
+            } else if (expr instanceof Expr.Assign) {
+                var assign = (Expr.Assign) expr;
+                expression(assign.value);
+                if (assign.depth < 0) {
+                    emit(SET_GLOBAL, constant(assign));
+                } else {
+                    emit(SET_LOCAL, assign.depth, constant(assign.name));
+                }
+            } else if (expr instanceof Expr.Binary) {
+                binary((Expr.Binary) expr);
+            } else if (expr instanceof Expr.Logical) {
+                var logical = (Expr.Logical) expr;
+                expression(logical.left);
+                var end = jump(logical.operator.type == TokenType.OR ? JUMP_IF_TRUE_KEEP : JUMP_IF_FALSE_KEEP);
+                emit(POP);
+                expression(logical.right);
+                patch(end);
+            } else if (expr instanceof Expr.Unary) {
+                var unary = (Expr.Unary) expr;
+                expression(unary.right);
+                if (unary.operator.type == TokenType.BANG) {
+                    emit(NOT);
+                } else {
+                    emit(NEGATE, constant(unary.operator));
+                }
+            } else if (expr instanceof Expr.Call && ((Expr.Call) expr).intrinsic != null) {
+                var call = (Expr.Call) expr;
+                for (var argument : call.arguments) {
+                    expression(argument);
+                }
+                emit(INTRINSIC, constant(call));
+            } else if (expr instanceof Expr.Call) {
+                var call = (Expr.Call) expr;
+                expression(call.callee);
+                for (var argument : call.arguments) {
+                    expression(argument);
+                }
+                emit(CALL, call.arguments.size(), constant(call));
+            } else if (expr instanceof Expr.Get) {
+                var get = (Expr.Get) expr;
+                expression(get.object);
+                emit(GET_PROPERTY, constant(get.name));
+            } else if (expr instanceof Expr.Set) {
+                var set = (Expr.Set) expr;
+                expression(set.object);
+                expression(set.value);
+                emit(SET_PROPERTY, constant(set.name));
+            } else if (expr instanceof Expr.Super) {
+                emit(SUPER, constant(expr));
+            } else {
+                throw new IllegalArgumentException("Unknown expression " + expr.getClass().getSimpleName());
+            }
+        }
+
+        private void binary(Expr.Binary expr) {
+            expression(expr.left);
+            expression(expr.right);
+            if (expr.operands == Typer.Type.INTEGER) {
+                emit(INTEGERS, constant(expr.operator.type));
+                return;
+            }
+            if (expr.operands == Typer.Type.FLOAT) {
+                emit(FLOATS, constant(expr.operator.type));
+                return;
+            }
+            if (expr.operands == Typer.Type.NUMBER) {
+                emit(NUMBERS, constant(expr.operator.type));
+                return;
+            }
+            if (Profile.enabled && Profile.sampling(expr)) {
+                emit(PROFILE, constant(expr));
+            }
+            if (expr.speculated == Typer.Type.FLOAT) {
+                emit(GUESS_FLOATS, constant(expr));
+                return;
+            }
+            switch (expr.operator.type) {
+            case PLUS:
+                emit(ADD, constant(expr.operator));
+                break;
+            case MINUS:
+                emit(SUBTRACT, constant(expr.operator));
+                break;
+            case STAR:
+                emit(MULTIPLY, constant(expr.operator));
+                break;
+            case SLASH:
+                emit(DIVIDE, constant(expr.operator));
+                break;
+            case LESS:
+                emit(LESS, constant(expr.operator));
+                break;
+            case LESS_EQUAL:
+                emit(LESS_EQUAL, constant(expr.operator));
+                break;
+            case GREATER:
+                emit(GREATER, constant(expr.operator));
+                break;
+            case GREATER_EQUAL:
+                emit(GREATER_EQUAL, constant(expr.operator));
+                break;
+            case EQUAL_EQUAL:
+                emit(EQUAL);
+                break;
+            case BANG_EQUAL:
+                emit(NOT_EQUAL);
+                break;
+            case BITWISE_OR:
+            case BITWISE_AND:
+            case BITWISE_XOR:
+            case LESS_LESS:
+            case GREATER_GREATER:
+                emit(BITWISE, constant(expr.operator));
+                break;
+            default:
+                // The visitor evaluates both sides and yields null.
+                emit(POP);
+                emit(POP);
+                emit(CONSTANT, constant(null));
+                break;
+            }
+        }
+
+        private int constant(Object value) {
+            constants.add(value);
+            return constants.size() - 1;
+        }
+
+        // Emits a jump and returns the index of its operand for patch.
+        private int jump(int op) {
+            emit(op, -1);
+            return size - 1;
+        }
+
+        private void patch(int operand) {
+            code[operand] = size;
+        }
+
+        private void emit(int... words) {
+            if (size + words.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + words.length));
+            }
+            for (var word : words) {
+                code[size++] = word;
+            }
+        }
+    }
+}
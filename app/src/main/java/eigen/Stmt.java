@@ -1,8 +1,10 @@
 package eigen;
 
+import java.io.Serializable;
 import java.util.List;
 
-abstract class Stmt {
+abstract class Stmt implements Serializable {
+    private static final long serialVersionUID = 1L;
     interface Visitor<R> {
         R visitBlockStmt(Block stmt);
         R visitClassStmt(Class stmt);
@@ -10,11 +12,14 @@ abstract class Stmt {
         R visitFunctionStmt(Function stmt);
         R visitIfStmt(If stmt);
         R visitPrintStmt(Print stmt);
+        R visitImportStmt(Import stmt);
         R visitReturnStmt(Return stmt);
         R visitVarStmt(Var stmt);
         R visitWhileStmt(While stmt);
+        R visitYieldStmt(Yield stmt);
     }
     static class Block extends Stmt{
+        private static final long serialVersionUID = 1L;
         final List<Stmt> statements;
         Block(List<Stmt> statements) {
         this.statements=statements;
@@ -25,6 +30,7 @@ abstract class Stmt {
     }
   }
     static class Class extends Stmt{
+        private static final long serialVersionUID = 1L;
         final Token name;
         final Expr.Variable superclass;
         final List<Stmt.Function> methods;
@@ -39,7 +45,9 @@ abstract class Stmt {
     }
   }
     static class Expression extends Stmt{
+        private static final long serialVersionUID = 1L;
         final Expr expression;
+        int line;
         Expression(Expr expression) {
         this.expression=expression;
     }
@@ -49,9 +57,15 @@ abstract class Stmt {
     }
   }
     static class Function extends Stmt{
+        private static final long serialVersionUID = 1L;
         final Token name;
         final List<Token> params;
         final List<Stmt> body;
+        boolean generator;
+        transient long calls;
+        volatile LazyBody lazy;
+        transient volatile ClosureCompiler.Node compiled;
+        transient volatile StackCompiler.Chunk chunk;
         Function(Token name,List<Token> params,List<Stmt> body) {
         this.name=name;
         this.params=params;
@@ -63,9 +77,11 @@ abstract class Stmt {
     }
   }
     static class If extends Stmt{
+        private static final long serialVersionUID = 1L;
         final Expr condition;
         final Stmt thenBranch;
         final Stmt elseBranch;
+        int line;
         If(Expr condition,Stmt thenBranch,Stmt elseBranch) {
         this.condition=condition;
         this.thenBranch=thenBranch;
@@ -77,7 +93,9 @@ abstract class Stmt {
     }
   }
     static class Print extends Stmt{
+        private static final long serialVersionUID = 1L;
         final Expr expression;
+        int line;
         Print(Expr expression) {
         this.expression=expression;
     }
@@ -85,8 +103,25 @@ abstract class Stmt {
   <R> R accept(Visitor<R> visitor) {
       return visitor.visitPrintStmt(this);
     }
+  }
+    static class Import extends Stmt{
+        private static final long serialVersionUID = 1L;
+        final Token keyword;
+        final Token path;
+        final Token name;
+        EigenScript module;
+        Import(Token keyword,Token path,Token name) {
+        this.keyword=keyword;
+        this.path=path;
+        this.name=name;
+    }
+  @Override
+  <R> R accept(Visitor<R> visitor) {
+      return visitor.visitImportStmt(this);
+    }
   }
     static class Return extends Stmt{
+        private static final long serialVersionUID = 1L;
         final Token keyword;
         final Expr value;
         Return(Token keyword,Expr value) {
@@ -99,6 +134,7 @@ abstract class Stmt {
     }
   }
     static class Var extends Stmt{
+        private static final long serialVersionUID = 1L;
         final Token name;
         final Expr initializer;
         Var(Token name,Expr initializer) {
@@ -111,9 +147,12 @@ abstract class Stmt {
     }
   }
     static class While extends Stmt{
+        private static final long serialVersionUID = 1L;
+        final Token keyword;
         final Expr condition;
         final Stmt body;
-        While(Expr condition,Stmt body) {
+        While(Token keyword,Expr condition,Stmt body) {
+        this.keyword=keyword;
         this.condition=condition;
         this.body=body;
     }
@@ -121,6 +160,19 @@ abstract class Stmt {
   <R> R accept(Visitor<R> visitor) {
       return visitor.visitWhileStmt(this);
     }
+  }
+    static class Yield extends Stmt{
+        private static final long serialVersionUID = 1L;
+        final Token keyword;
+        final Expr value;
+        Yield(Token keyword,Expr value) {
+        this.keyword=keyword;
+        this.value=value;
+    }
+  @Override
+  <R> R accept(Visitor<R> visitor) {
+      return visitor.visitYieldStmt(this);
+    }
   }
     abstract <R> R accept(Visitor<R> visitor);
 }
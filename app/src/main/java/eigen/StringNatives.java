@@ -0,0 +1,147 @@
+package eigen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The string natives. Slices, trimmed strings and split fields are
+ * StringViews over the string they came from, so taking a large input apart
+ * copies no characters; only replace and joinStrings build new strings. Indexes
+ * count UTF-16 units, and negative slice bounds count from the end.
+ */
+final class StringNatives {
+
+    private StringNatives() {
+    }
+
+    @EigenNative
+    static long length(CharSequence text) {
+        return text.length();
+    }
+
+    @EigenNative
+    static long indexOf(CharSequence text, CharSequence target) {
+        return StringView.indexOf(text, target, 0);
+    }
+
+    @EigenNative
+    static CharSequence slice(CharSequence text, long start, long end) {
+        var length = text.length();
+        var from = bound(start, length);
+        var to = bound(end, length);
+        return StringView.of(text, from, Math.max(from, to));
+    }
+
+    @EigenNative
+    static EigenList split(Compiler compiler, CharSequence text, CharSequence separator) {
+        if (separator.length() == 0) {
+            throw new NativeError("Separator must not be empty.");
+        }
+        List<Object> fields = new ArrayList<>();
+        int start = 0;
+        for (int next; (next = StringView.indexOf(text, separator, start)) >= 0; start = next + separator.length()) {
+            fields.add(StringView.of(text, start, next));
+        }
+        fields.add(StringView.of(text, start, text.length()));
+        if (compiler.limits != null) {
+            compiler.limits.allocate(Limits.INSTANCE_BYTES + Limits.ELEMENT_BYTES * fields.size());
+        }
+        return new EigenList(fields);
+    }
+
+    @EigenNative
+    static CharSequence trim(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return StringView.of(text, start, end);
+    }
+
+    @EigenNative
+    static boolean startsWith(CharSequence text, CharSequence prefix) {
+        return prefix.length() <= text.length() && StringView.source(text).regionMatches(StringView.offset(text),
+                StringView.source(prefix), StringView.offset(prefix), prefix.length());
+    }
+
+    @EigenNative
+    static boolean endsWith(CharSequence text, CharSequence suffix) {
+        var from = text.length() - suffix.length();
+        return from >= 0 && StringView.source(text).regionMatches(StringView.offset(text) + from,
+                StringView.source(suffix), StringView.offset(suffix), suffix.length());
+    }
+
+    @EigenNative
+    static CharSequence replace(Compiler compiler, CharSequence text, CharSequence target, CharSequence replacement) {
+        if (target.length() == 0) {
+            throw new NativeError("Target must not be empty.");
+        }
+        var next = StringView.indexOf(text, target, 0);
+        if (next < 0) {
+            return text;
+        }
+        var result = new StringBuilder(text.length());
+        int start = 0;
+        for (; next >= 0; next = StringView.indexOf(text, target, start)) {
+            StringView.append(result, StringView.of(text, start, next));
+            StringView.append(result, replacement);
+            start = next + target.length();
+        }
+        StringView.append(result, StringView.of(text, start, text.length()));
+        return built(compiler, result);
+    }
+
+    // Elements that are not strings are joined as print would show them.
+    @EigenNative
+    static String joinStrings(Compiler compiler, EigenList list, CharSequence separator) {
+        var result = new StringBuilder();
+        for (int i = 0; i < list.elements.size(); i++) {
+            if (i > 0) {
+                StringView.append(result, separator);
+            }
+            var element = list.elements.get(i);
+            if (element instanceof CharSequence) {
+                StringView.append(result, (CharSequence) element);
+            } else {
+                result.append(Compiler.stringify(element));
+            }
+        }
+        return built(compiler, result);
+    }
+
+    // A string a native built, charged to the run as concatenation charges
+    // its result.
+    private static String built(Compiler compiler, StringBuilder result) {
+        if (compiler.limits != null) {
+            compiler.limits.allocate(Limits.STRING_BYTES + result.length());
+        }
+        return result.toString();
+    }
+
+    @EigenNative
+    static long charCode(CharSequence text, long index) {
+        if (index < 0 || index >= text.length()) {
+            throw new NativeError("String index out of range.");
+        }
+        return text.charAt((int) index);
+    }
+
+    @EigenNative
+    static String fromCharCode(int code) {
+        if (!Character.isValidCodePoint(code)) {
+            throw new NativeError("Not a character code.");
+        }
+        return Character.toString(code);
+    }
+
+    private static int bound(long index, int length) {
+        if (index < 0) {
+            index += length;
+        }
+        return (int) Math.max(0, Math.min(index, length));
+    }
+}
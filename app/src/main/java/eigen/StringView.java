@@ -0,0 +1,126 @@
+package eigen;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+/**
+ * A string value that is a range of another string's characters, made by the
+ * slicing natives instead of copying. Scripts cannot tell it from a String:
+ * == compares it with one by its characters and it prints the same. Its
+ * characters are copied out only when it is printed, concatenated, handed to
+ * a native that wants a String, used as a memo key or passed back to the
+ * host. In Java, equals only matches other views, since String.equals never
+ * matches a view; anything that hashes script values converts views to
+ * Strings first.
+ *
+ * A view keeps its whole parent alive, so a script that keeps a few short
+ * fields of a huge input should concatenate them with "" to let the input go.
+ */
+final class StringView implements CharSequence, Serializable {
+    private static final long serialVersionUID = 1L;
+    final String source;
+    final int start;
+    final int end;
+
+    private StringView(String source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    // The characters of text from start to end, both relative to text.
+    static CharSequence of(CharSequence text, int start, int end) {
+        if (start == 0 && end == text.length()) {
+            return text;
+        }
+        if (text instanceof StringView) {
+            var view = (StringView) text;
+            return new StringView(view.source, view.start + start, view.start + end);
+        }
+        return new StringView((String) text, start, end);
+    }
+
+    static String source(CharSequence text) {
+        return text instanceof StringView ? ((StringView) text).source : (String) text;
+    }
+
+    static int offset(CharSequence text) {
+        return text instanceof StringView ? ((StringView) text).start : 0;
+    }
+
+    static void append(StringBuilder builder, CharSequence text) {
+        if (text instanceof StringView) {
+            var view = (StringView) text;
+            builder.append(view.source, view.start, view.end);
+        } else {
+            builder.append(text);
+        }
+    }
+
+    // The first index at or after from where target occurs in text, or -1.
+    // Only text's own characters are searched, never the rest of its parent.
+    static int indexOf(CharSequence text, CharSequence target, int from) {
+        var source = source(text);
+        var offset = offset(text);
+        var needle = source(target);
+        var needleOffset = offset(target);
+        var length = target.length();
+        var last = offset + text.length() - length;
+        if (length == 0) {
+            return from <= text.length() ? from : -1;
+        }
+        var first = needle.charAt(needleOffset);
+        for (int i = offset + from; i <= last; i++) {
+            if (source.charAt(i) == first && source.regionMatches(i + 1, needle, needleOffset + 1, length - 1)) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    // Whether two string values hold the same characters.
+    static boolean contentEquals(CharSequence left, CharSequence right) {
+        var length = left.length();
+        return length == right.length()
+                && source(left).regionMatches(offset(left), source(right), offset(right), length);
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return of(this, from, to);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof StringView && contentEquals(this, (StringView) other);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return source.substring(start, end);
+    }
+
+    // Snapshots hold the characters, not the parent.
+    private Object writeReplace() throws ObjectStreamException {
+        return toString();
+    }
+}
@@ -0,0 +1,53 @@
+package eigen;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The table of interned names. The Lexer interns every identifier and keyword
+ * as it scans, and from then on a name is a small dense int: environments,
+ * instance fields, class methods and resolver scopes are all SymbolMaps keyed
+ * by it, so looking a name up never hashes or compares a string. The table is
+ * shared by every script in the JVM and only grows. Ids are not stable across
+ * runs, so anything serialized carries names instead.
+ */
+final class Symbol {
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Written only under the class lock, before the id is published in ids.
+    private static volatile String[] names = new String[256];
+    // Id 0 means no symbol.
+    private static int count = 1;
+
+    static final int THIS = intern("this");
+    static final int SUPER = intern("super");
+    static final int INIT = intern("init");
+
+    private Symbol() {
+    }
+
+    static int intern(String name) {
+        var id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (Symbol.class) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            var table = names;
+            if (count == table.length) {
+                table = Arrays.copyOf(table, count * 2);
+            }
+            table[count] = name;
+            names = table;
+            ids.put(name, count);
+            return count++;
+        }
+    }
+
+    // The canonical string for a symbol, shared by every token that spells it.
+    static String name(int symbol) {
+        return names[symbol];
+    }
+}
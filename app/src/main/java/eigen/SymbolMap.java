@@ -0,0 +1,187 @@
+package eigen;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map from symbols to values, open addressed on int keys. Symbols are dense,
+ * so a key's low bits make a good slot on their own. Most maps are the few
+ * variables of one call, and fit the initial four slots.
+ *
+ * Not thread-safe; synchronize() gives a copy that is, for maps reachable from
+ * spawned tasks. Serialized by name, since symbol ids differ between runs.
+ */
+class SymbolMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private transient int[] keys;
+    private transient Object[] values;
+    private transient int size;
+
+    SymbolMap() {
+        keys = new int[4];
+        values = new Object[4];
+    }
+
+    // The slot holding symbol, or -1.
+    private int find(int symbol) {
+        var mask = keys.length - 1;
+        for (var slot = symbol & mask;; slot = (slot + 1) & mask) {
+            var key = keys[slot];
+            if (key == symbol) {
+                return slot;
+            }
+            if (key == 0) {
+                return -1;
+            }
+        }
+    }
+
+    boolean contains(int symbol) {
+        return find(symbol) >= 0;
+    }
+
+    // The value of symbol, or absent if it has none.
+    Object get(int symbol, Object absent) {
+        var slot = find(symbol);
+        return slot < 0 ? absent : values[slot];
+    }
+
+    Object get(int symbol) {
+        return get(symbol, null);
+    }
+
+    // Returns whether symbol is new to the map.
+    boolean put(int symbol, Object value) {
+        var mask = keys.length - 1;
+        var slot = symbol & mask;
+        for (;; slot = (slot + 1) & mask) {
+            var key = keys[slot];
+            if (key == symbol) {
+                values[slot] = value;
+                return false;
+            }
+            if (key == 0) {
+                break;
+            }
+        }
+        if (2 * (size + 1) > keys.length) {
+            grow();
+            return put(symbol, value);
+        }
+        keys[slot] = symbol;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    // Sets symbol only where it is already present; returns whether it was.
+    boolean replace(int symbol, Object value) {
+        var slot = find(symbol);
+        if (slot < 0) {
+            return false;
+        }
+        values[slot] = value;
+        return true;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // The entries by name, for hosts and snapshots.
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                map.put(Symbol.name(keys[i]), values[i]);
+            }
+        }
+        return map;
+    }
+
+    SymbolMap synchronize() {
+        var copy = new Synchronized();
+        copyInto(copy);
+        return copy;
+    }
+
+    void copyInto(SymbolMap target) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                target.put(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                out.writeUTF(Symbol.name(keys[i]));
+                out.writeObject(values[i]);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        keys = new int[4];
+        values = new Object[4];
+        var count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            put(Symbol.intern(in.readUTF()), in.readObject());
+        }
+    }
+
+    private static final class Synchronized extends SymbolMap {
+        private static final long serialVersionUID = 1L;
+        @Override
+        synchronized boolean contains(int symbol) {
+            return super.contains(symbol);
+        }
+
+        @Override
+        synchronized Object get(int symbol, Object absent) {
+            return super.get(symbol, absent);
+        }
+
+        @Override
+        synchronized boolean put(int symbol, Object value) {
+            return super.put(symbol, value);
+        }
+
+        @Override
+        synchronized boolean replace(int symbol, Object value) {
+            return super.replace(symbol, value);
+        }
+
+        @Override
+        synchronized Map<String, Object> toMap() {
+            return super.toMap();
+        }
+
+        @Override
+        synchronized SymbolMap synchronize() {
+            return this;
+        }
+
+        @Override
+        synchronized void copyInto(SymbolMap target) {
+            super.copyInto(target);
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package eigen;
 
-public class Token {
+import java.io.Serializable;
+
+public class Token implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     final TokenType type;
     final String lexeme;
     final Object literal;
     final int line;
+    // The interned lexeme, set by the Lexer for names; other tokens, and
+    // tokens read back from a snapshot, intern it on first use.
+    private transient int symbol;
 
     public Token(TokenType type, String lexeme, Object literal, int line) {
         this.type = type;
@@ -14,6 +20,20 @@ public class Token {
         this.line = line;
     }
 
+    Token(TokenType type, int symbol, int line) {
+        this(type, Symbol.name(symbol), null, line);
+        this.symbol = symbol;
+    }
+
+    int symbol() {
+        var symbol = this.symbol;
+        if (symbol == 0) {
+            symbol = Symbol.intern(lexeme);
+            this.symbol = symbol;
+        }
+        return symbol;
+    }
+
     @Override
     public String toString() {
         return type + " " + lexeme + " " + literal;
@@ -5,14 +5,14 @@ enum TokenType {
   LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, COMMA, DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR,
 
   // One or two character tokens.
-  BANG, BANG_EQUAL, EQUAL, EQUAL_EQUAL, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL,COLON,
+  BANG, BANG_EQUAL, EQUAL, EQUAL_EQUAL, GREATER, GREATER_EQUAL, GREATER_GREATER, LESS, LESS_EQUAL, LESS_LESS,COLON,
 
   // Literals.
   IDENTIFIER, STRING, NUMBER,
 
   // Keywords.
-  AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NULL, OR, PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE, BITWISE_OR,
-  BITWISE_AND,
+  AND, CLASS, ELSE, FALSE, FUN, FOR, IF, IMPORT, NULL, OR, PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE, YIELD, BITWISE_OR,
+  BITWISE_AND, BITWISE_XOR,
 
   EOF
 }
\ No newline at end of file
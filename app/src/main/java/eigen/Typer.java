@@ -0,0 +1,645 @@
+package eigen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+
+/**
+ * Flow-sensitive type inference over resolved code, run after the Resolver.
+ * It follows the value each local may hold at every point, from literals,
+ * operators and assignments, joining at branches and iterating loops to a
+ * fixed point, and annotates Binary, Unary, Logical, Variable and Assign nodes
+ * with what their value is proven to be. A Binary whose operands are proven to
+ * be two integers, two numbers one of them a float, two numbers of either
+ * kind, or two strings also gets its operands annotated, and the engines then
+ * run it without type checks; the closure engine computes proven float
+ * arithmetic unboxed. Integer arithmetic may overflow into a float, so a loop
+ * counter is usually a number of either kind, and dispatching on the kind
+ * without checking it is what keeps counting loops check-free.
+ *
+ * Globals, parameters, fields and call results may be anything. A local read
+ * from a nested function may be anything, and a local that a nested function
+ * assigns to may be anything everywhere; finding those takes a second run.
+ *
+ * With -Deigen.typeReport=true every operator that keeps its checks is listed
+ * on stderr with the operand that could not be proven.
+ */
+final class Typer implements Expr.Visitor<Typer.Type>, Stmt.Visitor<Void> {
+
+    enum Type {
+        INTEGER, FLOAT, NUMBER, BOOLEAN, STRING, ANY;
+
+        boolean isNumber() {
+            return this == INTEGER || this == FLOAT || this == NUMBER;
+        }
+
+        // Null stands for no value yet, on paths not taken so far.
+        static Type join(Type left, Type right) {
+            if (left == null || left == right) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.isNumber() && right.isNumber()) {
+                return NUMBER;
+            }
+            return ANY;
+        }
+    }
+
+    // Loop passes after which types still changing are widened to ANY.
+    private static final int WIDEN_AFTER = 3;
+
+    // A local variable, made where it is declared.
+    private static final class Slot {
+        final Token name;
+        // The function that declares it, or null for top-level blocks.
+        final Stmt.Function function;
+        final boolean parameter;
+        boolean pinned;
+
+        Slot(Token name, Stmt.Function function, boolean parameter, boolean pinned) {
+            this.name = name;
+            this.function = function;
+            this.parameter = parameter;
+            this.pinned = pinned;
+        }
+    }
+
+    private final Stack<SymbolMap> scopes = new Stack<>();
+    private Stmt.Function currentFunction;
+    // The type each local in scope holds at the current point.
+    private Map<Slot, Type> flow = new HashMap<>();
+    // Declarations of locals that nested functions assign to.
+    private final Set<Token> pinned = new HashSet<>();
+    // Operators that keep their checks, with why, when reporting.
+    private final Map<Expr, String> report;
+
+    private Typer(boolean reporting) {
+        report = reporting ? new HashMap<>() : null;
+    }
+
+    static void infer(List<Stmt> statements) {
+        var typer = new Typer(Eigen.typeReport);
+        typer.typeAll(statements);
+        typer.printReport();
+    }
+
+    // Types statements and returns what -Deigen.typeReport would print.
+    static List<String> report(List<Stmt> statements) {
+        var typer = new Typer(true);
+        typer.typeAll(statements);
+        return typer.reportLines();
+    }
+
+    // Types a lazily parsed body once it has been resolved. What it can see
+    // of its enclosing functions was pinned when they were typed.
+    static void inferLazy(Stmt.Function function) {
+        var typer = new Typer(Eigen.typeReport);
+        typer.body(function);
+        if (!typer.pinned.isEmpty()) {
+            typer.reset();
+            typer.body(function);
+        }
+        typer.printReport();
+    }
+
+    private void typeAll(List<Stmt> statements) {
+        run(statements);
+        if (!pinned.isEmpty()) {
+            reset();
+            run(statements);
+        }
+    }
+
+    private void run(List<Stmt> statements) {
+        for (var statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    private void reset() {
+        scopes.clear();
+        flow = new HashMap<>();
+        if (report != null) {
+            report.clear();
+        }
+    }
+
+    private void printReport() {
+        if (report == null) {
+            return;
+        }
+        for (var line : reportLines()) {
+            System.err.println(line);
+        }
+    }
+
+    private List<String> reportLines() {
+        List<Map.Entry<Expr, String>> entries = new ArrayList<>(report.entrySet());
+        entries.sort((a, b) -> Integer.compare(line(a.getKey()), line(b.getKey())));
+        List<String> lines = new ArrayList<>();
+        for (var entry : entries) {
+            lines.add("[line " + line(entry.getKey()) + "] " + entry.getValue());
+        }
+        return lines;
+    }
+
+    private static int line(Expr expr) {
+        return expr instanceof Expr.Binary ? ((Expr.Binary) expr).operator.line : ((Expr.Unary) expr).operator.line;
+    }
+
+    // The type an engine may rely on for expr, ANY where nothing was proven.
+    static Type typeOf(Expr expr) {
+        Type type = null;
+        if (expr instanceof Expr.Literal) {
+            type = literal(((Expr.Literal) expr).value);
+        } else if (expr instanceof Expr.Grouping) {
+            type = typeOf(((Expr.Grouping) expr).expression);
+        } else if (expr instanceof Expr.Binary) {
+            type = ((Expr.Binary) expr).type;
+        } else if (expr instanceof Expr.Unary) {
+            type = ((Expr.Unary) expr).type;
+        } else if (expr instanceof Expr.Logical) {
+            type = ((Expr.Logical) expr).type;
+        } else if (expr instanceof Expr.Variable) {
+            type = ((Expr.Variable) expr).type;
+        } else if (expr instanceof Expr.Assign) {
+            type = ((Expr.Assign) expr).type;
+        }
+        return type == null ? Type.ANY : type;
+    }
+
+    private static Type literal(Object value) {
+        if (value instanceof Long) {
+            return Type.INTEGER;
+        }
+        if (value instanceof Double) {
+            return Type.FLOAT;
+        }
+        if (value instanceof Boolean) {
+            return Type.BOOLEAN;
+        }
+        if (value instanceof String) {
+            return Type.STRING;
+        }
+        return Type.ANY;
+    }
+
+    private Type type(Expr expr) {
+        return expr.accept(this);
+    }
+
+    private void beginScope() {
+        scopes.push(new SymbolMap());
+    }
+
+    private void endScope() {
+        for (var slot : scopes.pop().toMap().values()) {
+            flow.remove(slot);
+        }
+    }
+
+    private void declare(Token name, Type type, boolean parameter) {
+        if (scopes.isEmpty()) {
+            return;
+        }
+        var slot = new Slot(name, currentFunction, parameter, pinned.contains(name));
+        scopes.peek().put(name.symbol(), slot);
+        flow.put(slot, slot.pinned ? Type.ANY : type);
+    }
+
+    // The local a resolved name refers to, or null for globals and locals
+    // outside a lazily typed body.
+    private Slot slot(Token name, int depth) {
+        var index = scopes.size() - 1 - depth;
+        if (depth < 0 || index < 0) {
+            return null;
+        }
+        var value = scopes.get(index).get(name.symbol());
+        return value instanceof Slot ? (Slot) value : null;
+    }
+
+    private Type read(Slot slot) {
+        if (slot == null || slot.pinned || slot.function != currentFunction) {
+            return Type.ANY;
+        }
+        var type = flow.get(slot);
+        return type == null ? Type.ANY : type;
+    }
+
+    private void write(Slot slot, Type type) {
+        if (slot == null || slot.pinned) {
+            return;
+        }
+        if (slot.function != currentFunction) {
+            pin(slot);
+            return;
+        }
+        flow.put(slot, type);
+    }
+
+    private void pin(Slot slot) {
+        slot.pinned = true;
+        pinned.add(slot.name);
+        flow.put(slot, Type.ANY);
+    }
+
+    private static Map<Slot, Type> join(Map<Slot, Type> left, Map<Slot, Type> right) {
+        var joined = new HashMap<>(left);
+        for (var entry : right.entrySet()) {
+            joined.merge(entry.getKey(), entry.getValue(), Type::join);
+        }
+        return joined;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        beginScope();
+        run(stmt.statements);
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        declare(stmt.name, Type.ANY, false);
+        if (stmt.superclass != null) {
+            type(stmt.superclass);
+            beginScope();
+            scopes.peek().put(Symbol.SUPER, Boolean.TRUE);
+        }
+        beginScope();
+        scopes.peek().put(Symbol.THIS, Boolean.TRUE);
+        for (var method : stmt.methods) {
+            function(method);
+        }
+        endScope();
+        if (stmt.superclass != null) {
+            endScope();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        type(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        declare(stmt.name, Type.ANY, false);
+        function(stmt);
+        return null;
+    }
+
+    private void function(Stmt.Function function) {
+        if (function.lazy != null) {
+            // Its body is not parsed yet, so it may assign to anything it
+            // can see.
+            for (var scope : scopes) {
+                for (var value : scope.toMap().values()) {
+                    if (value instanceof Slot) {
+                        pin((Slot) value);
+                    }
+                }
+            }
+            return;
+        }
+        body(function);
+    }
+
+    private void body(Stmt.Function function) {
+        var enclosingFunction = currentFunction;
+        var enclosingFlow = flow;
+        currentFunction = function;
+        flow = new HashMap<>();
+        beginScope();
+        for (var param : function.params) {
+            declare(param, Type.ANY, true);
+        }
+        run(function.body);
+        endScope();
+        currentFunction = enclosingFunction;
+        flow = enclosingFlow;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        type(stmt.condition);
+        var before = flow;
+        flow = new HashMap<>(before);
+        stmt.thenBranch.accept(this);
+        var afterThen = flow;
+        flow = new HashMap<>(before);
+        if (stmt.elseBranch != null) {
+            stmt.elseBranch.accept(this);
+        }
+        flow = join(afterThen, flow);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        type(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitImportStmt(Stmt.Import stmt) {
+        declare(stmt.name, Type.ANY, false);
+        return null;
+    }
+
+    // A return leaves its path, but going on with that path's types is only
+    // less precise.
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.value != null) {
+            type(stmt.value);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        var type = stmt.initializer != null ? type(stmt.initializer) : Type.ANY;
+        declare(stmt.name, type, false);
+        return null;
+    }
+
+    // Types the body until the types at the top of the loop stop changing,
+    // so the last pass, which leaves the annotations, holds for every
+    // iteration.
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        var head = flow;
+        for (int pass = 1;; pass++) {
+            flow = new HashMap<>(head);
+            type(stmt.condition);
+            var exit = flow;
+            flow = new HashMap<>(exit);
+            stmt.body.accept(this);
+            var next = join(head, flow);
+            if (next.equals(head)) {
+                flow = exit;
+                return null;
+            }
+            if (pass >= WIDEN_AFTER) {
+                for (var entry : next.entrySet()) {
+                    if (entry.getValue() != head.get(entry.getKey())) {
+                        entry.setValue(Type.ANY);
+                    }
+                }
+            }
+            head = next;
+        }
+    }
+
+    @Override
+    public Void visitYieldStmt(Stmt.Yield stmt) {
+        type(stmt.value);
+        return null;
+    }
+
+    @Override
+    public Type visitAssignExpr(Expr.Assign expr) {
+        var type = type(expr.value);
+        write(slot(expr.name, expr.depth), type);
+        expr.type = type;
+        return type;
+    }
+
+    @Override
+    public Type visitBinaryExpr(Expr.Binary expr) {
+        var left = type(expr.left);
+        var right = type(expr.right);
+        Type type;
+        Type operands = null;
+        switch (expr.operator.type) {
+        case PLUS:
+            if (left == Type.STRING || right == Type.STRING) {
+                type = Type.STRING;
+                if (left == right) {
+                    operands = Type.STRING;
+                }
+            } else if (left.isNumber() || right.isNumber()) {
+                type = arithmetic(left, right);
+                operands = operands(left, right);
+            } else {
+                type = Type.ANY;
+            }
+            break;
+        case MINUS:
+        case STAR:
+        case SLASH:
+            type = arithmetic(left, right);
+            operands = operands(left, right);
+            break;
+        case GREATER:
+        case GREATER_EQUAL:
+        case LESS:
+        case LESS_EQUAL:
+            type = Type.BOOLEAN;
+            operands = operands(left, right);
+            break;
+        case BITWISE_OR:
+        case BITWISE_AND:
+        case BITWISE_XOR:
+        case LESS_LESS:
+        case GREATER_GREATER:
+            type = Type.INTEGER;
+            operands = left == Type.INTEGER && right == Type.INTEGER ? Type.INTEGER : null;
+            break;
+        default:
+            return expr.type = Type.BOOLEAN;
+        }
+        expr.type = type;
+        expr.operands = operands;
+        if (report != null) {
+            if (operands == null) {
+                report.put(expr, "'" + expr.operator.lexeme + "' keeps its checks: " + unproven(expr, left, right) + ".");
+            } else {
+                report.remove(expr);
+            }
+        }
+        return type;
+    }
+
+    // What adding, subtracting, multiplying or dividing gives when it does
+    // not fail. Integers may overflow into floats, and divide into them.
+    private static Type arithmetic(Type left, Type right) {
+        return left == Type.FLOAT || right == Type.FLOAT ? Type.FLOAT : Type.NUMBER;
+    }
+
+    // INTEGER for two integers, FLOAT for two numbers of which one is a
+    // float, since Arithmetic computes those in floating point, and NUMBER
+    // for any other two numbers; otherwise the operator keeps its checks.
+    private static Type operands(Type left, Type right) {
+        if (left == Type.INTEGER && right == Type.INTEGER) {
+            return Type.INTEGER;
+        }
+        if (left.isNumber() && right.isNumber()) {
+            return left == Type.FLOAT || right == Type.FLOAT ? Type.FLOAT : Type.NUMBER;
+        }
+        return null;
+    }
+
+    @Override
+    public Type visitCallExpr(Expr.Call expr) {
+        type(expr.callee);
+        for (var argument : expr.arguments) {
+            type(argument);
+        }
+        return Type.ANY;
+    }
+
+    @Override
+    public Type visitGetExpr(Expr.Get expr) {
+        type(expr.object);
+        return Type.ANY;
+    }
+
+    @Override
+    public Type visitSuperExpr(Expr.Super expr) {
+        return Type.ANY;
+    }
+
+    @Override
+    public Type visitSetExpr(Expr.Set expr) {
+        type(expr.object);
+        return type(expr.value);
+    }
+
+    @Override
+    public Type visitThisExpr(Expr.This expr) {
+        return Type.ANY;
+    }
+
+    @Override
+    public Type visitGroupingExpr(Expr.Grouping expr) {
+        return type(expr.expression);
+    }
+
+    @Override
+    public Type visitLogicalExpr(Expr.Logical expr) {
+        var left = type(expr.left);
+        var before = flow;
+        flow = new HashMap<>(before);
+        var right = type(expr.right);
+        flow = join(before, flow);
+        return expr.type = Type.join(left, right);
+    }
+
+    @Override
+    public Type visitLiteralExpr(Expr.Literal expr) {
+        return literal(expr.value);
+    }
+
+    @Override
+    public Type visitUnaryExpr(Expr.Unary expr) {
+        var operand = type(expr.right);
+        if (expr.operator.type == TokenType.BANG) {
+            return expr.type = Type.BOOLEAN;
+        }
+        if (operand == Type.FLOAT) {
+            expr.type = Type.FLOAT;
+        } else if (operand == Type.INTEGER && expr.right instanceof Expr.Literal
+                && (long) ((Expr.Literal) expr.right).value != Long.MIN_VALUE) {
+            expr.type = Type.INTEGER;
+        } else {
+            // Negating the least integer gives a float.
+            expr.type = Type.NUMBER;
+        }
+        if (report != null) {
+            if (!operand.isNumber()) {
+                report.put(expr, "'-' keeps its check: " + describe(expr.right, operand, Type.NUMBER) + ".");
+            } else {
+                report.remove(expr);
+            }
+        }
+        return expr.type;
+    }
+
+    @Override
+    public Type visitVariableExpr(Expr.Variable expr) {
+        return expr.type = read(slot(expr.name, expr.depth));
+    }
+
+    // Why a Binary could not be specialized, for the report.
+    private String unproven(Expr.Binary expr, Type left, Type right) {
+        var operator = expr.operator.type;
+        if (operator == TokenType.PLUS && (left == Type.STRING || right == Type.STRING)) {
+            return left == Type.STRING ? describe(expr.right, right, Type.STRING)
+                    : describe(expr.left, left, Type.STRING);
+        }
+        var wanted = Type.NUMBER;
+        if (operator == TokenType.BITWISE_OR || operator == TokenType.BITWISE_AND || operator == TokenType.BITWISE_XOR
+                || operator == TokenType.LESS_LESS || operator == TokenType.GREATER_GREATER) {
+            wanted = Type.INTEGER;
+        }
+        if (!fits(left, wanted)) {
+            return describe(expr.left, left, wanted);
+        }
+        if (!fits(right, wanted)) {
+            return describe(expr.right, right, wanted);
+        }
+        return describe(expr.left, left, wanted);
+    }
+
+    private static boolean fits(Type type, Type wanted) {
+        return wanted == Type.NUMBER ? type.isNumber() : type == wanted;
+    }
+
+    private String describe(Expr operand, Type type, Type wanted) {
+        while (operand instanceof Expr.Grouping) {
+            operand = ((Expr.Grouping) operand).expression;
+        }
+        var problem = type == Type.ANY ? "could be anything" : "could be " + noun(type);
+        if (operand instanceof Expr.Variable) {
+            var variable = (Expr.Variable) operand;
+            var name = "'" + variable.name.lexeme + "'";
+            var slot = slot(variable.name, variable.depth);
+            if (slot == null) {
+                return (variable.depth < 0 ? "global " : "") + name + " " + problem;
+            }
+            if (slot.pinned) {
+                return name + " is assigned in a nested function";
+            }
+            if (slot.function != currentFunction) {
+                return name + " is captured from an enclosing function";
+            }
+            return (slot.parameter ? "parameter " : "") + name + " " + problem;
+        }
+        if (operand instanceof Expr.Call) {
+            return "a call result " + problem;
+        }
+        if (operand instanceof Expr.Get) {
+            return "field '" + ((Expr.Get) operand).name.lexeme + "' " + problem;
+        }
+        return "an operand " + problem;
+    }
+
+    private static String noun(Type type) {
+        switch (type) {
+        case INTEGER:
+            return "an integer";
+        case FLOAT:
+            return "a float";
+        case NUMBER:
+            return "a float";
+        case BOOLEAN:
+            return "a boolean";
+        case STRING:
+            return "a string";
+        default:
+            return "anything";
+        }
+    }
+}
@@ -13,19 +13,21 @@ public class GenerateAst {
         }
         var outputDir = args[0];
         defineAst(outputDir, "Expr",
-                Arrays.asList("Assign   :Token name,Expr value", "Binary :Expr left,Token operator,Expr right",
-                        "Call :Expr callee,Token paren,List<Expr> arguments", "Get :Expr object,Token name",
-                        "Super :Token keyword,Token method", "Set :Expr object,Token name,Expr value",
-                        "This :Token keyword", "Grouping :Expr expression",
-                        "Logical :Expr left,Token operator,Expr right", "Literal  :Object value",
-                        "Unary    :Token operator,Expr right", "Variable :Token name"));
+                Arrays.asList("Assign   :Token name,Expr value|int depth = -1,transient Globals.Cell cell,Typer.Type type",
+                        "Binary :Expr left,Token operator,Expr right|Typer.Type type,Typer.Type operands,Typer.Type speculated,transient int seen,transient int samples",
+                        "Call :Expr callee,Token paren,List<Expr> arguments|Intrinsic intrinsic,transient Globals.Constant constant", "Get :Expr object,Token name",
+                        "Super :Token keyword,Token method|int depth = -1", "Set :Expr object,Token name,Expr value",
+                        "This :Token keyword|int depth = -1", "Grouping :Expr expression",
+                        "Logical :Expr left,Token operator,Expr right|Typer.Type type", "Literal  :Object value",
+                        "Unary    :Token operator,Expr right|Typer.Type type", "Variable :Token name|int depth = -1,transient Globals.Cell cell,Typer.Type type"));
         defineAst(outputDir, "Stmt",
                 Arrays.asList("Block :List<Stmt> statements",
                         "Class :Token name,Expr.Variable superclass," + "List<Stmt.Function> methods",
-                        "Expression :Expr expression", "Function :Token name,List<Token> params," + "List<Stmt> body",
-                        "If :Expr condition,Stmt thenBranch," + "Stmt elseBranch", "Print :Expr expression",
+                        "Expression :Expr expression|int line", "Function :Token name,List<Token> params," + "List<Stmt> body|boolean generator,transient long calls,volatile LazyBody lazy,transient volatile ClosureCompiler.Node compiled,transient volatile StackCompiler.Chunk chunk",
+                        "If :Expr condition,Stmt thenBranch," + "Stmt elseBranch|int line", "Print :Expr expression|int line",
+                        "Import :Token keyword,Token path,Token name|EigenScript module",
                         "Return :Token keyword,Expr value", "Var :Token name,Expr initializer",
-                        "While :Expr condition,Stmt body"));
+                        "While :Token keyword,Expr condition,Stmt body", "Yield :Token keyword,Expr value"));
     }
 
     private static void defineAst(String outputDir, String baseName, List<String> types) throws IOException {
@@ -34,15 +36,22 @@ public class GenerateAst {
 
         writer.println("package eigen;");
         writer.println();
+        writer.println("import java.io.Serializable;");
         writer.println("import java.util.List;");
         writer.println();
-        writer.println("abstract class " + baseName + " {");
+        writer.println("abstract class " + baseName + " implements Serializable {");
+        writer.println("    private static final long serialVersionUID = 1L;");
 
         defineVisitor(writer, baseName, types);
         for (var type : types) {
             var className = type.split(":")[0].trim();
             var fields = type.split(":")[1].trim();
-            defineType(writer, baseName, className, fields);
+            var annotations = "";
+            if (fields.contains("|")) {
+                annotations = fields.substring(fields.indexOf('|') + 1).trim();
+                fields = fields.substring(0, fields.indexOf('|')).trim();
+            }
+            defineType(writer, baseName, className, fields, annotations);
         }
 
         writer.println("    abstract <R> R accept(Visitor<R> visitor);");
@@ -61,14 +70,23 @@ public class GenerateAst {
         writer.println("    }");
     }
 
-    private static void defineType(PrintWriter writer, String baseName, String className, String fieldList) {
+    // Annotations are mutable fields filled in after parsing (e.g. by the
+    // Resolver); they are not constructor parameters.
+    private static void defineType(PrintWriter writer, String baseName, String className, String fieldList,
+            String annotationList) {
 
         writer.println("    static class " + className + " extends " + baseName + "{");
+        writer.println("        private static final long serialVersionUID = 1L;");
 
         var fields = fieldList.split(",");
         for (var field : fields) {
             writer.println("        final " + field + ";");
         }
+        if (!annotationList.isEmpty()) {
+            for (var annotation : annotationList.split(",")) {
+                writer.println("        " + annotation.trim() + ";");
+            }
+        }
         writer.println("        " + className + "(" + fieldList + ") {");
 
         for (var field : fields) {
@@ -0,0 +1,68 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class ArithmeticTest {
+
+    private static Object run(String source) throws Exception {
+        return EigenScript.compile(source).run();
+    }
+
+    @Test
+    public void integersPromoteToFloatsOnOverflow() throws Exception {
+        assertEquals(9223372036854775807L, run("9223372036854775806 + 1;"));
+        assertEquals(9223372036854775808.0, run("9223372036854775807 + 1;"));
+        assertEquals(-9223372036854775809.0, run("-9223372036854775807 - 2;"));
+        assertEquals(4611686018427387904L, run("2147483648 * 2147483648;"));
+        assertEquals(8.507059173023462E37, run("9223372036854775807 * 9223372036854775807;"));
+        assertEquals(9223372036854775808.0, run("-(-9223372036854775807 - 1);"));
+    }
+
+    @Test
+    public void divisionIsExactOrAFloat() throws Exception {
+        assertEquals(3L, run("6 / 2;"));
+        assertEquals(3.5, run("7 / 2;"));
+        assertEquals(-2L, run("-6 / 3;"));
+        assertEquals(Double.POSITIVE_INFINITY, run("1 / 0;"));
+        assertEquals(9223372036854775808.0, run("(-9223372036854775807 - 1) / -1;"));
+        assertEquals(3.0, run("6.0 / 2;"));
+    }
+
+    @Test
+    public void bitwiseOperatorsTakeIntegers() throws Exception {
+        assertEquals(7L, run("5 | 3;"));
+        assertEquals(1L, run("5 & 3;"));
+        assertEquals(6L, run("5 ^ 3;"));
+        assertEquals(40L, run("5 << 3;"));
+        assertEquals(-3L, run("-5 >> 1;"));
+        assertEquals(2L, run("1 << 65;"));
+        assertEquals(11L, run("1 | 2 << 2 ^ 2;"));
+        var error = assertThrows(ScriptException.class, () -> run("1.5 | 1;"));
+        assertTrue(error.getMessage(), error.getMessage().startsWith("Operands must be integers."));
+    }
+
+    @Test
+    public void numbersAreEqualAcrossKinds() throws Exception {
+        assertEquals(true, run("2 == 2.0;"));
+        assertEquals(true, run("4 / 2 == 2;"));
+        assertEquals(false, run("2 == 2.5;"));
+        assertEquals(false, run("2 != 2.0;"));
+        assertEquals(false, run("2 == \"2\";"));
+    }
+
+    @Test
+    public void integralFloatsShareMemoEntriesWithIntegers() throws Exception {
+        var define = "function f(n) { return n; }\nvar m = memoize(f, 10);\n";
+        assertEquals(1L, run(define + "m(2);\nm(2.0);\nmemoHits(m);"));
+        assertEquals(1L, run(define + "m(2);\nm(4 / 2);\nmemoHits(m);"));
+        assertEquals(0L, run(define + "m(2);\nm(2.5);\nmemoHits(m);"));
+        var define2 = "function g(a, b) { return a + b; }\nvar m = memoize(g, 10);\n";
+        assertEquals(1L, run(define2 + "m(1, 2.0);\nm(1.0, 2);\nmemoHits(m);"));
+    }
+}
@@ -0,0 +1,30 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class BuiltinsTest {
+
+    private static Object run(String source) throws Exception {
+        return EigenScript.compile(source).run();
+    }
+
+    @Test
+    public void joinWaitsForASpawnedTask() throws Exception {
+        assertEquals(7L, run("function f() { return 7; }\njoin(spawn(f));"));
+    }
+
+    @Test
+    public void joinStringsJoinsAList() throws Exception {
+        assertEquals("a|b|c", run("joinStrings(split(\"a b c\", \" \"), \"|\");"));
+    }
+
+    @Test
+    public void builtinNamesCannotBeTakenTwice() {
+        var builtins = new Environment();
+        NativeFunction.define0(builtins, "clock", compiler -> 0.0);
+        assertThrows(IllegalStateException.class, () -> NativeFunction.define0(builtins, "clock", compiler -> 1.0));
+    }
+}
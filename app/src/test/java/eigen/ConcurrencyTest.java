@@ -0,0 +1,47 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConcurrencyTest {
+
+    private static Compiler run(String source) throws Exception {
+        var compiler = new Compiler();
+        EigenScript.compile(source).run(compiler);
+        return compiler;
+    }
+
+    @Test
+    public void tasksAppendToASharedList() throws Exception {
+        var compiler = run("var l = list();\n"
+                + "function work() { for (var i = 0; i < 2000; i = i + 1) append(l, i); }\n"
+                + "var tasks = list();\n"
+                + "for (var t = 0; t < 8; t = t + 1) append(tasks, spawn(work));\n"
+                + "for (var t = 0; t < 8; t = t + 1) join(at(tasks, t));\n"
+                + "var n = size(l);\n");
+        assertEquals(16000L, compiler.globals.values().get("n"));
+    }
+
+    @Test
+    public void aClosureSentOnAChannelIsShared() throws Exception {
+        var compiler = run("var ch = channel(1);\n"
+                + "function make() { var count = 0; function bump() { count = count + 1; return count; } return bump; }\n"
+                + "function task() { send(ch, make()); }\n"
+                + "spawn(task);\n"
+                + "var bump = receive(ch);\n");
+        var bump = (EigenFunction) compiler.globals.values().get("bump");
+        assertTrue(bump.closure.isShared());
+    }
+
+    @Test
+    public void aClosureStoredInSharedGlobalsIsShared() throws Exception {
+        var compiler = run("function idle() {}\n"
+                + "join(spawn(idle));\n"
+                + "function make() { var count = 0; function bump() { count = count + 1; } return bump; }\n"
+                + "var bump = make();\n");
+        var bump = (EigenFunction) compiler.globals.values().get("bump");
+        assertTrue(bump.closure.isShared());
+    }
+}
@@ -0,0 +1,81 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+// Every callable must answer the same through its fixed-arity entry points as
+// through the argument list and array ones.
+public class EigenCallableTest {
+    private static final String SOURCE = "var log = list();\n"
+            + "var base = 1000;\n"
+            + "function f0() { return base; }\n"
+            + "function f1(a) { return base + a; }\n"
+            + "function f2(a, b) { return base + a * 10 + b; }\n"
+            + "function f3(a, b, c) { return base + a * 100 + b * 10 + c; }\n"
+            + "class P { init(a, b, c) { append(log, a * 100 + b * 10 + c); } }\n"
+            + "class Q { init() { this.base = 7; } get(a) { return this.base + a; } }\n"
+            + "var q = Q();\n"
+            + "var get = q.get;\n"
+            + "function add(a, b) { return a + b; }\n"
+            + "var memoAdd = memoize(add, 10);\n"
+            + "var nativeMax = max;\n"
+            + "var nativeFma = fma;\n";
+
+    private static List<Object> calls(Compiler compiler, EigenCallable callable) {
+        var arguments = new Object[callable.arity()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = (long) i + 1;
+        }
+        List<Object> results = new ArrayList<>();
+        results.add(callable.call(compiler, Arrays.asList(arguments)));
+        results.add(callable.call(compiler, arguments));
+        switch (arguments.length) {
+        case 0:
+            results.add(callable.call0(compiler));
+            break;
+        case 1:
+            results.add(callable.call1(compiler, arguments[0]));
+            break;
+        case 2:
+            results.add(callable.call2(compiler, arguments[0], arguments[1]));
+            break;
+        case 3:
+            results.add(callable.call3(compiler, arguments[0], arguments[1], arguments[2]));
+            break;
+        default:
+            throw new AssertionError(callable);
+        }
+        return results;
+    }
+
+    private static void assertCalls(Object expected, Compiler compiler, String name) {
+        var callable = (EigenCallable) compiler.globals.values().get(name);
+        assertEquals(name, List.of(expected, expected, expected), calls(compiler, callable));
+    }
+
+    @Test
+    public void everyEntryPointAgrees() throws Exception {
+        for (var engine : new boolean[][] { { false, false }, { true, false }, { false, true } }) {
+            var compiler = new Compiler(engine[0], engine[1]);
+            EigenScript.compile(SOURCE).run(compiler);
+            assertCalls(1000L, compiler, "f0");
+            assertCalls(1001L, compiler, "f1");
+            assertCalls(1012L, compiler, "f2");
+            assertCalls(1123L, compiler, "f3");
+            assertCalls(8L, compiler, "get");
+            assertCalls(3L, compiler, "memoAdd");
+            assertCalls(2L, compiler, "nativeMax");
+            assertCalls(5.0, compiler, "nativeFma");
+
+            var p = (EigenCallable) compiler.globals.values().get("P");
+            calls(compiler, p);
+            var log = (EigenList) compiler.globals.values().get("log");
+            assertEquals(List.of(123L, 123L, 123L), log.elements);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.script.Compilable;
+
+import org.junit.Test;
+
+public class EigenScriptTest {
+
+    @Test
+    public void aCompiledScriptRunsAgainstFreshGlobals() throws Exception {
+        var script = EigenScript.compile("var n = 0;\nn = n + 1;\nn;");
+        assertEquals(1L, script.run());
+        assertEquals(1L, script.run());
+    }
+
+    @Test
+    public void bindingsGoInAndComeBack() throws Exception {
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put("x", 20);
+        var result = EigenScript.compile("var y = x * 2;\ny + 2;").run(bindings);
+        assertEquals(42L, result);
+        assertEquals(40L, bindings.get("y"));
+    }
+
+    @Test
+    public void theScriptEngineEvaluatesAndCompiles() throws Exception {
+        var engine = new EigenScriptEngineFactory().getScriptEngine();
+        engine.put("x", 4);
+        assertEquals(16L, engine.eval("x * x;"));
+        var compiled = ((Compilable) engine).compile("x + 1;");
+        assertEquals(5L, compiled.eval());
+    }
+}
@@ -0,0 +1,81 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+// Runs every script in the engines corpus from the command line under each
+// engine, with lazy function bodies off and on, and compares what it prints,
+// errors included, with the script's .expected file. A script whose output
+// depends on the engine, like one that recurses deeper than the Java stack
+// allows, has a <script>.<engine>.expected file for the engines that differ.
+@RunWith(Parameterized.class)
+public class EngineTest {
+    private static final String[] ENGINES = { "tree", "closure", "stack" };
+
+    private final Path script;
+    private final String engine;
+    private final boolean lazy;
+
+    public EngineTest(String name, Path script, String engine, boolean lazy) {
+        this.script = script;
+        this.engine = engine;
+        this.lazy = lazy;
+    }
+
+    @Parameters(name = "{0} {2} lazy={3}")
+    public static List<Object[]> parameters() throws Exception {
+        var corpus = Paths.get(EngineTest.class.getResource("/eigen/engines").toURI());
+        var scripts = corpus.toFile().listFiles((directory, name) -> name.endsWith(".eg"));
+        Arrays.sort(scripts);
+        List<Object[]> parameters = new ArrayList<>();
+        for (var script : scripts) {
+            for (var engine : ENGINES) {
+                for (var lazy : new boolean[] { false, true }) {
+                    parameters.add(new Object[] { script.getName(), script.toPath(), engine, lazy });
+                }
+            }
+        }
+        return parameters;
+    }
+
+    @Test
+    public void printsWhatIsExpected() throws Exception {
+        var name = script.getFileName().toString();
+        var expected = script.resolveSibling(name.replace(".eg", "." + engine + ".expected"));
+        if (!Files.exists(expected)) {
+            expected = script.resolveSibling(name.replace(".eg", ".expected"));
+        }
+        assertEquals(Files.readString(expected), run());
+    }
+
+    private String run() throws Exception {
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        var output = File.createTempFile("eigen", ".out");
+        try {
+            var process = new ProcessBuilder(java, "-Deigen.engine=" + engine, "-Deigen.lazyFunctions=" + lazy,
+                    "-cp", System.getProperty("java.class.path"), "eigen.Eigen", script.toString())
+                    .redirectErrorStream(true).redirectOutput(output).start();
+            if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new AssertionError(script + " did not finish.");
+            }
+            return Files.readString(output.toPath(), StandardCharsets.UTF_8);
+        } finally {
+            output.delete();
+        }
+    }
+}
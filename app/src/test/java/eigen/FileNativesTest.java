@@ -0,0 +1,82 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.script.ScriptException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileNativesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String file(String name, byte[] bytes) throws Exception {
+        var file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), bytes);
+        return file.getAbsolutePath().replace("\\", "/");
+    }
+
+    private String file() throws Exception {
+        var file = new File(folder.getRoot(), "lines.txt");
+        Files.writeString(file.toPath(), "first\nsecond\n");
+        return file.getAbsolutePath().replace("\\", "/");
+    }
+
+    @Test
+    public void embeddedScriptsHaveNoFileNatives() throws Exception {
+        var source = "nextLine(openLines(\"" + file() + "\"));";
+        var engine = new EigenScriptEngineFactory().getScriptEngine();
+        assertThrows(ScriptException.class, () -> engine.eval(source));
+        assertThrows(ScriptException.class, () -> EigenScript.compile(source).run());
+    }
+
+    @Test
+    public void embeddersCanBindFileNatives() throws Exception {
+        var source = "nextLine(openLines(\"" + file() + "\"));";
+        var bindings = NativeBinder.natives(FileNatives.class);
+        assertEquals("first", EigenScript.compile(source).run(bindings));
+    }
+
+    private static Object chunks(String path, int size) throws Exception {
+        // An empty chunk would repeat forever, so it fails the count.
+        var source = "function count() {\n"
+                + "  var r = openChunks(\"" + path + "\", " + size + ");\n"
+                + "  var n = 0;\n"
+                + "  var total = 0;\n"
+                + "  for (var c = nextChunk(r); c != null; c = nextChunk(r)) {\n"
+                + "    if (length(c) == 0) return -1;\n"
+                + "    n = n + 1;\n"
+                + "    total = total + length(c);\n"
+                + "  }\n"
+                + "  close(r);\n"
+                + "  return n * 1000 + total;\n"
+                + "}\n"
+                + "count();\n";
+        return EigenScript.compile(source).run(NativeBinder.natives(FileNatives.class));
+    }
+
+    @Test
+    public void chunksNeverSplitACharacter() throws Exception {
+        // a, e-acute, the euro sign and an emoji: 1 + 2 + 3 + 4 bytes, and
+        // 1 + 1 + 1 + 2 UTF-16 units.
+        var path = file("utf8.txt", "a\u00e9\u20ac\ud83d\ude00".getBytes(StandardCharsets.UTF_8));
+        assertEquals(3005L, chunks(path, 4));
+    }
+
+    @Test
+    public void chunksOfInvalidUtf8StillMoveForward() throws Exception {
+        var bytes = new byte[11];
+        bytes[0] = 'A';
+        for (int i = 1; i < bytes.length; i++) {
+            bytes[i] = (byte) 0x80;
+        }
+        assertEquals(3011L, chunks(file("bad.bin", bytes), 4));
+    }
+}
@@ -0,0 +1,93 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class GeneratorTest {
+    private static final boolean[][] ENGINES = { { false, false }, { true, false }, { false, true } };
+
+    private static Compiler run(boolean[] engine, String source) throws ScriptException {
+        var compiler = new Compiler(engine[0], engine[1]);
+        EigenScript.compile(source).run(compiler);
+        return compiler;
+    }
+
+    private static Object global(Compiler compiler, String name) {
+        return compiler.globals.values().get(name);
+    }
+
+    @Test
+    public void hostsWalkAGeneratorToItsEnd() throws Exception {
+        for (var engine : ENGINES) {
+            var compiler = run(engine, "var started = false;\n"
+                    + "function range(n) { started = true; for (var i = 0; i < n; i = i + 1) yield i; }\n"
+                    + "var numbers = range(3);\n");
+            assertEquals(false, global(compiler, "started"));
+            var numbers = (Generator) global(compiler, "numbers");
+            List<Object> values = new ArrayList<>();
+            numbers.forEachRemaining(values::add);
+            assertEquals(List.of(0L, 1L, 2L), values);
+            assertEquals(true, global(compiler, "started"));
+            assertFalse(numbers.hasNext());
+            assertFalse(numbers.hasNext());
+            assertThrows(NoSuchElementException.class, numbers::next);
+        }
+    }
+
+    @Test
+    public void aReturnEndsTheGenerator() throws Exception {
+        for (var engine : ENGINES) {
+            var compiler = run(engine, "function two() { yield 1; yield 2; return; yield 3; }\n"
+                    + "var g = two();\n"
+                    + "var sum = 0;\n"
+                    + "while (hasNext(g)) sum = sum + next(g);\n"
+                    + "var again = hasNext(g);\n");
+            assertEquals(3L, global(compiler, "sum"));
+            assertEquals(false, global(compiler, "again"));
+        }
+    }
+
+    @Test
+    public void nextAfterTheEndIsAnError() {
+        for (var engine : ENGINES) {
+            var error = assertThrows(ScriptException.class, () -> run(engine, "function one() { yield 1; }\n"
+                    + "var g = one();\n"
+                    + "next(g);\n"
+                    + "next(g);\n"));
+            assertTrue(error.getMessage(), error.getMessage().contains("Generator one has finished."));
+        }
+    }
+
+    @Test
+    public void aFailedGeneratorIsFinished() throws Exception {
+        for (var engine : ENGINES) {
+            var compiler = run(engine, "function bad() { yield 1; yield -\"x\"; }\n"
+                    + "var g = bad();\n");
+            var g = (Generator) global(compiler, "g");
+            assertEquals(1L, g.next());
+            assertThrows(RuntimeError.class, g::hasNext);
+            assertFalse(g.hasNext());
+        }
+    }
+
+    @Test
+    public void aGeneratorCannotResumeItself() {
+        for (var engine : ENGINES) {
+            var error = assertThrows(ScriptException.class, () -> run(engine,
+                    "function self() { yield next(g); }\n"
+                    + "var g = self();\n"
+                    + "next(g);\n"));
+            assertTrue(error.getMessage(), error.getMessage().contains("Generator self is already running."));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class GlobalsTest {
+    // Calls f enough times through one call site for it to cache f.
+    private static final String WARM = "function f() { return 1; }\n"
+            + "function g() { return 2; }\n"
+            + "function call() { return f(); }\n"
+            + "for (var i = 0; i < 100; i = i + 1) call();\n";
+
+    // Runs source on every engine and checks they all give expected.
+    private static void assertResult(Object expected, String source) throws Exception {
+        for (var engine : new boolean[][] { { false, false }, { true, false }, { false, true } }) {
+            var result = EigenScript.compile(source).run(new Compiler(engine[0], engine[1]));
+            assertEquals(source, expected, result);
+        }
+    }
+
+    @Test
+    public void assigningAWarmedCalleeIsSeen() throws Exception {
+        assertResult(2L, WARM + "f = g;\ncall();\n");
+    }
+
+    @Test
+    public void redeclaringAWarmedCalleeIsSeen() throws Exception {
+        assertResult(3L, WARM + "function f() { return 3; }\ncall();\n");
+    }
+
+    @Test
+    public void aCalleeThatReplacesItselfIsSeen() throws Exception {
+        assertResult(11L, "var calls = 0;\n"
+                + "function later() { return 10; }\n"
+                + "function f() {\n"
+                + "  calls = calls + 1;\n"
+                + "  if (calls == 50) f = later;\n"
+                + "  return 1;\n"
+                + "}\n"
+                + "var last = 0;\n"
+                + "for (var i = 0; i < 60; i = i + 1) last = f();\n"
+                + "last + calls - 49;\n");
+    }
+
+    @Test
+    public void reassigningAWarmedClassIsSeen() throws Exception {
+        assertResult("B", "class A { name() { return \"A\"; } }\n"
+                + "class B { name() { return \"B\"; } }\n"
+                + "function make() { return A(); }\n"
+                + "for (var i = 0; i < 100; i = i + 1) make();\n"
+                + "A = B;\n"
+                + "make().name();\n");
+    }
+
+    @Test
+    public void aCachedCalleeBelongsToItsOwnRun() throws Exception {
+        var script = EigenScript.compile("function call() { return f(); }\n"
+                + "for (var i = 0; i < 100; i = i + 1) call();\n"
+                + "call();\n");
+        var first = new Compiler();
+        EigenScript.compile("function f() { return 1; }\n").run(first);
+        var second = new Compiler();
+        EigenScript.compile("function f() { return 2; }\n").run(second);
+        assertEquals(1L, script.run(first));
+        assertEquals(2L, script.run(second));
+    }
+}
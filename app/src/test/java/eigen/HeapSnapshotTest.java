@@ -0,0 +1,43 @@
+package eigen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HeapSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Compiler run(String source) throws Exception {
+        var compiler = new Compiler();
+        EigenScript.compile(source).run(compiler);
+        return compiler;
+    }
+
+    @Test
+    public void globalsSurviveASnapshot() throws Exception {
+        var path = folder.getRoot().toPath().resolve("prelude.snapshot");
+        HeapSnapshot.write(run("function f(x) { return x + 1; }\nvar n = 41;\n"), path);
+        var compiler = new Compiler();
+        HeapSnapshot.read(compiler, path);
+        assertEquals(42L, EigenScript.compile("f(n);").run(compiler));
+    }
+
+    @Test
+    public void aChannelFailsTheSnapshotByName() throws Exception {
+        var path = folder.getRoot().toPath().resolve("prelude.snapshot");
+        var compiler = run("var ch = channel(1);\n");
+        var error = assertThrows(IOException.class, () -> HeapSnapshot.write(compiler, path));
+        assertTrue(error.getMessage(), error.getMessage().contains("'ch'"));
+        assertFalse(path.toFile().exists());
+        assertArrayEquals(new String[0], folder.getRoot().list());
+    }
+}
@@ -0,0 +1,58 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class IntrinsicTest {
+
+    static final class Host {
+        @EigenNative("sqrt")
+        static String sqrt(double value) {
+            return "host";
+        }
+    }
+
+    // Runs source on every engine with the given bindings and checks they
+    // all give expected.
+    private static void assertResult(Object expected, Map<String, Object> bindings, String source)
+            throws Exception {
+        for (var engine : new boolean[][] { { false, false }, { true, false }, { false, true } }) {
+            var compiler = new Compiler(engine[0], engine[1]);
+            EigenScript.bind(compiler, bindings);
+            assertEquals(source, expected, EigenScript.compile(source).run(compiler));
+        }
+    }
+
+    private static void assertResult(Object expected, String source) throws Exception {
+        assertResult(expected, Map.of(), source);
+    }
+
+    @Test
+    public void callsTheIntrinsic() throws Exception {
+        assertResult(4.0, "sqrt(16);");
+        assertResult(3L, "function f(x) { return abs(x); } f(-3);");
+    }
+
+    @Test
+    public void aScriptFunctionOfTheSameNameWins() throws Exception {
+        assertResult("mine", "function sqrt(x) { return \"mine\"; }\nsqrt(4);");
+    }
+
+    @Test
+    public void assigningTheNameWins() throws Exception {
+        assertResult("mine", "function mine(x) { return \"mine\"; }\n"
+                + "function root() { return sqrt(16); }\n"
+                + "for (var i = 0; i < 100; i = i + 1) root();\n"
+                + "sqrt = mine;\n"
+                + "root();\n");
+    }
+
+    @Test
+    public void aHostGlobalOfTheSameNameWins() throws Exception {
+        assertResult("host", NativeBinder.natives(Host.class),
+                "function root() { return sqrt(16); }\nroot();\n");
+    }
+}
@@ -0,0 +1,67 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// eigen.lazyFunctions is read once per JVM, so each run is a command line.
+public class LazyBodyTest {
+    private static final String[] ENGINES = { "tree", "closure", "stack" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void aBrokenBodyFailsAtItsFirstCall() throws Exception {
+        var source = "function ok() { return 1; }\n"
+                + "function broken() { var x = ; }\n"
+                + "print ok();\n"
+                + "broken();\n";
+        for (var engine : ENGINES) {
+            assertEquals("1\n[line 2] Error at ;': Expect expression.\n[line 2]\n", run(engine, true, source));
+        }
+    }
+
+    @Test
+    public void aBrokenBodyThatIsNeverCalledDoesNotStopTheScript() throws Exception {
+        var source = "function unused() { var x = ; }\n"
+                + "print \"ran\";\n";
+        for (var engine : ENGINES) {
+            assertEquals("ran\n", run(engine, true, source));
+            assertEquals("[line 1] Error at ;': Expect expression.\n", run(engine, false, source));
+        }
+    }
+
+    @Test
+    public void resolverErrorsAlsoWaitForTheFirstCall() throws Exception {
+        var source = "function shadow() { var a = 1; { var a = a; } }\n"
+                + "print \"ran\";\n"
+                + "shadow();\n";
+        for (var engine : ENGINES) {
+            assertEquals("ran\n[line 1] Error at a': Can't read local variable in its own initializer.\n[line 1]\n",
+                    run(engine, true, source));
+        }
+    }
+
+    private String run(String engine, boolean lazy, String source) throws Exception {
+        var script = folder.newFile();
+        Files.writeString(script.toPath(), source);
+        var output = folder.newFile();
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        var process = new ProcessBuilder(java, "-Deigen.engine=" + engine, "-Deigen.lazyFunctions=" + lazy,
+                "-cp", System.getProperty("java.class.path"), "eigen.Eigen", script.toString())
+                .redirectErrorStream(true).redirectOutput(output).start();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new AssertionError(engine + " did not finish.");
+        }
+        return Files.readString(output.toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class LimitsTest {
+
+    private static void assertOverQuota(String source) throws Exception {
+        var script = EigenScript.compile(source);
+        var limits = new Limits();
+        limits.setMemoryQuota(1 << 20);
+        var error = assertThrows(ScriptException.class, () -> script.run(new HashMap<>(), limits));
+        assertTrue(error.getMessage(), error.getMessage().startsWith("Memory quota"));
+    }
+
+    @Test
+    public void appendsAreCharged() throws Exception {
+        assertOverQuota("var l = list();\nwhile (true) append(l, \"x\");\n");
+    }
+
+    @Test
+    public void nativeStringsAreCharged() throws Exception {
+        assertOverQuota("var s = \"ab\";\nwhile (true) s = replace(s, \"a\", \"aa\");\n");
+    }
+
+    @Test
+    public void memoEntriesAreCharged() throws Exception {
+        assertOverQuota("function f(n) { return n; }\nf = memoize(f, 100000000);\n"
+                + "var i = 0;\nwhile (true) { f(i); i = i + 1; }\n");
+    }
+
+    private static Object run(String source, Limits limits, boolean closures, boolean stack) throws Exception {
+        var compiler = new Compiler(closures, stack);
+        compiler.limits = limits;
+        return EigenScript.compile(source).run(compiler);
+    }
+
+    @Test
+    public void aRunStopsAtItsBudget() throws Exception {
+        var source = "var i = 0;\nwhile (i < 1000) i = i + 1;\n";
+        for (var engine : new boolean[][] { { false, false }, { true, false }, { false, true } }) {
+            var limits = new Limits();
+            limits.setFuel(100);
+            var error = assertThrows(ScriptException.class, () -> run(source, limits, engine[0], engine[1]));
+            assertTrue(error.getMessage(), error.getMessage().startsWith("Instruction budget exhausted."));
+            assertEquals(0, limits.fuelLeft());
+        }
+    }
+
+    @Test
+    public void unusedFuelIsGivenBack() throws Exception {
+        var source = "function f() {}\nvar i = 0;\nwhile (i < 10) { f(); i = i + 1; }\n";
+        for (var engine : new boolean[][] { { false, false }, { true, false }, { false, true } }) {
+            var limits = new Limits();
+            limits.setFuel(100000);
+            run(source, limits, engine[0], engine[1]);
+            assertEquals(100000 - 20, limits.fuelLeft());
+        }
+    }
+
+    @Test
+    public void spawnedTasksGiveBackTheirFuel() throws Exception {
+        var limits = new Limits();
+        limits.setFuel(100000);
+        run("function f() { var i = 0; while (i < 10) i = i + 1; }\njoin(spawn(f));\n", limits, false, false);
+        assertEquals(100000 - 11, limits.fuelLeft());
+    }
+
+    @Test
+    public void cancellingStopsARun() throws Exception {
+        var limits = new Limits();
+        var canceller = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            limits.cancel();
+        });
+        canceller.start();
+        var error = assertThrows(ScriptException.class, () -> run("while (true) {}\n", limits, false, false));
+        assertTrue(error.getMessage(), error.getMessage().startsWith("Script was cancelled."));
+        canceller.join();
+    }
+
+    @Test
+    public void aUsedUpSliceCallsTheSchedulersHook() throws Exception {
+        var limits = new Limits();
+        var turns = new AtomicInteger();
+        limits.setTimeSlice(1, turns::incrementAndGet);
+        run("var i = 0;\nwhile (i < 100000) i = i + 1;\n", limits, false, false);
+        assertTrue(turns.get() > 0);
+    }
+
+    @Test
+    public void theSliceHookCanStopARun() throws Exception {
+        var limits = new Limits();
+        limits.setTimeSlice(1, limits::cancel);
+        var error = assertThrows(ScriptException.class, () -> run("while (true) {}\n", limits, false, false));
+        assertTrue(error.getMessage(), error.getMessage().startsWith("Script was cancelled."));
+    }
+}
@@ -0,0 +1,103 @@
+package eigen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class MatrixTest {
+
+    // Entries are small integers, so every sum below is exact whatever order
+    // it is taken in.
+    private static Matrix filled(int rows, int cols, int seed) {
+        var matrix = new Matrix(rows, cols);
+        for (int i = 0; i < matrix.data.length; i++) {
+            matrix.data[i] = (i * 31 + seed) % 17 - 8;
+        }
+        return matrix;
+    }
+
+    private static Matrix naiveMultiply(Matrix a, Matrix b) {
+        var result = new Matrix(a.rows, b.cols);
+        for (int i = 0; i < a.rows; i++) {
+            for (int j = 0; j < b.cols; j++) {
+                double sum = 0;
+                for (int k = 0; k < a.cols; k++) {
+                    sum += a.get(i, k) * b.get(k, j);
+                }
+                result.set(i, j, sum);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void multipliesSmallMatrices() {
+        var a = new Matrix(2, 3, new double[] { 1, 2, 3, 4, 5, 6 });
+        var b = new Matrix(3, 2, new double[] { 7, 8, 9, 10, 11, 12 });
+        var c = a.multiply(b);
+        assertEquals(2, c.rows);
+        assertEquals(2, c.cols);
+        assertArrayEquals(new double[] { 58, 64, 139, 154 }, c.data, 0);
+    }
+
+    @Test
+    public void multipliesAcrossTilesAndThreads() {
+        // Tiles are 64 on a side; 200 x 190 x 210 is enough work to split
+        // across the pool, and no side is a whole number of tiles.
+        var a = filled(200, 190, 1);
+        var b = filled(190, 210, 2);
+        assertArrayEquals(naiveMultiply(a, b).data, a.multiply(b).data, 0);
+    }
+
+    @Test
+    public void transposesAcrossTiles() {
+        var a = filled(70, 130, 3);
+        var t = a.transpose();
+        assertEquals(130, t.rows);
+        assertEquals(70, t.cols);
+        for (int i = 0; i < a.rows; i++) {
+            for (int j = 0; j < a.cols; j++) {
+                assertEquals(a.get(i, j), t.get(j, i), 0);
+            }
+        }
+        assertArrayEquals(a.data, t.transpose().data, 0);
+    }
+
+    @Test
+    public void dotsSmallAndLargeVectors() {
+        var a = new Matrix(1, 5, new double[] { 1, 2, 3, 4, 5 });
+        var b = new Matrix(1, 5, new double[] { 5, 4, 3, 2, 1 });
+        assertEquals(35, a.dot(b), 0);
+
+        var size = Matrix.PARALLEL_SIZE * 3 + 5;
+        var x = filled(1, size, 4);
+        var y = filled(1, size, 5);
+        double expected = 0;
+        for (int i = 0; i < size; i++) {
+            expected += x.data[i] * y.data[i];
+        }
+        assertEquals(expected, x.dot(y), 0);
+    }
+
+    @Test
+    public void rejectsShapesThatDoNotFit() {
+        var error = assertThrows(NativeError.class, () -> filled(2, 3, 0).multiply(filled(2, 3, 0)));
+        assertEquals("Cannot multiply a 2 by 3 matrix by a 2 by 3 one.", error.getMessage());
+        error = assertThrows(NativeError.class, () -> filled(1, 3, 0).dot(filled(1, 4, 0)));
+        assertEquals("Cannot take the dot product of 3 and 4 entries.", error.getMessage());
+    }
+
+    @Test
+    public void scriptsMultiplyThroughTheNatives() throws Exception {
+        var result = EigenScript.compile("function row(x, y) { var r = list(); append(r, x); append(r, y); return r; }\n"
+                + "var rows = list();\n"
+                + "append(rows, row(1, 2));\n"
+                + "append(rows, row(3, 4));\n"
+                + "var a = toMatrix(rows);\n"
+                + "var c = matmul(a, transpose(a));\n"
+                + "entry(c, 0, 0) * 1000 + entry(c, 0, 1) * 100 + entry(c, 1, 1) + dot(a, a) / 100;\n").run();
+        assertEquals(5000 + 1100 + 25 + 0.3, result);
+    }
+}
@@ -0,0 +1,57 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MemoizedFunctionTest {
+
+    private static Compiler run(String source) throws Exception {
+        var compiler = new Compiler();
+        EigenScript.compile(source).run(compiler);
+        return compiler;
+    }
+
+    private static Object global(Compiler compiler, String name) {
+        return compiler.globals.values().get(name);
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() throws Exception {
+        var compiler = run("var calls = \"\";\n"
+                + "function f(x) { calls = calls + fromCharCode(48 + x); return x; }\n"
+                + "f = memoize(f, 2);\n"
+                + "f(1); f(2);\n"
+                + "f(1);\n" // a hit, which leaves 2 the eldest
+                + "f(3);\n" // evicts 2
+                + "f(1); f(3);\n"
+                + "f(2);\n" // evicts 1
+                + "f(1);\n"
+                + "var hits = memoHits(f);\n"
+                + "var misses = memoMisses(f);\n");
+        assertEquals("12321", global(compiler, "calls").toString());
+        assertEquals(3L, global(compiler, "hits"));
+        assertEquals(5L, global(compiler, "misses"));
+    }
+
+    @Test
+    public void recursiveCallsThroughTheRebindingHitTheCache() throws Exception {
+        var compiler = run("function fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n"
+                + "fib = memoize(fib, 100);\n"
+                + "var result = fib(80);\n"
+                + "var hits = memoHits(fib);\n"
+                + "var misses = memoMisses(fib);\n");
+        assertEquals(23416728348467685L, global(compiler, "result"));
+        assertEquals(81L, global(compiler, "misses"));
+        assertEquals(78L, global(compiler, "hits"));
+    }
+
+    @Test
+    public void argumentListsKeyOnEveryArgument() throws Exception {
+        var compiler = run("var calls = 0;\n"
+                + "function add(a, b) { calls = calls + 1; return a + b; }\n"
+                + "add = memoize(add, 10);\n"
+                + "add(1, 2); add(2, 1); add(1, 2); add(1.0, 2.0);\n");
+        assertEquals(2L, global(compiler, "calls"));
+    }
+}
@@ -0,0 +1,60 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.script.ScriptException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String module(String name, String source) throws Exception {
+        var file = new File(folder.getRoot(), name);
+        Files.writeString(file.toPath(), source);
+        return file.getAbsolutePath();
+    }
+
+    private static Object run(String source, boolean closures, boolean stack) throws Exception {
+        return EigenScript.compile(source).run(new Compiler(closures, stack));
+    }
+
+    @Test
+    public void moduleFunctionsSeeTheModulesGlobals() throws Exception {
+        var path = module("m2.eigen", "var answer = 42;\n"
+                + "function get() { return answer; }\n"
+                + "function self() { return get(); }\n");
+        var main = "import \"" + path + "\";\n"
+                + "var answer = \"MAIN\";\n"
+                + "var get = null;\n"
+                + "m2.get() + m2.self();\n";
+        assertEquals(84L, run(main, false, false));
+        assertEquals(84L, run(main, true, false));
+        assertEquals(84L, run(main, false, true));
+    }
+
+    @Test
+    public void aModuleThatFailedCanBeImportedOnceFixed() throws Exception {
+        var path = module("broken.eigen", "var x = ;\n");
+        var main = "import \"" + path + "\";\nbroken.x;\n";
+        assertThrows(ScriptException.class, () -> EigenScript.compile(main));
+        module("broken.eigen", "var x = 3;\n");
+        assertEquals(3L, EigenScript.compile(main).run());
+    }
+
+    @Test
+    public void aModuleNameMustBeAnIdentifier() throws Exception {
+        var path = module("my-lib.eigen", "var x = 1;\n");
+        var error = assertThrows(ScriptException.class, () -> EigenScript.compile("import \"" + path + "\";\n"));
+        assertTrue(error.getMessage(), error.getMessage().contains("not an identifier"));
+        assertEquals(1L, EigenScript.compile("import \"" + path + "\" as lib;\nlib.x;\n").run());
+    }
+}
@@ -0,0 +1,104 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class NativeBinderTest {
+
+    static final class Host {
+        @EigenNative
+        static long twice(int a) {
+            return 2L * a;
+        }
+
+        @EigenNative
+        static double half(double a) {
+            return a / 2;
+        }
+
+        @EigenNative
+        static long wide(long a) {
+            return a;
+        }
+
+        @EigenNative("not")
+        static boolean negate(boolean a) {
+            return !a;
+        }
+
+        @EigenNative
+        static char first(String s) {
+            return s.charAt(0);
+        }
+
+        @EigenNative
+        static int count(EigenList list, int extra) {
+            return list.elements.size() + extra;
+        }
+
+        @EigenNative
+        static float narrow(double value) {
+            return (float) value;
+        }
+    }
+
+    static final class Instance {
+        @EigenNative
+        long value() {
+            return 1;
+        }
+    }
+
+    static final class Shorts {
+        @EigenNative
+        static short small(short value) {
+            return value;
+        }
+    }
+
+    private static Object run(String source) throws ScriptException {
+        return EigenScript.compile(source).run(NativeBinder.natives(Host.class));
+    }
+
+    private static void assertError(String message, String source) {
+        var error = assertThrows(ScriptException.class, () -> run(source));
+        assertTrue(error.getMessage(), error.getMessage().contains(message));
+    }
+
+    @Test
+    public void convertsArgumentsAndResults() throws Exception {
+        assertEquals(6L, run("twice(3);"));
+        assertEquals(6L, run("twice(3.0);"));
+        assertEquals(1.5, run("half(3);"));
+        assertEquals(9007199254740993L, run("wide(9007199254740993);"));
+        assertEquals(false, run("not(true);"));
+        assertEquals("a", run("first(\"abc\");"));
+        assertEquals(0.5, run("narrow(0.5);"));
+        assertEquals(3L, run("var l = list(); append(l, 1); count(l, 2);"));
+    }
+
+    @Test
+    public void rejectsArgumentsItCannotConvert() {
+        assertError("Argument 1 must be an integer.", "twice(1.5);");
+        assertError("Argument 1 must be an integer.", "twice(4294967296);");
+        assertError("Argument 1 must be an integer.", "wide(\"1\");");
+        assertError("Argument 1 must be a number.", "half(\"1\");");
+        assertError("Argument 1 must be a boolean.", "not(1);");
+        assertError("Argument 1 must be a string.", "first(1);");
+        assertError("Argument 1 must be a list.", "count(1, 2);");
+        assertError("Argument 2 must be an integer.", "count(list(), null);");
+    }
+
+    @Test
+    public void rejectsMethodsItCannotBind() {
+        var error = assertThrows(IllegalArgumentException.class, () -> NativeBinder.natives(Instance.class));
+        assertEquals("Native value must be a static method.", error.getMessage());
+        error = assertThrows(IllegalArgumentException.class, () -> NativeBinder.natives(Shorts.class));
+        assertEquals("Native small cannot take a short.", error.getMessage());
+    }
+}
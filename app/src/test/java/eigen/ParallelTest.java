@@ -0,0 +1,52 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ParallelTest {
+
+    private static Object run(String source) throws Exception {
+        var compiler = new Compiler();
+        EigenScript.compile(source).run(compiler);
+        return compiler.globals.values().get("result");
+    }
+
+    @Test
+    public void mapKeepsSourceOrder() throws Exception {
+        var result = (EigenList) run("function square(x) { return x * x; }\n"
+                + "var result = parallelMap(square, 1000);\n");
+        assertEquals(1000, result.elements.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((long) i * i, result.elements.get(i));
+        }
+    }
+
+    @Test
+    public void reduceCombinesInSourceOrder() throws Exception {
+        var result = run("var letters = list();\n"
+                + "for (var i = 0; i < 26; i = i + 1) append(letters, fromCharCode(97 + i));\n"
+                + "function join(a, b) { return a + b; }\n"
+                + "var result = parallelReduce(join, \"\", letters);\n");
+        assertEquals("abcdefghijklmnopqrstuvwxyz", result.toString());
+    }
+
+    @Test
+    public void floatReductionsRepeatExactly() throws Exception {
+        // Float addition does not associate, so only a fixed combining shape
+        // gives the same sum every time.
+        var source = "function term(i) { return 1 / (i + 0.5); }\n"
+                + "function add(a, b) { return a + b; }\n"
+                + "var result = parallelReduce(add, 0.0, parallelMap(term, 100000));\n";
+        var first = run(source);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(first, run(source));
+        }
+    }
+
+    @Test
+    public void reduceOverNothingIsTheIdentity() throws Exception {
+        assertEquals(7L, run("function add(a, b) { return a + b; }\n"
+                + "var result = parallelReduce(add, 7, 0);\n"));
+    }
+}
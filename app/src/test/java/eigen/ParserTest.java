@@ -0,0 +1,134 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ParserTest {
+
+    private static String parse(String expression) {
+        List<Stmt> statements = new ArrayList<>();
+        var errors = Eigen.collectErrors(
+                () -> statements.addAll(new Parser(new Lexer(expression + ";").scanTokens()).parse()));
+        assertEquals(List.of(), errors);
+        return print(((Stmt.Expression) statements.get(0)).expression);
+    }
+
+    private static List<String> errors(String source) {
+        return Eigen.collectErrors(() -> new Parser(new Lexer(source).scanTokens()).parse());
+    }
+
+    // Prints expr fully parenthesized, operator first.
+    private static String print(Expr expr) {
+        if (expr instanceof Expr.Literal) {
+            return String.valueOf(((Expr.Literal) expr).value);
+        }
+        if (expr instanceof Expr.Variable) {
+            return ((Expr.Variable) expr).name.lexeme;
+        }
+        if (expr instanceof Expr.Binary) {
+            var binary = (Expr.Binary) expr;
+            return "(" + binary.operator.lexeme + " " + print(binary.left) + " " + print(binary.right) + ")";
+        }
+        if (expr instanceof Expr.Logical) {
+            var logical = (Expr.Logical) expr;
+            return "(" + logical.operator.lexeme + " " + print(logical.left) + " " + print(logical.right) + ")";
+        }
+        if (expr instanceof Expr.Unary) {
+            var unary = (Expr.Unary) expr;
+            return "(" + unary.operator.lexeme + " " + print(unary.right) + ")";
+        }
+        if (expr instanceof Expr.Grouping) {
+            return "(group " + print(((Expr.Grouping) expr).expression) + ")";
+        }
+        if (expr instanceof Expr.Assign) {
+            var assign = (Expr.Assign) expr;
+            return "(= " + assign.name.lexeme + " " + print(assign.value) + ")";
+        }
+        if (expr instanceof Expr.Get) {
+            var get = (Expr.Get) expr;
+            return "(. " + print(get.object) + " " + get.name.lexeme + ")";
+        }
+        if (expr instanceof Expr.Set) {
+            var set = (Expr.Set) expr;
+            return "(set " + print(set.object) + " " + set.name.lexeme + " " + print(set.value) + ")";
+        }
+        if (expr instanceof Expr.Call) {
+            var call = (Expr.Call) expr;
+            var text = new StringBuilder("(call ").append(print(call.callee));
+            for (var argument : call.arguments) {
+                text.append(' ').append(print(argument));
+            }
+            return text.append(')').toString();
+        }
+        if (expr instanceof Expr.This) {
+            return "this";
+        }
+        if (expr instanceof Expr.Super) {
+            return "(super " + ((Expr.Super) expr).method.lexeme + ")";
+        }
+        throw new IllegalArgumentException(expr.getClass().getSimpleName());
+    }
+
+    @Test
+    public void eachLevelBindsTighterThanTheOneBefore() {
+        assertEquals("(= a (|| b c))", parse("a = b || c"));
+        assertEquals("(|| a (&& b c))", parse("a || b && c"));
+        assertEquals("(&& a (== b c))", parse("a && b == c"));
+        assertEquals("(== a (< b c))", parse("a == b < c"));
+        assertEquals("(< a (| b c))", parse("a < b | c"));
+        assertEquals("(| a (^ b c))", parse("a | b ^ c"));
+        assertEquals("(^ a (& b c))", parse("a ^ b & c"));
+        assertEquals("(& a (<< b c))", parse("a & b << c"));
+        assertEquals("(>> a (+ b c))", parse("a >> b + c"));
+        assertEquals("(- a (* b c))", parse("a - b * c"));
+        assertEquals("(/ a (- b))", parse("a / -b"));
+        assertEquals("(- (call (. a b) c))", parse("-a.b(c)"));
+        assertEquals("(! (call (call f) 1 2))", parse("!f()(1, 2)"));
+    }
+
+    @Test
+    public void theOrderFlipsWhenTheLooserOperatorComesFirst() {
+        assertEquals("(|| (&& a b) c)", parse("a && b || c"));
+        assertEquals("(== (! a) b)", parse("!a == b"));
+        assertEquals("(< (| a b) c)", parse("a | b < c"));
+        assertEquals("(| (& a b) c)", parse("a & b | c"));
+        assertEquals("(<< (+ a b) c)", parse("a + b << c"));
+        assertEquals("(* (group (+ a b)) c)", parse("(a + b) * c"));
+    }
+
+    @Test
+    public void binaryOperatorsAreLeftAssociative() {
+        assertEquals("(|| (|| a b) c)", parse("a || b || c"));
+        assertEquals("(&& (&& a b) c)", parse("a && b && c"));
+        assertEquals("(!= (== a b) c)", parse("a == b != c"));
+        assertEquals("(>= (< a b) c)", parse("a < b >= c"));
+        assertEquals("(| (| a b) c)", parse("a | b | c"));
+        assertEquals("(^ (^ a b) c)", parse("a ^ b ^ c"));
+        assertEquals("(& (& a b) c)", parse("a & b & c"));
+        assertEquals("(>> (<< a b) c)", parse("a << b >> c"));
+        assertEquals("(+ (- a b) c)", parse("a - b + c"));
+        assertEquals("(* (/ a b) c)", parse("a / b * c"));
+        assertEquals("(. (. (call a) b) c)", parse("a().b.c"));
+    }
+
+    @Test
+    public void assignmentIsRightAssociative() {
+        assertEquals("(= a (= b c))", parse("a = b = c"));
+        assertEquals("(set a x (= b (set this y 1)))", parse("a.x = b = this.y = 1"));
+        assertEquals("(set (call (. a b)) c (+ 1 2))", parse("a.b().c = 1 + 2"));
+    }
+
+    @Test
+    public void onlyVariablesAndFieldsCanBeAssigned() {
+        for (var target : new String[] { "a + b", "(a)", "1", "a()", "-a", "a || b", "super.m", "this" }) {
+            var errors = errors(target + " = c;");
+            assertEquals(target, 1, errors.size());
+            assertTrue(errors.get(0), errors.get(0).endsWith("Invalid assignment target."));
+        }
+    }
+}
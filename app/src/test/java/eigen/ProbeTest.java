@@ -0,0 +1,79 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class ProbeTest {
+    private static final String SOURCE = "class P { init(x) { this.x = x; } }\n"
+            + "function add(a, b) {\n"
+            + "  return a + b;\n"
+            + "}\n"
+            + "var p = P(1);\n"
+            + "p.x = add(p.x, 2);\n"
+            + "add(1, null);\n";
+
+    private final List<String> events = new ArrayList<>();
+
+    private Probe probe(Probe.Kind kind) {
+        return new Probe(kind, event -> events.add(event + " = " + event.value()));
+    }
+
+    private void run(Instruments instruments) {
+        try {
+            EigenScript.compile(SOURCE).run(new HashMap<>(), null, instruments);
+        } catch (ScriptException e) {
+            // The last line fails on purpose.
+        }
+    }
+
+    @Test
+    public void callsAndPropertiesAreReported() {
+        var instruments = new Instruments();
+        instruments.attach(probe(Probe.Kind.ENTER));
+        instruments.attach(probe(Probe.Kind.EXIT));
+        instruments.attach(probe(Probe.Kind.GET));
+        instruments.attach(probe(Probe.Kind.SET));
+        run(instruments);
+        assertEquals(List.of(
+                "ENTER [line 1] in init = [1]",
+                "SET [line 1] in init .x = 1",
+                "EXIT [line 1] in init = null",
+                "GET [line 6] .x = 1",
+                "ENTER [line 2] in add = [1, 2]",
+                "EXIT [line 2] in add = 3",
+                "SET [line 6] .x = 3",
+                "ENTER [line 2] in add = [1, null]"), events);
+    }
+
+    @Test
+    public void filtersNarrowStatementsAndErrorsAreReportedOnce() {
+        var instruments = new Instruments();
+        var statement = probe(Probe.Kind.STATEMENT);
+        statement.setFunction("add");
+        statement.setLine(3);
+        instruments.attach(statement);
+        instruments.attach(probe(Probe.Kind.ERROR));
+        run(instruments);
+        assertEquals(List.of(
+                "STATEMENT [line 3] in add = null",
+                "STATEMENT [line 3] in add = null",
+                "ERROR [line 3] in add = Operands must be two numbers or two strings."), events);
+    }
+
+    @Test
+    public void aDetachedProbeStopsReporting() {
+        var instruments = new Instruments();
+        var enter = probe(Probe.Kind.ENTER);
+        instruments.attach(enter);
+        instruments.detach(enter);
+        run(instruments);
+        assertEquals(List.of(), events);
+    }
+}
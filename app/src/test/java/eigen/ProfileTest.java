@@ -0,0 +1,79 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// A profile speculates that operators which only saw floats keep seeing them.
+// The script reads which kind of numbers to use from a file, so its source,
+// and with it the profile's checksum, stays the same when the kinds change.
+public class ProfileTest {
+    private static final String SCRIPT = "var mode = nextLine(openLines(\"mode.txt\"));\n"
+            + "function add(a, b) { return a + b; }\n"
+            + "function less(a, b) { return a < b; }\n"
+            + "var x = 1.5;\n"
+            + "var y = 0.25;\n"
+            + "if (mode == \"integers\") {\n"
+            + "  x = 9007199254740993;\n"
+            + "  y = 1;\n"
+            + "}\n"
+            + "var s = x;\n"
+            + "for (var i = 0; i < 3000; i = i + 1) {\n"
+            + "  if (less(y, x)) s = add(x, y);\n"
+            + "}\n"
+            + "print s;\n"
+            + "print add(x, y) / 2;\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void speculationFallsBackWhenTheKindsChange() throws Exception {
+        for (var engine : new String[] { "tree", "closure", "stack" }) {
+            var profile = new File(folder.getRoot(), engine + ".profile");
+            assertEquals("1.75\n0.875\n", run(engine, "floats", profile));
+
+            var recorded = new Properties();
+            try (var reader = Files.newBufferedReader(profile.toPath())) {
+                recorded.load(reader);
+            }
+            assertEquals("2", recorded.getProperty("binary.add@2/2.0"));
+            assertEquals("2", recorded.getProperty("binary.less@3/3.0"));
+
+            var expected = run(engine, "integers", null);
+            assertEquals("9007199254740994\n4503599627370497\n", expected);
+            assertEquals(expected, run(engine, "integers", profile));
+        }
+    }
+
+    private String run(String engine, String mode, File profile) throws Exception {
+        var directory = folder.getRoot();
+        Files.writeString(new File(directory, "mode.txt").toPath(), mode + "\n");
+        var script = new File(directory, "speculate.eg");
+        Files.writeString(script.toPath(), SCRIPT);
+        var output = new File(directory, "output.txt");
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        var command = new ArrayList<String>(List.of(java, "-Deigen.engine=" + engine));
+        if (profile != null) {
+            command.add("-Deigen.profile=" + profile.getAbsolutePath());
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), "eigen.Eigen", script.getName()));
+        var process = new ProcessBuilder(command).directory(directory).redirectErrorStream(true).redirectOutput(output).start();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new AssertionError(engine + " did not finish.");
+        }
+        return Files.readString(output.toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class RecursionTest {
+    private static final String MEMOIZED = "function f(n) { if (n == 0) return 0; return f(n - 1) + 1; }\n"
+            + "f = memoize(f, 100);\n"
+            + "f(50000);\n";
+
+    private static Object run(String source, boolean closures, boolean stack) throws Exception {
+        return EigenScript.compile(source).run(new Compiler(closures, stack));
+    }
+
+    @Test
+    public void recursionThroughANativeOverflowsAsARuntimeError() {
+        var error = assertThrows(ScriptException.class, () -> run(MEMOIZED, false, true));
+        assertTrue(error.getMessage().startsWith("Stack overflow."));
+        assertThrows(ScriptException.class, () -> run(MEMOIZED, false, false));
+        assertThrows(ScriptException.class, () -> run(MEMOIZED, true, false));
+    }
+
+    @Test
+    public void stackEngineRunsDeepRecursion() throws Exception {
+        var source = "function f(n) { if (n == 0) return 0; return f(n - 1) + 1; }\nf(50000);\n";
+        assertEquals(50000L, run(source, false, true));
+    }
+}
@@ -0,0 +1,41 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class StringViewTest {
+
+    private static Object run(String source) throws Exception {
+        return EigenScript.compile(source).run();
+    }
+
+    @Test
+    public void equalsIsSymmetric() {
+        var view = StringView.of("hello world", 0, 5);
+        assertFalse(view.equals("hello"));
+        assertFalse("hello".equals(view));
+        assertTrue(view.equals(StringView.of("say hello", 4, 9)));
+        var set = new HashSet<Object>();
+        set.add(view);
+        assertTrue(set.contains(StringView.of("hello!", 0, 5)));
+    }
+
+    @Test
+    public void viewsEqualTheStringsTheySpell() throws Exception {
+        assertEquals(true, run("var s = \"hello world\";\nslice(s, 0, 5) == \"hello\";"));
+        assertEquals(true, run("var s = \"hello world\";\n\"hello\" == slice(s, 0, 5);"));
+        assertEquals(false, run("var s = \"hello world\";\nslice(s, 0, 5) == 5;"));
+    }
+
+    @Test
+    public void viewsAndStringsShareMemoEntries() throws Exception {
+        var define = "function f(s) { return length(s); }\nvar m = memoize(f, 10);\nvar s = \"hello world\";\n";
+        assertEquals(1L, run(define + "m(slice(s, 0, 5));\nm(\"hello\");\nmemoHits(m);"));
+        assertEquals(1L, run(define + "m(\"hello\");\nm(slice(s, 0, 5));\nmemoHits(m);"));
+    }
+}
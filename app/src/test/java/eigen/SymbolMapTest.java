@@ -0,0 +1,103 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SymbolMapTest {
+
+    private static List<Integer> symbols(String prefix, int count) {
+        List<Integer> symbols = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            symbols.add(Symbol.intern(prefix + i));
+        }
+        return symbols;
+    }
+
+    @Test
+    public void growsPastItsFirstSlotsAndKeepsEveryEntry() {
+        var map = new SymbolMap();
+        var symbols = symbols("grow", 1000);
+        for (int i = 0; i < symbols.size(); i++) {
+            assertTrue(map.put(symbols.get(i), (long) i));
+            for (int j = 0; j <= i; j += 97) {
+                assertEquals((long) j, map.get(symbols.get(j)));
+            }
+        }
+        assertEquals(1000, map.toMap().size());
+        for (int i = 0; i < symbols.size(); i++) {
+            assertEquals((long) i, map.get(symbols.get(i)));
+        }
+        assertFalse(map.contains(Symbol.intern("grow-missing")));
+    }
+
+    @Test
+    public void keysThatShareTheirLowBitsProbeOnward() {
+        // Symbols 64 apart land in the same slot of every table up to 64
+        // slots, so each probes past the others and wraps around the end.
+        List<Integer> colliding = new ArrayList<>();
+        for (var symbol : symbols("collide", 2000)) {
+            if (symbol % 64 == 63) {
+                colliding.add(symbol);
+            }
+        }
+        var map = new SymbolMap();
+        for (int i = 0; i < colliding.size(); i++) {
+            map.put(colliding.get(i), i);
+            for (int j = 0; j <= i; j++) {
+                assertEquals(j, map.get(colliding.get(j)));
+            }
+        }
+    }
+
+    @Test
+    public void putOverwritesAndReplaceNeverInserts() {
+        var map = new SymbolMap();
+        var a = Symbol.intern("replaceA");
+        var b = Symbol.intern("replaceB");
+        assertTrue(map.put(a, 1L));
+        assertFalse(map.put(a, 2L));
+        assertEquals(2L, map.get(a));
+        assertFalse(map.replace(b, 3L));
+        assertFalse(map.contains(b));
+        assertTrue(map.replace(a, null));
+        assertTrue(map.contains(a));
+        assertNull(map.get(a));
+        var absent = new Object();
+        assertSame(absent, map.get(b, absent));
+        assertEquals(1, map.toMap().size());
+    }
+
+    @Test
+    public void copiesAndSerializedMapsKeepTheirEntries() throws Exception {
+        var map = new SymbolMap();
+        var symbols = symbols("copy", 50);
+        for (int i = 0; i < symbols.size(); i++) {
+            map.put(symbols.get(i), "v" + i);
+        }
+        var shared = map.synchronize();
+        assertSame(shared, shared.synchronize());
+        assertEquals(map.toMap(), shared.toMap());
+
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(shared);
+        }
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            var copy = (SymbolMap) in.readObject();
+            assertEquals(map.toMap(), copy.toMap());
+            assertEquals("v49", copy.get(symbols.get(49)));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package eigen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TyperTest {
+    private static final String LOOP = "function f() {\n"
+            + "  var s = 0;\n"
+            + "  var i = 0;\n"
+            + "  while (i < 1000) { s = s + i * 2; i = i + 1; }\n"
+            + "  return s;\n"
+            + "}\n";
+
+    private static List<Stmt> resolve(String source) {
+        var statements = new Parser(new Lexer(source).scanTokens()).parse();
+        new Resolver().resolve(statements);
+        return statements;
+    }
+
+    // The Binary nodes of statements, outermost first.
+    private static List<Expr.Binary> binaries(List<Stmt> statements) {
+        List<Expr.Binary> found = new ArrayList<>();
+        for (var statement : statements) {
+            collect(statement, found);
+        }
+        return found;
+    }
+
+    private static void collect(Object node, List<Expr.Binary> found) {
+        if (node instanceof Expr.Binary) {
+            var binary = (Expr.Binary) node;
+            found.add(binary);
+            collect(binary.left, found);
+            collect(binary.right, found);
+        } else if (node instanceof Expr.Assign) {
+            collect(((Expr.Assign) node).value, found);
+        } else if (node instanceof Stmt.Function) {
+            ((Stmt.Function) node).body.forEach(statement -> collect(statement, found));
+        } else if (node instanceof Stmt.Block) {
+            ((Stmt.Block) node).statements.forEach(statement -> collect(statement, found));
+        } else if (node instanceof Stmt.While) {
+            collect(((Stmt.While) node).condition, found);
+            collect(((Stmt.While) node).body, found);
+        } else if (node instanceof Stmt.Expression) {
+            collect(((Stmt.Expression) node).expression, found);
+        } else if (node instanceof Stmt.Var) {
+            collect(((Stmt.Var) node).initializer, found);
+        }
+    }
+
+    private static String operands(List<Expr.Binary> binaries) {
+        var text = new StringBuilder();
+        for (var binary : binaries) {
+            text.append(binary.operator.lexeme).append(':').append(binary.operands).append(' ');
+        }
+        return text.toString().trim();
+    }
+
+    @Test
+    public void aCountingLoopIsCheckFree() {
+        var statements = resolve(LOOP);
+        Typer.infer(statements);
+        assertEquals("<:NUMBER +:NUMBER *:NUMBER +:NUMBER", operands(binaries(statements)));
+        assertEquals(List.of(), Typer.report(statements));
+    }
+
+    @Test
+    public void kindsThatAreKnownGetTheirOwnPaths() {
+        var statements = resolve("function f() {\n"
+                + "  var a = 1;\n"
+                + "  var b = 2.5;\n"
+                + "  var c = \"x\";\n"
+                + "  a * 3;\n"
+                + "  a + b;\n"
+                + "  c + c;\n"
+                + "  a | 1;\n"
+                + "}\n");
+        Typer.infer(statements);
+        assertEquals("*:INTEGER +:FLOAT +:STRING |:INTEGER", operands(binaries(statements)));
+    }
+
+    @Test
+    public void theReportNamesWhatCouldNotBeProven() {
+        var statements = resolve("var g = 1;\n"
+                + "function f(p) {\n"
+                + "  var n = 1;\n"
+                + "  n = n / 2;\n"
+                + "  g + 1;\n"
+                + "  n + p;\n"
+                + "  n | 1;\n"
+                + "}\n");
+        assertEquals(List.of("[line 5] '+' keeps its checks: global 'g' could be anything.",
+                "[line 6] '+' keeps its checks: parameter 'p' could be anything.",
+                "[line 7] '|' keeps its checks: 'n' could be a float."), Typer.report(statements));
+    }
+
+    @Test
+    public void everyEngineGetsTheSameAnswerOnTheNumberPath() throws Exception {
+        var source = LOOP + "function g() {\n"
+                + "  var x = 9007199254740993;\n"
+                + "  var y = 1;\n"
+                + "  var i = 0;\n"
+                + "  while (i < 3) { x = x * 3; y = y / 2; i = i + 1; }\n"
+                + "  return x + y;\n"
+                + "}\n"
+                + "f() + g();\n";
+        var expected = EigenScript.compile(source).run(new Compiler(false, false));
+        assertEquals(expected, EigenScript.compile(source).run(new Compiler(true, false)));
+        assertEquals(expected, EigenScript.compile(source).run(new Compiler(false, true)));
+    }
+}